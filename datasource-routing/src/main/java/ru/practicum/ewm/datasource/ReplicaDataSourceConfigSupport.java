@@ -0,0 +1,95 @@
+package ru.practicum.ewm.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Основа конфигурации источника данных с репликами для сервисов: основная база - spring.datasource,
+ * реплики - {@code <prefix>.urls} с теми же драйвером и учетной записью, если не заданы свои.
+ * Наследник задает префикс настроек и имя метрики отставания, а включение - через
+ * {@code @ConditionalOnProperty(name = "<prefix>.urls")}: без реплик источник данных создает Spring Boot.
+ * Проверка отставания регистрируется в планировщике, сам планировщик включает сервис.
+ */
+public abstract class ReplicaDataSourceConfigSupport {
+
+    private final String prefix;
+    private final String lagMetric;
+
+    protected ReplicaDataSourceConfigSupport(String prefix, String lagMetric) {
+        this.prefix = prefix;
+        this.lagMetric = lagMetric;
+    }
+
+    @Bean
+    public ReplicaProperties replicaProperties(Environment environment) {
+        return Binder.get(environment)
+                .bind(prefix, ReplicaProperties.class)
+                .orElseGet(ReplicaProperties::new);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             ReplicaProperties replicaProperties,
+                                                             MeterRegistry meterRegistry) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = replicaProperties.getUrls().stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> replica(properties, replicaProperties, url))
+                .toList();
+
+        String lagQuery = replicaProperties.getLagQuery();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                replicaProperties.getMaxLag(),
+                lagQuery == null || lagQuery.isBlank() ? ReplicaRoutingDataSource.POSTGRES_LAG_QUERY : lagQuery);
+        for (ReplicaRoutingDataSource.Replica replica : routing.getReplicas()) {
+            Gauge.builder(lagMetric, replica, ReplicaRoutingDataSource.Replica::getLagSeconds)
+                    .tag("replica", replica.getName())
+                    .description("Отставание реплики по последней проверке, NaN - реплика не ответила")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        return routing;
+    }
+
+    // недоступная реплика не должна надолго занимать поток планировщика проверкой отставания
+    private static DataSource replica(DataSourceProperties properties, ReplicaProperties replicaProperties,
+                                      String url) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(replicaProperties.getUsername() != null
+                        ? replicaProperties.getUsername() : properties.determineUsername())
+                .password(replicaProperties.getPassword() != null
+                        ? replicaProperties.getPassword() : properties.determinePassword())
+                .build();
+        dataSource.setConnectionTimeout(Math.max(250, replicaProperties.getMaxLag().toMillis()));
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public SchedulingConfigurer replicaLagCheck(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                ReplicaProperties replicaProperties) {
+        return registrar -> registrar.addFixedDelayTask(replicaRoutingDataSource::checkLag,
+                replicaProperties.getLagCheckInterval());
+    }
+}
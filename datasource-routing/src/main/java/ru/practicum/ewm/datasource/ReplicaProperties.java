@@ -0,0 +1,24 @@
+package ru.practicum.ewm.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки реплик под префиксом конкретного сервиса. Пустые username и password - те же, что у spring.datasource,
+ * пустой lagQuery - {@link ReplicaRoutingDataSource#POSTGRES_LAG_QUERY}.
+ */
+@Getter
+@Setter
+public class ReplicaProperties {
+
+    private List<String> urls = new ArrayList<>();
+    private String username;
+    private String password;
+    private Duration maxLag = Duration.ofSeconds(5);
+    private String lagQuery;
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+}
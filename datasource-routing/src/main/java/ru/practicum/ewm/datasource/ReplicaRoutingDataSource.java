@@ -0,0 +1,146 @@
+package ru.practicum.ewm.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Транзакции только для чтения уходят на реплики по кругу, остальное - в основную базу.
+ * Реплика, отставшая больше чем на maxLag или не ответившая на проверку, пропускается до следующей
+ * удачной проверки; без живых реплик чтение идет в основную базу.
+ * Ключ выбирается при получении соединения, поэтому источник нужно оборачивать в LazyConnectionDataSourceProxy:
+ * иначе JPA берет соединение раньше, чем транзакция помечается только для чтения.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    // на реплике PostgreSQL: 0, если все принятое WAL уже применено, иначе возраст последней примененной транзакции
+    public static final String POSTGRES_LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Duration maxLag;
+    private final String lagQuery;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, Duration maxLag,
+                                    String lagQuery) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + (i + 1), replicaDataSources.get(i));
+            replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        // до первой проверки реплики не используются
+        checkLag();
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    // вызывается планировщиком раз в lag-check-interval, см. ReplicaDataSourceConfigSupport
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            double lag;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                resultSet.next();
+                lag = resultSet.getDouble(1);
+            } catch (SQLException e) {
+                log.warn("Не удалось проверить отставание {}: {}", replica.name, e.getMessage());
+                lag = Double.NaN;
+            }
+
+            boolean healthy = !Double.isNaN(lag) && lag * 1000 <= maxLag.toMillis();
+            if (healthy != replica.healthy) {
+                log.info("{} {} чтения, отставание {} с", replica.name, healthy ? "принимает" : "исключена из", lag);
+            }
+            replica.lagSeconds = lag;
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public double getLagSeconds() {
+            return lagSeconds;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.ewm.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final DriverManagerDataSource primary = h2("primary");
+    private final DriverManagerDataSource replica = h2("replica");
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_lag (seconds DOUBLE PRECISION)");
+        new JdbcTemplate(replica).update("INSERT INTO replica_lag VALUES (0)");
+
+        routing = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5),
+                "SELECT seconds FROM replica_lag");
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(replica).execute("DROP TABLE replica_lag");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldGoToReplica() {
+        assertEquals("REPLICA", readOnly.execute(status -> database()));
+        assertEquals("PRIMARY", readWrite.execute(status -> database()));
+        assertEquals("PRIMARY", database());
+    }
+
+    @Test
+    void readOnlyTransaction_LaggingReplica_ShouldFallBackToPrimary() {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 30");
+        routing.checkLag();
+
+        assertEquals("PRIMARY", readOnly.execute(status -> database()));
+        assertFalse(routing.getReplicas().get(0).isHealthy());
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 1");
+        routing.checkLag();
+
+        assertEquals("REPLICA", readOnly.execute(status -> database()));
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
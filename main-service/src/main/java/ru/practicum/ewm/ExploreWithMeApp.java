@@ -2,8 +2,22 @@ package ru.practicum.ewm;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
-@SpringBootApplication
+// при stats-server.mode: embedded stats-server лежит в classpath в ru.practicum.ewm.stats и поднимается своим
+// контекстом со своей базой, поэтому сканируются, ищут сущности и репозитории только пакеты основного сервиса
+@SpringBootApplication(scanBasePackages = {
+        "ru.practicum.ewm.controller",
+        "ru.practicum.ewm.datasource",
+        "ru.practicum.ewm.exception",
+        "ru.practicum.ewm.filter",
+        "ru.practicum.ewm.mapper",
+        "ru.practicum.ewm.service"})
+@Import(ExploreWithMeConfig.class)
+@EntityScan("ru.practicum.ewm.model")
+@EnableJpaRepositories("ru.practicum.ewm.repository")
 public class ExploreWithMeApp {
     public static void main(String[] args) {
         SpringApplication.run(ExploreWithMeApp.class, args);
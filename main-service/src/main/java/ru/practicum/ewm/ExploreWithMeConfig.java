@@ -1,16 +1,86 @@
 package ru.practicum.ewm;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
+import ru.practicum.ewm.stats.client.HitShipperSettings;
 import ru.practicum.ewm.stats.client.StatsClient;
+import ru.practicum.ewm.stats.client.StatsClientSettings;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.client.StatsGatewayProvider;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class ExploreWithMeConfig {
 
     @Bean
-    public StatsClient statsClient(@Value("${stats-server.url}") String url) {
-        return new StatsClient(RestClient.builder().baseUrl(url).build());
+    @ConditionalOnProperty(name = "stats-server.mode", havingValue = "http", matchIfMissing = true)
+    public StatsGateway statsClient(
+            @Value("${stats-server.url}") String url,
+            @Value("${stats-server.hits.async:false}") boolean async,
+            @Value("${stats-server.hits.queue-capacity:10000}") int queueCapacity,
+            @Value("${stats-server.hits.batch-size:500}") int batchSize,
+            @Value("${stats-server.hits.flush-interval:1s}") Duration flushInterval,
+            @Value("${stats-server.hits.aggregation-window:1s}") Duration aggregationWindow,
+            @Value("${stats-server.hits.binary:false}") boolean binary,
+            @Value("${stats-server.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${stats-server.read-timeout:2s}") Duration readTimeout,
+            @Value("${stats-server.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${stats-server.breaker.open-duration:30s}") Duration openDuration,
+            @Value("${stats-server.breaker.last-known-capacity:10000}") int lastKnownCapacity,
+            @Value("${stats-server.stats.coalesce-tolerance:1s}") Duration coalesceTolerance,
+            @Value("${stats-server.stats.batch-window:0ms}") Duration batchWindow,
+            @Value("${stats-server.stats.batch-max-uris:100}") int batchMaxUris,
+            MeterRegistry meterRegistry
+    ) {
+        // без таймаутов медленный сервис статистики держит потоки запросов к событиям сколь угодно долго
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build());
+        requestFactory.setReadTimeout(readTimeout);
+        RestClient restClient = RestClient.builder()
+                .baseUrl(url)
+                .requestFactory(requestFactory)
+                .build();
+
+        return new StatsClient(
+                restClient,
+                StatsClientSettings.builder()
+                        .failureThreshold(failureThreshold)
+                        .openDuration(openDuration)
+                        .lastKnownCapacity(lastKnownCapacity)
+                        .coalesceTolerance(coalesceTolerance)
+                        .batchWindow(batchWindow)
+                        .batchMaxUris(batchMaxUris)
+                        .build(),
+                !async ? null : HitShipperSettings.builder()
+                        .queueCapacity(queueCapacity)
+                        .batchSize(batchSize)
+                        .flushInterval(flushInterval)
+                        .aggregationWindow(aggregationWindow)
+                        .binaryFormat(binary)
+                        .build(),
+                meterRegistry
+        );
+    }
+
+    // stats-server.embedded.* - настройки встроенного сервиса в ключах его application.yml
+    @Bean
+    @ConditionalOnProperty(name = "stats-server.mode", havingValue = "embedded")
+    public StatsGateway embeddedStatsGateway(Environment environment, MeterRegistry meterRegistry) {
+        Map<String, String> properties = Binder.get(environment)
+                .bind("stats-server.embedded", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+        return StatsGatewayProvider.find("embedded").create(properties, meterRegistry);
     }
 }
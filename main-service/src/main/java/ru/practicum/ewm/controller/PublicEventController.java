@@ -2,7 +2,6 @@ package ru.practicum.ewm.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -34,8 +33,7 @@ public class PublicEventController {
             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
             @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "0") int from,
-            @RequestParam(defaultValue = "10") int size,
-            HttpServletRequest request
+            @RequestParam(defaultValue = "10") int size
     ) {
         log.info("Получен запрос публичный на получение событий");
         return eventService.getEvents(
@@ -47,20 +45,17 @@ public class PublicEventController {
                 onlyAvailable,
                 sort,
                 from,
-                size,
-                request.getRequestURI(),
-                request.getRemoteAddr()
+                size
         );
     }
 
     @Operation(summary = "Получение подробной информации об опубликованном событии по его идентификатору")
     @GetMapping("/{id}")
     public EventPublicFullDto getEvent_1(
-            @PathVariable long id,
-            HttpServletRequest request
+            @PathVariable long id
     ) {
         log.info("Получен запрос публичный на получение события ид={}", id);
-        return eventService.getEvent(id, request.getRequestURI(), request.getRemoteAddr());
+        return eventService.getEvent(id);
     }
 
 }
@@ -0,0 +1,17 @@
+package ru.practicum.ewm.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// реплики - app.datasource.replica.urls, без них источник данных создает Spring Boot.
+// Планировщик нужен только для проверки отставания, поэтому включается здесь же
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.datasource.replica.urls")
+public class ReplicaDataSourceConfig extends ReplicaDataSourceConfigSupport {
+
+    public ReplicaDataSourceConfig() {
+        super("app.datasource.replica", "ewm.datasource.replica.lag");
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.ewm.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хиты статистики по GET-запросам к путям stats-server.capture.paths с ответом 2xx. Хит пишется отдельным потоком
+ * после отправки ответа, поэтому запрос не ждет сервис статистики и не держит в это время соединение с базой,
+ * а сервисы о статистике не знают. При переполненной очереди хиты отбрасываются.
+ */
+@Slf4j
+@Component
+public class HitCaptureFilter extends OncePerRequestFilter {
+
+    private final StatsGateway statsGateway;
+    private final String appName;
+    private final List<PathPattern> patterns;
+    private final Counter droppedCounter;
+    private final ThreadPoolExecutor executor;
+
+    public HitCaptureFilter(
+            StatsGateway statsGateway,
+            @Value("${app.name}") String appName,
+            @Value("${stats-server.capture.paths:/events,/events/*}") List<String> paths,
+            @Value("${stats-server.capture.queue-capacity:10000}") int queueCapacity,
+            MeterRegistry meterRegistry
+    ) {
+        this.statsGateway = statsGateway;
+        this.appName = appName;
+        this.patterns = paths.stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        this.droppedCounter = meterRegistry.counter("stats.capture.hits.dropped");
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hit-capture");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> droppedCounter.increment());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        RequestPath path = RequestPath.parse(request.getRequestURI(), request.getContextPath());
+        return patterns.stream().noneMatch(pattern -> pattern.matches(path.pathWithinApplication()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        LocalDateTime timestamp = LocalDateTime.now();
+        filterChain.doFilter(request, response);
+
+        // 404 и ошибки проверки параметров - не просмотры
+        if (response.getStatus() / 100 != 2) {
+            return;
+        }
+        response.flushBuffer();
+
+        EndpointHitDto hit = EndpointHitDto.builder()
+                .app(appName)
+                .uri(request.getRequestURI())
+                .ip(request.getRemoteAddr())
+                .timestamp(timestamp)
+                .build();
+        executor.execute(() -> statsGateway.addHit(hit));
+    }
+
+    // хиты из очереди дописываются до закрытия StatsGateway: фильтр от него зависит и закрывается раньше
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Не записано {} хитов при остановке", executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -10,7 +10,7 @@ public interface EventService {
 
     EventFullDto addEvent(long userId, EventCreateDto eventCreateDto);
 
-    EventPublicFullDto getEvent(long eventId, String uri, String ip);
+    EventPublicFullDto getEvent(long eventId);
 
     List<EventShortDto> getEvents(
             String text,
@@ -21,9 +21,7 @@ public interface EventService {
             Boolean onlyAvailable,
             String sort,
             int from,
-            int size,
-            String uri,
-            String ip
+            int size
     );
 
     EventFullDto getUserEvent(long userId, long eventId);
@@ -3,7 +3,6 @@ package ru.practicum.ewm.service;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -17,8 +16,7 @@ import ru.practicum.ewm.model.*;
 import ru.practicum.ewm.repository.CategoryRepository;
 import ru.practicum.ewm.repository.EventRepository;
 import ru.practicum.ewm.repository.UserRepository;
-import ru.practicum.ewm.stats.client.StatsClient;
-import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.client.StatsGateway;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
@@ -34,12 +32,10 @@ import java.util.stream.Collectors;
 @Service
 public class EventServiceImpl implements EventService {
 
-    @Value("${app.name}")
-    private String appName;
     private final LocalDateTime appCreationDate = LocalDateTime.parse("2025-11-30 12:00:00",
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-    private final StatsClient statsClient;
+    private final StatsGateway statsGateway;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
@@ -65,11 +61,10 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public EventPublicFullDto getEvent(long eventId, String uri, String ip) {
+    public EventPublicFullDto getEvent(long eventId) {
         Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
                 .orElseThrow(() -> new EntityNotFoundException(String.format("Указанное событие ид=%s не найдено", eventId)));
 
-        addHit(uri, ip);
         return eventMapper.toEventPublicFullDto(event, getEventView(eventId));
     }
 
@@ -83,9 +78,7 @@ public class EventServiceImpl implements EventService {
             Boolean onlyAvailable,
             String sort,
             int from,
-            int size,
-            String uri,
-            String ip
+            int size
     ) {
         if (rangeStart != null && rangeEnd != null && !rangeStart.isBefore(rangeEnd)) {
             throw new ValidationException("Дата старта фильтра должна быть раньше даты окончания фильтра");
@@ -102,8 +95,6 @@ public class EventServiceImpl implements EventService {
             throw new ValidationException("Указан некорректный вариант сортировки");
         }
 
-        addHit(uri, ip);
-
         rangeStart = rangeStart == null ? LocalDateTime.now() : rangeStart;
 
         List<Event> events = eventRepository.findEvents(
@@ -371,21 +362,10 @@ public class EventServiceImpl implements EventService {
         return event;
     }
 
-    private void addHit(String uri, String ip) {
-        statsClient.addHit(
-                EndpointHitDto.builder()
-                        .uri(uri)
-                        .app(appName)
-                        .ip(ip)
-                        .timestamp(LocalDateTime.now())
-                        .build()
-        );
-    }
-
     private long getEventView(long eventId) {
         List<String> uris = List.of("/events/" + eventId);
 
-        List<ViewStatsDto> stats = statsClient.getStats(
+        List<ViewStatsDto> stats = statsGateway.getStats(
                 appCreationDate,
                 LocalDateTime.now(),
                 uris,
@@ -400,7 +380,7 @@ public class EventServiceImpl implements EventService {
                 .map(id -> "/events/" + id)
                 .toList();
 
-        List<ViewStatsDto> stats = statsClient.getStats(
+        List<ViewStatsDto> stats = statsGateway.getStats(
                 appCreationDate,
                 LocalDateTime.now(),
                 uris,
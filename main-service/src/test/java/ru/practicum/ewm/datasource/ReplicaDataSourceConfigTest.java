@@ -0,0 +1,56 @@
+package ru.practicum.ewm.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaDataSourceConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(ReplicaDataSourceConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:h2:mem:ewm-primary;DB_CLOSE_DELAY=-1",
+                    "spring.datasource.username=sa");
+
+    @Test
+    void replicaUrls_ShouldRouteMainDataSourceThroughReplicas() {
+        contextRunner
+                .withPropertyValues(
+                        "app.datasource.replica.urls=jdbc:h2:mem:ewm-replica;DB_CLOSE_DELAY=-1",
+                        "app.datasource.replica.max-lag=PT2S",
+                        "app.datasource.replica.lag-query=SELECT 0")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context.getBean(DataSource.class)).isInstanceOf(LazyConnectionDataSourceProxy.class);
+                    assertThat(context.getBean(ReplicaProperties.class).getMaxLag()).isEqualTo(Duration.ofSeconds(2));
+                    assertThat(context).hasSingleBean(SchedulingConfigurer.class);
+
+                    ReplicaRoutingDataSource routing = context.getBean(ReplicaRoutingDataSource.class);
+                    assertThat(routing.getReplicas()).hasSize(1);
+                    assertThat(routing.getReplicas().getFirst().isHealthy()).isTrue();
+                    assertThat(context.getBean(MeterRegistry.class).get("ewm.datasource.replica.lag")
+                            .tag("replica", "replica-1").gauge().value()).isZero();
+                });
+    }
+
+    @Test
+    void noReplicaUrls_ShouldLeaveDataSourceToSpringBoot() {
+        contextRunner.run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(context).doesNotHaveBean(ReplicaRoutingDataSource.class);
+            assertThat(context.getBean(DataSource.class)).isNotInstanceOf(LazyConnectionDataSourceProxy.class);
+        });
+    }
+}
@@ -0,0 +1,190 @@
+package ru.practicum.ewm.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class HitCaptureFilterTest {
+
+    private final StubStatsGateway statsGateway = new StubStatsGateway();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HitCaptureFilter filter;
+    private MockMvc mockMvc;
+
+    private void setUp(int queueCapacity) {
+        filter = new HitCaptureFilter(statsGateway, "ewm-main", List.of("/events", "/events/*"), queueCapacity,
+                meterRegistry);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EventsController())
+                .addFilters(filter)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statsGateway.release.countDown();
+        filter.destroy();
+    }
+
+    @Test
+    void get_MatchingPaths_ShouldSendHit() throws Exception {
+        setUp(10);
+
+        mockMvc.perform(get("/events/1").with(request -> {
+            request.setRemoteAddr("10.0.0.1");
+            return request;
+        })).andExpect(status().isOk());
+        mockMvc.perform(get("/events")).andExpect(status().isOk());
+        filter.destroy();
+
+        assertEquals(List.of("/events/1", "/events"), statsGateway.uris());
+        EndpointHitDto hit = statsGateway.hits.getFirst();
+        assertEquals("ewm-main", hit.getApp());
+        assertEquals("10.0.0.1", hit.getIp());
+        assertTrue(hit.getTimestamp() != null && !hit.getTimestamp().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void get_OtherPaths_ShouldNotSendHit() throws Exception {
+        setUp(10);
+
+        mockMvc.perform(get("/categories")).andExpect(status().isOk());
+        mockMvc.perform(get("/events/1/requests")).andExpect(status().isOk());
+        filter.destroy();
+
+        assertEquals(List.of(), statsGateway.uris());
+    }
+
+    @Test
+    void request_NotGetOrNot2xx_ShouldNotSendHit() throws Exception {
+        setUp(10);
+
+        mockMvc.perform(post("/events")).andExpect(status().isCreated());
+        mockMvc.perform(get("/events/404")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/events/400")).andExpect(status().isBadRequest());
+        filter.destroy();
+
+        assertEquals(List.of(), statsGateway.uris());
+    }
+
+    @Test
+    void get_QueueFull_ShouldDropAndCountHit() throws Exception {
+        setUp(1);
+        statsGateway.blocked = true;
+
+        // первый хит занимает поток записи, второй ждет в очереди, третьему места нет
+        mockMvc.perform(get("/events/1")).andExpect(status().isOk());
+        assertTrue(statsGateway.entered.await(5, TimeUnit.SECONDS));
+        mockMvc.perform(get("/events/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/events/3")).andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.counter("stats.capture.hits.dropped").count());
+        statsGateway.release.countDown();
+        filter.destroy();
+        assertEquals(List.of("/events/1", "/events/2"), statsGateway.uris());
+    }
+
+    @Test
+    void destroy_HitsInQueue_ShouldSendThemBeforeReturning() throws Exception {
+        setUp(10);
+        statsGateway.blocked = true;
+        for (int i = 1; i <= 5; i++) {
+            mockMvc.perform(get("/events/" + i)).andExpect(status().isOk());
+        }
+        assertTrue(statsGateway.entered.await(5, TimeUnit.SECONDS));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            statsGateway.release.countDown();
+        }).start();
+        filter.destroy();
+
+        assertEquals(List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5"), statsGateway.uris());
+    }
+
+    @RestController
+    static class EventsController {
+
+        @GetMapping("/events")
+        public List<String> getEvents() {
+            return List.of();
+        }
+
+        @GetMapping("/events/{id}")
+        public ResponseEntity<String> getEvent(@PathVariable int id) {
+            return ResponseEntity.status(id >= 400 ? id : 200).body("event");
+        }
+
+        @GetMapping("/events/{id}/requests")
+        public List<String> getRequests(@PathVariable int id) {
+            return List.of();
+        }
+
+        @PostMapping("/events")
+        public ResponseEntity<String> addEvent() {
+            return ResponseEntity.status(201).body("event");
+        }
+
+        @GetMapping("/categories")
+        public List<String> getCategories() {
+            return List.of();
+        }
+    }
+
+    // пишет хиты в список; при blocked поток записи ждет release
+    static class StubStatsGateway implements StatsGateway {
+
+        final List<EndpointHitDto> hits = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean blocked;
+
+        @Override
+        public void addHit(EndpointHitDto endpointHitDto) {
+            entered.countDown();
+            if (blocked) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            hits.add(endpointHitDto);
+        }
+
+        @Override
+        public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                           Boolean unique) {
+            return List.of();
+        }
+
+        List<String> uris() {
+            return hits.stream().map(EndpointHitDto::getUri).toList();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность StatsService.addHit из нескольких потоков, с групповой записью и без нее.
+ * Хиты готовятся заранее, чтобы замер не включал их генерацию. По умолчанию H2 в памяти,
+ * PostgreSQL со всеми агрегатами: -p url=jdbc:postgresql://localhost:5432/stats -p user=... -p password=...
+ * (схема пересоздается). java -jar benchmarks.jar AddHit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AddHitBenchmark {
+
+    private static final int PREPARED = 1 << 16;
+
+    @Param({"true", "false"})
+    private boolean writeBehind;
+
+    @Param({"10000"})
+    private int uris;
+
+    @Param({"1.0"})
+    private double zipf;
+
+    @Param("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private EndpointHitDto[] hits;
+
+    @Setup
+    public void setUp() {
+        context = StatsServerContext.start(url, user, password, uris, Map.of(
+                "stats.ingest.write-behind.enabled", writeBehind,
+                "stats.ingest.limit.enabled", false));
+        statsService = context.getBean(StatsService.class);
+        hits = new SyntheticHits(StatsServerContext.SEED, uris, zipf, StatsServerContext.START,
+                StatsServerContext.PERIOD).next(PREPARED).toArray(EndpointHitDto[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EndpointHitDto addHit() {
+        EndpointHitDto hit = hits[ThreadLocalRandom.current().nextInt(PREPARED)];
+        return statsService.addHit(EndpointHitDto.builder()
+                .app(hit.getApp())
+                .uri(hit.getUri())
+                .ip(hit.getIp())
+                .timestamp(hit.getTimestamp())
+                .build());
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.mapper.EndpointHitMapper;
+import ru.practicum.ewm.stats.mapper.EndpointHitMapperImpl;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования EndpointHitMapper без базы: одиночный хит в обе стороны и пачка размера batch, как в POST /hits.
+ * java -jar benchmarks.jar EndpointHitMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndpointHitMapperBenchmark {
+
+    @Param({"1000"})
+    private int batch;
+
+    private final EndpointHitMapper mapper = new EndpointHitMapperImpl();
+
+    private EndpointHitDto dto;
+    private EndpointHit hit;
+    private List<EndpointHitDto> dtos;
+
+    @Setup
+    public void setUp() {
+        SyntheticHits synthetic = new SyntheticHits(StatsServerContext.SEED, 10_000, 1.0,
+                StatsServerContext.START, StatsServerContext.PERIOD);
+        dto = synthetic.next();
+        hit = mapper.toEndpointHit(synthetic.next());
+        dtos = synthetic.next(batch);
+    }
+
+    @Benchmark
+    public EndpointHit toEntity() {
+        return mapper.toEndpointHit(dto);
+    }
+
+    @Benchmark
+    public EndpointHitDto toDto() {
+        return mapper.toEndpointHitDto(hit);
+    }
+
+    @Benchmark
+    public List<EndpointHit> toEntities() {
+        return mapper.toEndpointHits(dtos);
+    }
+}
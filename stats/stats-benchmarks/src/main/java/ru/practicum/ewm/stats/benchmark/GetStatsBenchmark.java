@@ -0,0 +1,100 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Время StatsService.getStats за сутки и за весь период засева, уникальные и нет, по всем uri и по списку
+ * из withUris uri: горячих из начала распределения Zipf и холодных из хвоста поровну.
+ * Засев - hits хитов за 30 суток, миллион в H2 - около полутора минут. По умолчанию H2 в памяти,
+ * PostgreSQL со всеми агрегатами и скетчами: -p url=jdbc:postgresql://... (схема пересоздается).
+ * java -jar benchmarks.jar GetStats -p hits=5000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetStatsBenchmark {
+
+    @Param({"1000000"})
+    private int hits;
+
+    @Param({"10000"})
+    private int uris;
+
+    @Param({"1.0"})
+    private double zipf;
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    // 0 - без фильтра по uri
+    @Param({"0", "10"})
+    private int withUris;
+
+    @Param({"P1D", "P30D"})
+    private String range;
+
+    @Param("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private List<String> uriFilter;
+
+    @Setup
+    public void setUp() {
+        context = StatsServerContext.start(url, user, password, uris, Map.of());
+        statsService = context.getBean(StatsService.class);
+        StatsServerContext.seed(statsService, hits, uris, zipf);
+
+        // середина периода, чтобы сутки не упирались в его края
+        Duration length = Duration.parse(range);
+        end = StatsServerContext.START.plus(StatsServerContext.PERIOD.dividedBy(2)).plus(length.dividedBy(2));
+        start = end.minus(length);
+        uriFilter = withUris == 0 ? null : IntStream.range(0, withUris)
+                .map(i -> i % 2 == 0 ? i / 2 : uris - 1 - i / 2)
+                .mapToObj(SyntheticHits::uri)
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStats() {
+        return statsService.getStats(start, end, uriFilter, unique);
+    }
+}
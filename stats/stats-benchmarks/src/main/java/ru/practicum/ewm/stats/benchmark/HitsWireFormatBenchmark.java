@@ -0,0 +1,87 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.EndpointHitsBinaryCodec;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON против application/x-ewm-hits на пачке из BATCH хитов, как ее отправляет HitShipper:
+ * время на один хит для кодирования и разбора. Размер пачки от замера не зависит, байты на хит - в README модуля.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitsWireFormatBenchmark {
+
+    private static final int BATCH = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private List<EndpointHitDto> hits;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 12, 1, 12, 0);
+        hits = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            hits.add(new EndpointHitDto(null, "ewm-main-service", "/events/" + random.nextInt(200),
+                    "192.168." + random.nextInt(4) + "." + random.nextInt(256),
+                    start.plusNanos(i * 2_000_000L).withNano(0)));
+        }
+        json = objectMapper.writeValueAsBytes(hits);
+        binary = EndpointHitsBinaryCodec.encode(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] jsonEncode() throws Exception {
+        return objectMapper.writeValueAsBytes(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<EndpointHitDto> jsonDecode() throws Exception {
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] binaryEncode() {
+        return EndpointHitsBinaryCodec.encode(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<EndpointHitDto> binaryDecode() {
+        return EndpointHitsBinaryCodec.decode(binary, BATCH);
+    }
+}
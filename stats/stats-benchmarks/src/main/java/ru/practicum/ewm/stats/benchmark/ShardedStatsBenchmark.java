@@ -0,0 +1,175 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.shard.ShardedAggregator;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Точный подсчет за DAYS суток одним запросом против ShardedAggregator с отрезками по суткам
+ * и разным parallelism. Хиты лежат в H2 в памяти, другая база задается через -p url=... -p user=... -p password=...,
+ * таблица bench_hits создается заново. Рост с parallelism ограничен числом ядер: java -jar benchmarks.jar Sharded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedStatsBenchmark {
+
+    private static final int DAYS = 30;
+    private static final int HITS = 1_000_000;
+    private static final int URIS = 2000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(DAYS);
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    // H2 отдает повторный запрос с теми же параметрами из кеша, для замеров кеш выключен
+    @Param("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ShardedAggregator aggregator;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(user);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(parallelism + 1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        aggregator = new ShardedAggregator(new DataSourceTransactionManager(dataSource), true, Duration.ofDays(1),
+                parallelism);
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_hits");
+        jdbcTemplate.execute("""
+                CREATE TABLE bench_hits (
+                    app_id INT NOT NULL,
+                    uri_id INT NOT NULL,
+                    ip VARCHAR(45) NOT NULL,
+                    timestamp TIMESTAMP NOT NULL)
+                """);
+        Random random = new Random(42);
+        long rangeSeconds = Duration.between(START, END).toSeconds();
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < HITS; i++) {
+            batch.add(new Object[]{1, random.nextInt(URIS), "10." + random.nextInt(4) + "." + random.nextInt(256)
+                    + "." + random.nextInt(256), START.plusSeconds(random.nextLong(rangeSeconds))});
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO bench_hits VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("CREATE INDEX bench_hits_timestamp ON bench_hits (timestamp)");
+    }
+
+    @TearDown
+    public void tearDown() {
+        aggregator.close();
+        jdbcTemplate.execute("DROP TABLE bench_hits");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Map<Long, Long> notUniqueSingleQuery() {
+        return count(new TimeSlice(START, END, true));
+    }
+
+    @Benchmark
+    public Map<Long, Long> notUniqueSharded() {
+        return aggregator.aggregate(START, END, this::count, (first, second) -> {
+            second.forEach((key, hits) -> first.merge(key, hits, Long::sum));
+            return first;
+        });
+    }
+
+    @Benchmark
+    public Map<Long, Long> uniqueSingleQuery() {
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits
+                  FROM bench_hits
+                 WHERE timestamp BETWEEN ? AND ?
+                 GROUP BY app_id, uri_id
+                """, rs -> {
+            result.put(key(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"));
+        }, START, END);
+        return result;
+    }
+
+    @Benchmark
+    public Map<Long, Set<String>> uniqueSharded() {
+        return aggregator.aggregate(START, END, this::distinctIps, (first, second) -> {
+            second.forEach((key, ips) -> first.merge(key, ips, (a, b) -> {
+                a.addAll(b);
+                return a;
+            }));
+            return first;
+        });
+    }
+
+    private Map<Long, Long> count(TimeSlice slice) {
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT app_id, uri_id, COUNT(*) AS hits
+                  FROM bench_hits
+                 WHERE timestamp >= ? AND timestamp %s ?
+                 GROUP BY app_id, uri_id
+                """.formatted(slice.toInclusive() ? "<=" : "<"), rs -> {
+            result.put(key(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"));
+        }, slice.from(), slice.to());
+        return result;
+    }
+
+    private Map<Long, Set<String>> distinctIps(TimeSlice slice) {
+        Map<Long, Set<String>> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT DISTINCT app_id, uri_id, ip
+                  FROM bench_hits
+                 WHERE timestamp >= ? AND timestamp %s ?
+                """.formatted(slice.toInclusive() ? "<=" : "<"), rs -> {
+            result.computeIfAbsent(key(rs.getInt("app_id"), rs.getInt("uri_id")), k -> new HashSet<>())
+                    .add(rs.getString("ip"));
+        }, slice.from(), slice.to());
+        return result;
+    }
+
+    private static long key(int appId, int uriId) {
+        return (long) appId << 32 | uriId;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestClient;
+import ru.practicum.ewm.stats.client.StatsClient;
+import ru.practicum.ewm.stats.client.StatsClientSettings;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.embedded.InProcessStatsGateway;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вызов статистики так, как его делает основной сервис: StatsClient по HTTP к stats-server на локальном порту
+ * против InProcessStatsGateway в том же процессе. Разница - сеть, JSON и веб-слой stats-server.
+ * getStats - просмотры одного uri за сутки, как для страницы события; объединение одинаковых запросов
+ * в клиенте выключено. По умолчанию H2 в памяти, PostgreSQL: -p url=jdbc:postgresql://... (схема пересоздается).
+ * java -jar benchmarks.jar StatsGateway
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsGatewayBenchmark {
+
+    private static final int PREPARED = 1 << 16;
+
+    @Param({"http", "embedded"})
+    private String mode;
+
+    @Param({"100000"})
+    private int hits;
+
+    @Param({"10000"})
+    private int uris;
+
+    @Param({"1.0"})
+    private double zipf;
+
+    @Param("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private ConfigurableApplicationContext context;
+    private StatsGateway gateway;
+    private EndpointHitDto[] prepared;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() {
+        boolean http = "http".equals(mode);
+        context = StatsServerContext.start(url, user, password, uris, Map.of("stats.ingest.limit.enabled", false),
+                http ? WebApplicationType.SERVLET : WebApplicationType.NONE);
+        StatsServerContext.seed(context.getBean(StatsService.class), hits, uris, zipf);
+
+        if (http) {
+            gateway = new StatsClient(
+                    RestClient.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")),
+                    StatsClientSettings.builder()
+                            .coalesceTolerance(Duration.ZERO)
+                            .build(),
+                    null, null);
+        } else {
+            gateway = new InProcessStatsGateway(context);
+        }
+
+        prepared = new SyntheticHits(StatsServerContext.SEED + 1, uris, zipf, StatsServerContext.START,
+                StatsServerContext.PERIOD).next(PREPARED).toArray(EndpointHitDto[]::new);
+        end = StatsServerContext.START.plus(StatsServerContext.PERIOD.dividedBy(2));
+        start = end.minusDays(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateway.close();
+        context.close();
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStats() {
+        String uri = prepared[ThreadLocalRandom.current().nextInt(PREPARED)].getUri();
+        return gateway.getStats(start, end, List.of(uri), true);
+    }
+
+    @Benchmark
+    public void addHit() {
+        EndpointHitDto hit = prepared[ThreadLocalRandom.current().nextInt(PREPARED)];
+        gateway.addHit(EndpointHitDto.builder()
+                .app(hit.getApp())
+                .uri(hit.getUri())
+                .ip(hit.getIp())
+                .timestamp(hit.getTimestamp())
+                .build());
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.stats.StatsServiceApp;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * stats-server поверх application.yml, по умолчанию без веб-слоя. В H2 нет секционирования, ON CONFLICT DO UPDATE
+ * и массивов PostgreSQL, поэтому там выключено все, что пишет агрегаты, скетчи и битмапы, и /stats считается
+ * по сырым хитам; с url на PostgreSQL таблицы статистики пересоздаются (bench-pg-reset.sql, затем schema.sql),
+ * архив пишется во временный каталог, остальные настройки остаются как в application.yml.
+ * Кеш результатов выключен всегда, иначе замер получения статистики - это замер кеша.
+ */
+final class StatsServerContext {
+
+    static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 0, 0);
+    static final Duration PERIOD = Duration.ofDays(30);
+    static final long SEED = 42;
+
+    private static final int SEED_BATCH = 10_000;
+
+    private StatsServerContext() {
+    }
+
+    static ConfigurableApplicationContext start(String url, String user, String password, int uris,
+                                                Map<String, Object> properties) {
+        return start(url, user, password, uris, properties, WebApplicationType.NONE);
+    }
+
+    // с веб-слоем на свободном порту, порт - local.server.port в окружении контекста
+    static ConfigurableApplicationContext start(String url, String user, String password, int uris,
+                                                Map<String, Object> properties, WebApplicationType web) {
+        boolean h2 = url.startsWith("jdbc:h2:");
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("spring.datasource.url", url);
+        defaults.put("spring.datasource.username", user);
+        defaults.put("spring.datasource.password", password);
+        defaults.put("spring.jpa.show-sql", false);
+        // логгеры, включенные в application.yml поименно, перекрываются тоже поименно
+        for (String logger : new String[]{"root", "org.hibernate.SQL", "org.hibernate.orm.jdbc.bind",
+                "org.springframework.web", "org.springframework.web.servlet.DispatcherServlet"}) {
+            defaults.put("logging.level." + logger, "WARN");
+        }
+        defaults.put("stats.cache.enabled", false);
+        defaults.put("server.port", 0);
+        if (h2) {
+            defaults.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            defaults.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+            defaults.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+            defaults.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            defaults.put("spring.jpa.defer-datasource-initialization", true);
+            defaults.put("spring.sql.init.schema-locations", "classpath:bench-h2-schema.sql");
+            for (String feature : new String[]{"rollup", "hll", "bitmap", "top", "archive", "partitioning", "memory",
+                    "sharding"}) {
+                defaults.put("stats." + feature + ".enabled", false);
+            }
+        } else {
+            defaults.put("spring.sql.init.schema-locations", "classpath:bench-pg-reset.sql,classpath:schema.sql");
+            // сегменты прошлого прогона без строк в реестре восстановились бы при запуске
+            defaults.put("stats.archive.dir", temporaryDirectory("bench-archive"));
+        }
+        defaults.putAll(properties);
+
+        // аргументами командной строки, а не properties(): те ниже application.yml и не перекрыли бы его datasource
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(StatsServiceApp.class)
+                .web(web)
+                .run(defaults.entrySet().stream()
+                        .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new));
+        if (h2) {
+            fillDictionary(context, uris);
+        }
+        return context;
+    }
+
+    private static Path temporaryDirectory(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // HitDictionary добавляет новые имена через ON CONFLICT (name), которого нет в H2; имена, уже найденные
+    // в таблицах словаря, он берет из памяти и не вставляет
+    private static void fillDictionary(ConfigurableApplicationContext context, int uris) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        HitDictionary hitDictionary = context.getBean(HitDictionary.class);
+
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES (?)", SyntheticHits.APP);
+        jdbcTemplate.batchUpdate("INSERT INTO uris (name) VALUES (?)", IntStream.range(0, uris)
+                .mapToObj(rank -> new Object[]{SyntheticHits.uri(rank)})
+                .toList());
+        hitDictionary.findAppId(SyntheticHits.APP);
+        IntStream.range(0, uris).forEach(rank -> hitDictionary.findUriId(SyntheticHits.uri(rank)));
+    }
+
+    // hits хитов за PERIOD с uri по Zipf, пачками через StatsService.addHits
+    static void seed(StatsService statsService, int hits, int uris, double zipfExponent) {
+        SyntheticHits synthetic = new SyntheticHits(SEED, uris, zipfExponent, START, PERIOD);
+        for (int done = 0; done < hits; done += SEED_BATCH) {
+            statsService.addHits(synthetic.next(Math.min(SEED_BATCH, hits - done)));
+        }
+    }
+}
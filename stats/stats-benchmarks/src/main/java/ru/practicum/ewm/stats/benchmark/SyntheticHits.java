@@ -0,0 +1,51 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Воспроизводимые хиты: uri по Zipf, ip из /16 на 65536 адресов, время равномерно в [start, start + period).
+ * При одном seed последовательность одна и та же, поэтому замеры до и после изменения сравнимы.
+ */
+final class SyntheticHits {
+
+    static final String APP = "ewm-main";
+
+    private final Random random;
+    private final ZipfDistribution uris;
+    private final LocalDateTime start;
+    private final long periodSeconds;
+
+    SyntheticHits(long seed, int uriCount, double zipfExponent, LocalDateTime start, Duration period) {
+        this.random = new Random(seed);
+        this.uris = new ZipfDistribution(uriCount, zipfExponent);
+        this.start = start;
+        this.periodSeconds = period.toSeconds();
+    }
+
+    static String uri(int rank) {
+        return "/events/" + rank;
+    }
+
+    EndpointHitDto next() {
+        return EndpointHitDto.builder()
+                .app(APP)
+                .uri(uri(uris.sample(random)))
+                .ip("10.1." + random.nextInt(256) + "." + random.nextInt(256))
+                .timestamp(start.plusSeconds(random.nextLong(periodSeconds)))
+                .build();
+    }
+
+    List<EndpointHitDto> next(int count) {
+        List<EndpointHitDto> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(next());
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// ранг k из 1..n с вероятностью, пропорциональной 1/k^exponent: немного горячих uri и длинный хвост
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    // ранг с нуля
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,13 @@
+-- hits и hit_seq создает Hibernate, здесь словари и индексы, которые в PostgreSQL создает schema.sql
+CREATE TABLE IF NOT EXISTS apps (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE INDEX IF NOT EXISTS hits_timestamp_idx ON hits (timestamp);
+CREATE INDEX IF NOT EXISTS hits_uri_timestamp_idx ON hits (uri_id, timestamp);
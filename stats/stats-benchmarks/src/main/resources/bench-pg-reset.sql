@@ -0,0 +1,10 @@
+-- замеры на PostgreSQL начинаются с пустой базы: schema.sql таблицы только создает и данные сохраняет
+DROP TABLE IF EXISTS hits;
+DROP SEQUENCE IF EXISTS hit_seq;
+DROP TABLE IF EXISTS hits_rollup_minute;
+DROP TABLE IF EXISTS hits_rollup_hour;
+DROP TABLE IF EXISTS hits_hll;
+DROP TABLE IF EXISTS hits_ip_bitmap;
+DROP TABLE IF EXISTS hits_archive_segments;
+DROP TABLE IF EXISTS apps;
+DROP TABLE IF EXISTS uris;
@@ -0,0 +1,31 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+@Getter
+@AllArgsConstructor
+public class AggregatedHit {
+
+    private final EndpointHitDto hit;
+    private int count;
+
+    void increment() {
+        count++;
+    }
+
+    // запись для POST /hits: одинаковые хиты окна - одной записью со счетчиком
+    public EndpointHitDto toDto() {
+        if (count == 1) {
+            return hit;
+        }
+        return EndpointHitDto.builder()
+                .app(hit.getApp())
+                .uri(hit.getUri())
+                .ip(hit.getIp())
+                .timestamp(hit.getTimestamp())
+                .count((long) count)
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Размыкатель вызовов сервиса статистики. После failureThreshold отказов подряд размыкается на openDuration,
+ * сервер может попросить паузу дольше через Retry-After. Затем пропускает один пробный вызов: успех замыкает,
+ * отказ снова размыкает. Разомкнутый размыкатель отказывает сразу, не обращаясь к сервису.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean probing;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+
+        if (meterRegistry != null) {
+            Gauge.builder("stats.client.breaker.state", this, breaker -> breaker.getState().ordinal())
+                    .description("0 - замкнут, 1 - разомкнут, 2 - пробный вызов")
+                    .register(meterRegistry);
+            for (State to : State.values()) {
+                transitions.put(to, Counter.builder("stats.client.breaker.transitions")
+                        .tag("to", to.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            rejected = meterRegistry.counter("stats.client.breaker.rejected");
+        } else {
+            rejected = null;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    // можно ли сейчас обращаться к сервису, без захвата пробного вызова
+    public synchronized boolean isAvailable() {
+        return getState() != State.OPEN && !probing;
+    }
+
+    // false - вызов не выполнять; после true обязателен onSuccess или onFailure
+    public synchronized boolean tryAcquire() {
+        State current = getState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && !probing) {
+            transition(State.HALF_OPEN);
+            probing = true;
+            return true;
+        }
+        if (rejected != null) {
+            rejected.increment();
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        probing = false;
+        failures = 0;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        probing = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            open(openDuration);
+        }
+    }
+
+    // сервер перегружен и сам назвал паузу - размыкаем сразу, не дожидаясь порога
+    public synchronized void onOverload(Duration retryAfter) {
+        probing = false;
+        open(retryAfter.compareTo(openDuration) > 0 ? retryAfter : openDuration);
+    }
+
+    private void open(Duration duration) {
+        failures = 0;
+        openUntil = System.nanoTime() + duration.toNanos();
+        if (state != State.OPEN) {
+            log.warn("Сервис статистики недоступен, обращения приостановлены на {}", duration);
+        }
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        if (state == to) {
+            return;
+        }
+        state = to;
+        Counter counter = transitions.get(to);
+        if (counter != null) {
+            counter.increment();
+        }
+        if (to == State.CLOSED) {
+            log.info("Сервис статистики снова доступен");
+        }
+    }
+}
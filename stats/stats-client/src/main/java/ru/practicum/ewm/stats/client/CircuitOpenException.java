@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.client;
+
+// вызов не выполнялся: размыкатель разомкнут или занят пробным вызовом
+public class CircuitOpenException extends StatsUnavailableException {
+
+    public CircuitOpenException() {
+        super("размыкатель разомкнут", null);
+    }
+}
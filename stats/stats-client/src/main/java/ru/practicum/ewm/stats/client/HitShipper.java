@@ -0,0 +1,211 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронная отправка хитов: запрос кладет хит в ограниченную очередь и сразу возвращается,
+ * фоновый поток отправляет накопленное пачками по размеру или по таймеру.
+ * При переполнении очереди хит отбрасывается и учитывается в счетчике потерь.
+ * Пока available ложно (сервис недоступен), поток не отправляет, и хиты копятся в очереди.
+ */
+@Slf4j
+public class HitShipper implements AutoCloseable {
+
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final HitShipperSettings settings;
+    private final Consumer<List<AggregatedHit>> sender;
+    private final BooleanSupplier available;
+    private final Thread flusher;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong shipped = new AtomicLong();
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+    private volatile boolean running = true;
+
+    public HitShipper(HitShipperSettings settings, Consumer<List<AggregatedHit>> sender, MeterRegistry meterRegistry) {
+        this(settings, sender, () -> true, meterRegistry);
+    }
+
+    public HitShipper(HitShipperSettings settings, Consumer<List<AggregatedHit>> sender, BooleanSupplier available,
+                      MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.sender = sender;
+        this.available = available;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+
+        if (meterRegistry != null) {
+            Gauge.builder("stats.client.hits.queue.depth", queue, BlockingQueue::size)
+                    .register(meterRegistry);
+            FunctionCounter.builder("stats.client.hits.shipped", shipped, AtomicLong::get)
+                    .register(meterRegistry);
+            droppedCounter = meterRegistry.counter("stats.client.hits.dropped");
+            failedCounter = meterRegistry.counter("stats.client.hits.failed");
+            flushTimer = meterRegistry.timer("stats.client.hits.flush");
+        } else {
+            droppedCounter = null;
+            failedCounter = null;
+            flushTimer = null;
+        }
+
+        flusher = new Thread(this::run, "stats-hit-shipper");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public boolean offer(EndpointHitDto hit) {
+        if (!running || !queue.offer(hit)) {
+            dropped.incrementAndGet();
+            if (droppedCounter != null) {
+                droppedCounter.increment();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getShipped() {
+        return shipped.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(settings.getFlushInterval().multipliedBy(5).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<EndpointHitDto> batch = new ArrayList<>(settings.getBatchSize());
+        while (running) {
+            try {
+                if (available.getAsBoolean()) {
+                    collect(batch);
+                    flush(batch);
+                } else {
+                    Thread.sleep(settings.getFlushInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+        // при остановке дописываем то, что успели принять; следующей попытки не будет,
+        // поэтому при разомкнутом размыкателе остаток учитывается как неотправленный
+        do {
+            queue.drainTo(batch, settings.getBatchSize() - batch.size());
+        } while (flush(batch) && !queue.isEmpty());
+        int lost = batch.size() + queue.size();
+        if (lost > 0) {
+            log.warn("Сервис статистики недоступен при остановке, не отправлено {} хитов", lost);
+            if (failedCounter != null) {
+                failedCounter.increment(lost);
+            }
+            batch.clear();
+            queue.clear();
+        }
+    }
+
+    private void collect(List<EndpointHitDto> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + settings.getFlushInterval().toNanos();
+        while (batch.size() < settings.getBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            EndpointHitDto hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (hit == null) {
+                return;
+            }
+            batch.add(hit);
+            queue.drainTo(batch, settings.getBatchSize() - batch.size());
+        }
+    }
+
+    // false - пачка не уходила из-за разомкнутого размыкателя и осталась в batch
+    private boolean flush(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            sender.accept(aggregate(batch, settings.getAggregationWindow()));
+            shipped.addAndGet(batch.size());
+        } catch (CircuitOpenException e) {
+            // пачка не уходила, остается до следующей попытки
+            return false;
+        } catch (Exception e) {
+            log.warn("Не удалось отправить пачку из {} хитов в сервис статистики: {}", batch.size(), e.getMessage());
+            if (failedCounter != null) {
+                failedCounter.increment(batch.size());
+            }
+        }
+        if (flushTimer != null) {
+            flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+        batch.clear();
+        return true;
+    }
+
+    static List<AggregatedHit> aggregate(List<EndpointHitDto> hits, Duration window) {
+        List<AggregatedHit> result = new ArrayList<>(hits.size());
+        if (window.isZero() || window.isNegative()) {
+            hits.forEach(hit -> result.add(new AggregatedHit(hit, 1)));
+            return result;
+        }
+
+        Map<HitKey, AggregatedHit> open = new HashMap<>();
+        for (EndpointHitDto hit : hits) {
+            HitKey key = new HitKey(hit.getApp(), hit.getUri(), hit.getIp());
+            AggregatedHit current = open.get(key);
+            if (current != null && isWithinWindow(current.getHit(), hit, window)) {
+                current.increment();
+            } else {
+                AggregatedHit aggregated = new AggregatedHit(hit, 1);
+                open.put(key, aggregated);
+                result.add(aggregated);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isWithinWindow(EndpointHitDto first, EndpointHitDto next, Duration window) {
+        if (first.getTimestamp() == null || next.getTimestamp() == null) {
+            return Objects.equals(first.getTimestamp(), next.getTimestamp());
+        }
+        return !next.getTimestamp().isAfter(first.getTimestamp().plus(window));
+    }
+
+    private record HitKey(String app, String uri, String ip) {
+    }
+}
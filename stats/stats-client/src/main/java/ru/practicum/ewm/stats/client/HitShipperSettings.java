@@ -0,0 +1,31 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@Builder
+@ToString
+public class HitShipperSettings {
+
+    @Builder.Default
+    private int queueCapacity = 10_000;
+
+    @Builder.Default
+    private int batchSize = 500;
+
+    @Builder.Default
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    // одинаковые (app, uri, ip) в пределах окна схлопываются в одну запись со счетчиком,
+    // нулевое окно отключает предагрегацию
+    @Builder.Default
+    private Duration aggregationWindow = Duration.ofSeconds(1);
+
+    // пачки в двоичном формате application/x-ewm-hits, сервер без его поддержки получает JSON
+    @Builder.Default
+    private boolean binaryFormat = false;
+}
@@ -0,0 +1,61 @@
+package ru.practicum.ewm.stats.client;
+
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Последние полученные просмотры по uri для ответа при недоступном сервисе. Интервал запроса не учитывается:
+ * main-service спрашивает всегда с даты создания приложения по текущий момент, и последний ответ - лучшая
+ * оценка. Запрошенный uri без строк в ответе запоминается как ноль. Вытесняются давно не запрошенные uri.
+ */
+class LastKnownViews {
+
+    private final Map<Key, List<ViewStatsDto>> views;
+
+    LastKnownViews(int capacity) {
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<ViewStatsDto>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // запросы без списка uri не запоминаются: ответ на них не сопоставить с отдельными uri запроса
+    synchronized void remember(List<String> uris, boolean unique, List<ViewStatsDto> stats) {
+        if (uris == null || uris.isEmpty() || stats == null) {
+            return;
+        }
+        Map<Key, List<ViewStatsDto>> received = new LinkedHashMap<>();
+        uris.forEach(uri -> received.put(new Key(uri, unique), new ArrayList<>()));
+        for (ViewStatsDto viewStats : stats) {
+            List<ViewStatsDto> rows = received.get(new Key(viewStats.getUri(), unique));
+            if (rows != null) {
+                rows.add(viewStats);
+            }
+        }
+        views.putAll(received);
+    }
+
+    synchronized List<ViewStatsDto> get(List<String> uris, boolean unique) {
+        if (uris == null) {
+            return List.of();
+        }
+        List<ViewStatsDto> result = new ArrayList<>();
+        for (String uri : uris) {
+            List<ViewStatsDto> rows = views.get(new Key(uri, unique));
+            if (rows != null) {
+                result.addAll(rows);
+            }
+        }
+        result.sort((first, second) -> Long.compare(second.getHits(), first.getHits()));
+        return result;
+    }
+
+    private record Key(String uri, boolean unique) {
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.ewm.stats.client;
+
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Одинаковые одновременные запросы статистики делят один HTTP-вызов. Конец интервала у вызывающих обычно now()
+ * и не совпадает до наносекунд, поэтому запрос присоединяется к выполняющемуся с тем же началом, uri и unique,
+ * если конец того не раньше своего больше чем на tolerance. Результат общий и неизменяемый.
+ */
+class SingleFlight {
+
+    private final Duration tolerance;
+    private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    SingleFlight(Duration tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    // joined вызывается, если запрос присоединился к чужому вызову
+    List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                           Supplier<List<ViewStatsDto>> fetch, Runnable joined) {
+        Key key = new Key(start, uris == null ? List.of() : List.copyOf(uris), unique);
+        InFlight mine = new InFlight(end, new CompletableFuture<>());
+        InFlight current = inFlight.compute(key, (k, existing) ->
+                existing != null && !existing.end().isBefore(end.minus(tolerance)) ? existing : mine);
+        if (current != mine) {
+            joined.run();
+            return await(current.result());
+        }
+
+        try {
+            mine.result().complete(List.copyOf(fetch.get()));
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return await(mine.result());
+    }
+
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(LocalDateTime start, List<String> uris, boolean unique) {
+    }
+
+    private record InFlight(LocalDateTime end, CompletableFuture<List<ViewStatsDto>> result) {
+    }
+}
@@ -1,29 +1,104 @@
 package ru.practicum.ewm.stats.client;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.EndpointHitsBinaryCodec;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 
+/**
+ * Клиент сервиса статистики. Вызовы идут через размыкатель: пока сервис недоступен, getStats отвечает последними
+ * известными просмотрами тех же uri (без них - пустым списком, то есть нулем просмотров), одиночные хиты
+ * отбрасываются, а при асинхронной отправке копятся в очереди отправителя до ее заполнения.
+ * Ответ с Retry-After (429, 503) размыкает сразу на названное сервером время.
+ * Одинаковые одновременные запросы getStats делят один вызов, запросы по одному uri могут собираться
+ * в микропакеты (см. StatsClientSettings).
+ */
+@Slf4j
+public class StatsClient implements StatsGateway {
+    private static final MediaType BINARY_HITS = MediaType.parseMediaType(EndpointHitsBinaryCodec.MEDIA_TYPE);
 
-public class StatsClient {
     private final RestClient restClient;
+    private final HitShipper hitShipper;
+    private final CircuitBreaker circuitBreaker;
+    private final LastKnownViews lastKnownViews;
+    private final SingleFlight singleFlight;
+    private final StatsLookupBatcher batcher;
+    private final Counter fallbackCounter;
+    private final Counter coalescedCounter;
+    private final Counter batchedCounter;
+    private final Counter droppedCounter;
+    private volatile boolean binaryFormat;
 
     public StatsClient(RestClient restClient) {
+        this(restClient, StatsClientSettings.builder().build(), null, null);
+    }
+
+    public StatsClient(RestClient restClient, HitShipperSettings hitShipperSettings, MeterRegistry meterRegistry) {
+        this(restClient, StatsClientSettings.builder().build(), hitShipperSettings, meterRegistry);
+    }
+
+    // hitShipperSettings == null - хиты отправляются синхронно по одному
+    public StatsClient(RestClient restClient, StatsClientSettings settings, HitShipperSettings hitShipperSettings,
+                       MeterRegistry meterRegistry) {
         this.restClient = restClient;
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration(),
+                meterRegistry);
+        this.lastKnownViews = new LastKnownViews(settings.getLastKnownCapacity());
+        this.singleFlight = settings.getCoalesceTolerance().isZero() ? null
+                : new SingleFlight(settings.getCoalesceTolerance());
+        this.batcher = settings.getBatchWindow().isZero() ? null
+                : new StatsLookupBatcher(settings.getBatchWindow(), settings.getBatchMaxUris());
+        this.coalescedCounter = meterRegistry == null ? null : meterRegistry.counter("stats.client.stats.coalesced");
+        this.batchedCounter = meterRegistry == null ? null : meterRegistry.counter("stats.client.stats.batched");
+        this.fallbackCounter = meterRegistry == null ? null : meterRegistry.counter("stats.client.stats.fallback");
+        this.droppedCounter = meterRegistry == null ? null : meterRegistry.counter("stats.client.hits.dropped");
+        if (hitShipperSettings != null) {
+            this.binaryFormat = hitShipperSettings.isBinaryFormat();
+            this.hitShipper = new HitShipper(hitShipperSettings, hits -> call(() -> sendHits(hits)),
+                    circuitBreaker::isAvailable, meterRegistry);
+        } else {
+            this.hitShipper = null;
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
     }
 
+    @Override
     public void addHit(EndpointHitDto endpointHitDto) {
-        restClient.post().uri("/hit")
-                .body(endpointHitDto)
-                .retrieve()
-                .toBodilessEntity();
+        if (hitShipper != null) {
+            hitShipper.offer(endpointHitDto);
+            return;
+        }
+
+        try {
+            call(() -> sendHit(endpointHitDto));
+        } catch (StatsUnavailableException e) {
+            if (droppedCounter != null) {
+                droppedCounter.increment();
+            }
+            log.debug("Хит не отправлен: {}", e.getMessage());
+        }
     }
 
+    @Override
     public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
         if (start == null || end == null) {
             throw new IllegalArgumentException("Даты начала и окончания должны быть заданы");
@@ -33,22 +108,138 @@ public class StatsClient {
             throw new IllegalArgumentException("Даты окончания должна быть позже даты начала");
         }
 
+        boolean isUnique = Boolean.TRUE.equals(unique);
+        if (batcher != null && uris != null && uris.size() == 1) {
+            return batcher.get(start, end, uris.getFirst(), isUnique,
+                    (batchUris, batchEnd) -> fetchStats(start, batchEnd, batchUris, isUnique),
+                    () -> increment(batchedCounter));
+        }
+        if (singleFlight != null) {
+            return singleFlight.get(start, end, uris, isUnique, () -> fetchStats(start, end, uris, isUnique),
+                    () -> increment(coalescedCounter));
+        }
+        return fetchStats(start, end, uris, isUnique);
+    }
+
+    private List<ViewStatsDto> fetchStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
         UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder
                 .fromPath("/stats")
                 .queryParam("start", start)
-                .queryParam("end", end);
+                .queryParam("end", end)
+                .queryParam("unique", unique);
 
         if (uris != null && !uris.isEmpty()) {
             uriComponentsBuilder.queryParam("uris", uris);
         }
 
-        if (unique != null) {
-            uriComponentsBuilder.queryParam("unique", unique);
+        try {
+            List<ViewStatsDto> stats = call(() -> restClient.get()
+                    .uri(uriComponentsBuilder.encode().toUriString())
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<List<ViewStatsDto>>() {}));
+            lastKnownViews.remember(uris, unique, stats);
+            return stats;
+        } catch (StatsUnavailableException e) {
+            if (fallbackCounter != null) {
+                fallbackCounter.increment();
+            }
+            log.debug("Просмотры из последних известных: {}", e.getMessage());
+            return lastKnownViews.get(uris, unique);
         }
+    }
 
-        return restClient.get()
-                .uri(uriComponentsBuilder.encode().toUriString())
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (hitShipper != null) {
+            hitShipper.close();
+        }
+    }
+
+    private void call(Runnable request) {
+        call(() -> {
+            request.run();
+            return null;
+        });
+    }
+
+    // отказы сервиса - StatsUnavailableException, ошибки самого запроса (4xx, кроме 429) пробрасываются как есть
+    private <T> T call(Supplier<T> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException();
+        }
+        try {
+            T result = request.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (RestClientResponseException e) {
+            Duration retryAfter = retryAfter(e);
+            if (retryAfter != null) {
+                circuitBreaker.onOverload(retryAfter);
+            } else if (e.getStatusCode().is5xxServerError()
+                    || e.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+                throw e;
+            }
+            throw new StatsUnavailableException(e.getMessage(), e);
+        } catch (ResourceAccessException e) {
+            circuitBreaker.onFailure();
+            throw new StatsUnavailableException(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        }
+    }
+
+    private static Duration retryAfter(RestClientResponseException e) {
+        String header = e.getResponseHeaders() == null ? null
+                : e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(header.trim()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private void sendHit(EndpointHitDto endpointHitDto) {
+        restClient.post().uri("/hit")
+                .body(endpointHitDto)
                 .retrieve()
-                .body(new ParameterizedTypeReference<List<ViewStatsDto>>() {});
+                .toBodilessEntity();
+    }
+
+    private void sendHits(List<AggregatedHit> hits) {
+        List<EndpointHitDto> body = hits.stream()
+                .map(AggregatedHit::toDto)
+                .toList();
+
+        if (binaryFormat) {
+            try {
+                restClient.post().uri("/hits")
+                        .contentType(BINARY_HITS)
+                        .body(EndpointHitsBinaryCodec.encode(body))
+                        .retrieve()
+                        .toBodilessEntity();
+                return;
+            } catch (HttpClientErrorException.UnsupportedMediaType e) {
+                log.warn("Сервис статистики не принимает {}, пачки хитов дальше отправляются в JSON", BINARY_HITS);
+                binaryFormat = false;
+            }
+        }
+
+        restClient.post().uri("/hits")
+                .body(body)
+                .retrieve()
+                .toBodilessEntity();
     }
 }
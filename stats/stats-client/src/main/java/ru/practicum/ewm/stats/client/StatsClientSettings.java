@@ -0,0 +1,36 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@Builder
+@ToString
+public class StatsClientSettings {
+
+    // отказов подряд (ошибка соединения, таймаут, 5xx, 429), после которых размыкатель размыкается
+    @Builder.Default
+    private int failureThreshold = 5;
+
+    @Builder.Default
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    // сколько uri помнить для ответа getStats при недоступном сервисе
+    @Builder.Default
+    private int lastKnownCapacity = 10_000;
+
+    // одновременные запросы с тем же началом, uri и unique и концом в пределах допуска делят один вызов,
+    // нулевой допуск отключает объединение
+    @Builder.Default
+    private Duration coalesceTolerance = Duration.ofSeconds(1);
+
+    // сколько ждать другие запросы по одному uri, чтобы спросить их одним вызовом, ноль - без пакетов
+    @Builder.Default
+    private Duration batchWindow = Duration.ZERO;
+
+    @Builder.Default
+    private int batchMaxUris = 100;
+}
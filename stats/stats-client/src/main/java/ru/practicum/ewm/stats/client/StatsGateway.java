@@ -0,0 +1,23 @@
+package ru.practicum.ewm.stats.client;
+
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Доступ к статистике для основного сервиса. StatsClient ходит в отдельный сервис по HTTP, реализации
+ * из StatsGatewayProvider могут обращаться к движку статистики в том же процессе.
+ */
+public interface StatsGateway extends AutoCloseable {
+
+    // не бросает исключений: статистика не должна ронять страницу, ради которой пишется хит
+    void addHit(EndpointHitDto endpointHitDto);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+
+    @Override
+    default void close() {
+    }
+}
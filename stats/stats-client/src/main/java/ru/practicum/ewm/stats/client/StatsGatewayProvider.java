@@ -0,0 +1,28 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Реализация StatsGateway из другого модуля, находится через ServiceLoader по META-INF/services,
+ * поэтому модулю клиента не нужно зависеть от нее при сборке.
+ */
+public interface StatsGatewayProvider {
+
+    // значение stats-server.mode, при котором выбирается эта реализация
+    String getMode();
+
+    // properties - настройки реализации как есть, meterRegistry может быть null
+    StatsGateway create(Map<String, String> properties, MeterRegistry meterRegistry);
+
+    static StatsGatewayProvider find(String mode) {
+        return ServiceLoader.load(StatsGatewayProvider.class).stream()
+                .map(ServiceLoader.Provider::get)
+                .filter(provider -> provider.getMode().equals(mode))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Нет реализации StatsGateway для режима " + mode
+                        + ", модуль с ней должен быть в classpath"));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.ewm.stats.client;
+
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Микропакеты: одновременные запросы по одному uri с тем же началом и unique собираются в один запрос /stats
+ * со списком uri. Первый запрос пакета ждет window или до maxUris uri, выполняет общий вызов по самому позднему
+ * концу из собранных, и каждый получает строки своего uri.
+ */
+class StatsLookupBatcher {
+
+    private final long windowNanos;
+    private final int maxUris;
+    private final Map<Key, Batch> open = new ConcurrentHashMap<>();
+
+    StatsLookupBatcher(Duration window, int maxUris) {
+        this.windowNanos = window.toNanos();
+        this.maxUris = maxUris;
+    }
+
+    // fetch(uri пакета, конец интервала); joined вызывается, если запрос ушел в чужом пакете
+    List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, String uri, boolean unique,
+                           BiFunction<List<String>, LocalDateTime, List<ViewStatsDto>> fetch, Runnable joined) {
+        Key key = new Key(start, unique);
+        Batch batch;
+        Batch created;
+        do {
+            created = new Batch();
+            Batch fresh = created;
+            batch = open.merge(key, created, (existing, ignored) -> existing.isAccepting() ? existing : fresh);
+        } while (!batch.add(uri, end));
+
+        if (batch != created) {
+            joined.run();
+        } else {
+            batch.awaitFill();
+            open.remove(key, batch);
+            batch.execute(fetch);
+        }
+
+        List<ViewStatsDto> rows = new ArrayList<>();
+        for (ViewStatsDto viewStats : SingleFlight.await(batch.result)) {
+            if (uri.equals(viewStats.getUri())) {
+                rows.add(viewStats);
+            }
+        }
+        return rows;
+    }
+
+    private record Key(LocalDateTime start, boolean unique) {
+    }
+
+    private class Batch {
+
+        private final Set<String> uris = new LinkedHashSet<>();
+        private final CompletableFuture<List<ViewStatsDto>> result = new CompletableFuture<>();
+        private LocalDateTime end;
+        private boolean sealed;
+
+        synchronized boolean isAccepting() {
+            return !sealed && uris.size() < maxUris;
+        }
+
+        synchronized boolean add(String uri, LocalDateTime uriEnd) {
+            if (!isAccepting()) {
+                return false;
+            }
+            uris.add(uri);
+            if (end == null || uriEnd.isAfter(end)) {
+                end = uriEnd;
+            }
+            if (uris.size() >= maxUris) {
+                notifyAll();
+            }
+            return true;
+        }
+
+        synchronized void awaitFill() {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining = windowNanos;
+            try {
+                while (uris.size() < maxUris && remaining > 0) {
+                    wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                    remaining = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sealed = true;
+        }
+
+        void execute(BiFunction<List<String>, LocalDateTime, List<ViewStatsDto>> fetch) {
+            try {
+                result.complete(fetch.apply(List.copyOf(uris), end));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.client;
+
+// сервис статистики не ответил, ответил отказом по перегрузке или размыкатель разомкнут
+public class StatsUnavailableException extends RuntimeException {
+
+    public StatsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.client.CircuitBreaker.State;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final Duration OPEN = Duration.ofMillis(50);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN, meterRegistry);
+
+    private void failCalls(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    private void waitOpenDuration(Duration duration) throws InterruptedException {
+        Thread.sleep(duration.toMillis() + 20);
+    }
+
+    private double transitions(State to) {
+        return meterRegistry.counter("stats.client.breaker.transitions", "to", to.name().toLowerCase()).count();
+    }
+
+    @Test
+    void onFailure_BelowThreshold_ShouldStayClosed() {
+        failCalls(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        failCalls(2);
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.isAvailable());
+    }
+
+    @Test
+    void onFailure_ThresholdReached_ShouldOpenAndRejectCalls() {
+        failCalls(3);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, transitions(State.OPEN));
+        assertEquals(1, meterRegistry.counter("stats.client.breaker.rejected").count());
+    }
+
+    @Test
+    void tryAcquire_HalfOpen_ShouldLetOnlyOneProbeThrough() throws InterruptedException {
+        failCalls(3);
+        waitOpenDuration(OPEN);
+
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.tryAcquire());
+        // пока пробный вызов не завершен, остальные отклоняются
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, transitions(State.HALF_OPEN));
+    }
+
+    @Test
+    void onSuccess_Probe_ShouldClose() throws InterruptedException {
+        failCalls(3);
+        waitOpenDuration(OPEN);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSuccess();
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(1, transitions(State.CLOSED));
+    }
+
+    @Test
+    void onFailure_Probe_ShouldOpenAgainWithoutThreshold() throws InterruptedException {
+        failCalls(3);
+        waitOpenDuration(OPEN);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, transitions(State.OPEN));
+    }
+
+    @Test
+    void onOverload_RetryAfterLongerThanOpenDuration_ShouldWaitRetryAfter() throws InterruptedException {
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onOverload(Duration.ofMillis(300));
+        waitOpenDuration(OPEN);
+
+        assertEquals(State.OPEN, breaker.getState());
+        waitOpenDuration(Duration.ofMillis(300));
+        assertEquals(State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void onOverload_ShortRetryAfter_ShouldWaitAtLeastOpenDuration() throws InterruptedException {
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onOverload(Duration.ZERO);
+
+        assertEquals(State.OPEN, breaker.getState());
+        waitOpenDuration(OPEN);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+    }
+}
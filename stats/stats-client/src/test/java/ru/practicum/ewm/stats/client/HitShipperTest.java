@@ -0,0 +1,165 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HitShipperTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    private final BlockingQueue<List<AggregatedHit>> sent = new LinkedBlockingQueue<>();
+
+    private static EndpointHitDto hit(String uri, LocalDateTime timestamp) {
+        return EndpointHitDto.builder()
+                .app("ewm-main")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static HitShipperSettings settings(int queueCapacity, int batchSize, Duration flushInterval) {
+        return HitShipperSettings.builder()
+                .queueCapacity(queueCapacity)
+                .batchSize(batchSize)
+                .flushInterval(flushInterval)
+                .aggregationWindow(Duration.ZERO)
+                .build();
+    }
+
+    @Test
+    void offer_FullBatches_ShouldSendByBatchSizeWithoutWaitingForTimer() throws InterruptedException {
+        try (HitShipper shipper = new HitShipper(settings(100, 3, Duration.ofMinutes(1)), sent::add, null)) {
+            for (int i = 0; i < 7; i++) {
+                assertTrue(shipper.offer(hit("/events/" + i, START)));
+            }
+
+            assertEquals(3, sent.poll(5, TimeUnit.SECONDS).size());
+            assertEquals(3, sent.poll(5, TimeUnit.SECONDS).size());
+            assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void offer_IncompleteBatch_ShouldSendAfterFlushInterval() throws InterruptedException {
+        try (HitShipper shipper = new HitShipper(settings(100, 100, Duration.ofMillis(50)), sent::add, null)) {
+            shipper.offer(hit("/events/1", START));
+
+            List<AggregatedHit> batch = sent.poll(5, TimeUnit.SECONDS);
+
+            assertNotNull(batch);
+            assertEquals(1, batch.size());
+        }
+    }
+
+    @Test
+    void offer_QueueFull_ShouldDropAndCountHit() {
+        var meterRegistry = new SimpleMeterRegistry();
+        // сервис недоступен - очередь не разбирается
+        try (HitShipper shipper = new HitShipper(settings(2, 10, Duration.ofMillis(50)), sent::add, () -> false,
+                meterRegistry)) {
+            assertTrue(shipper.offer(hit("/events/1", START)));
+            assertTrue(shipper.offer(hit("/events/2", START)));
+
+            assertFalse(shipper.offer(hit("/events/3", START)));
+
+            assertEquals(1, shipper.getDropped());
+            assertEquals(2, shipper.getQueueDepth());
+            assertEquals(1, meterRegistry.counter("stats.client.hits.dropped").count());
+        }
+    }
+
+    @Test
+    void close_HitsInQueue_ShouldSendThemAndRejectNewOnes() {
+        HitShipper shipper = new HitShipper(settings(100, 2, Duration.ofMillis(50)), sent::add, () -> false, null);
+        shipper.offer(hit("/events/1", START));
+        shipper.offer(hit("/events/2", START));
+        shipper.offer(hit("/events/3", START));
+
+        shipper.close();
+
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.stream().mapToInt(List::size).sum());
+        assertEquals(3, shipper.getShipped());
+        assertFalse(shipper.offer(hit("/events/4", START)));
+        assertEquals(1, shipper.getDropped());
+    }
+
+    @Test
+    void close_CircuitOpen_ShouldCountRemainingHitsAsFailed() {
+        var meterRegistry = new SimpleMeterRegistry();
+        HitShipper shipper = new HitShipper(settings(100, 2, Duration.ofMillis(50)), batch -> {
+            throw new CircuitOpenException();
+        }, () -> false, meterRegistry);
+        shipper.offer(hit("/events/1", START));
+        shipper.offer(hit("/events/2", START));
+        shipper.offer(hit("/events/3", START));
+
+        shipper.close();
+
+        assertEquals(3, meterRegistry.counter("stats.client.hits.failed").count());
+        assertEquals(0, shipper.getShipped());
+        assertEquals(0, shipper.getQueueDepth());
+    }
+
+    @Test
+    void flush_SenderFailed_ShouldCountFailedHits() throws InterruptedException {
+        var meterRegistry = new SimpleMeterRegistry();
+        try (HitShipper shipper = new HitShipper(settings(100, 2, Duration.ofMinutes(1)), batch -> {
+            throw new IllegalStateException("stats-server недоступен");
+        }, meterRegistry)) {
+            shipper.offer(hit("/events/1", START));
+            shipper.offer(hit("/events/2", START));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.counter("stats.client.hits.failed").count() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(2, meterRegistry.counter("stats.client.hits.failed").count());
+            assertEquals(0, shipper.getShipped());
+        }
+    }
+
+    @Test
+    void aggregate_SameHitsWithinWindow_ShouldCollapseIntoCount() {
+        var hits = List.of(
+                hit("/events/1", START),
+                hit("/events/2", START),
+                hit("/events/1", START.plusNanos(500_000_000)),
+                hit("/events/1", START.plusSeconds(2)));
+
+        List<AggregatedHit> result = HitShipper.aggregate(hits, Duration.ofSeconds(1));
+
+        assertEquals(3, result.size());
+        assertEquals(2, result.get(0).getCount());
+        assertEquals(2L, result.get(0).toDto().getCount());
+        assertEquals("/events/2", result.get(1).getHit().getUri());
+        assertNull(result.get(1).toDto().getCount());
+        assertEquals(START.plusSeconds(2), result.get(2).getHit().getTimestamp());
+    }
+
+    @Test
+    void aggregate_ZeroWindow_ShouldKeepEveryHit() {
+        var hits = List.of(hit("/events/1", START), hit("/events/1", START));
+
+        List<AggregatedHit> result = HitShipper.aggregate(hits, Duration.ZERO);
+
+        assertEquals(2, result.size());
+        assertTrue(result.stream().allMatch(aggregated -> aggregated.getCount() == 1));
+    }
+}
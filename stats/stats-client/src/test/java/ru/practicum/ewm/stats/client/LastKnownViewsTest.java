@@ -0,0 +1,50 @@
+package ru.practicum.ewm.stats.client;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LastKnownViewsTest {
+
+    private static ViewStatsDto views(String uri, long hits) {
+        return new ViewStatsDto("ewm-main", uri, hits);
+    }
+
+    @Test
+    void get_RememberedUris_ShouldReturnRowsByHitsDescending() {
+        LastKnownViews lastKnown = new LastKnownViews(10);
+        lastKnown.remember(List.of("/events/1", "/events/2", "/events/3"), false,
+                List.of(views("/events/1", 3), views("/events/2", 7)));
+
+        assertEquals(List.of(views("/events/2", 7), views("/events/1", 3)),
+                lastKnown.get(List.of("/events/1", "/events/2", "/events/3"), false));
+        assertEquals(List.of(), lastKnown.get(List.of("/events/1"), true));
+    }
+
+    @Test
+    void remember_OverCapacity_ShouldEvictLeastRecentlyRequested() {
+        LastKnownViews lastKnown = new LastKnownViews(2);
+        lastKnown.remember(List.of("/events/1"), false, List.of(views("/events/1", 1)));
+        lastKnown.remember(List.of("/events/2"), false, List.of(views("/events/2", 2)));
+        // запрос освежает /events/1, вытесняется /events/2
+        lastKnown.get(List.of("/events/1"), false);
+
+        lastKnown.remember(List.of("/events/3"), false, List.of(views("/events/3", 3)));
+
+        assertEquals(List.of(views("/events/1", 1)), lastKnown.get(List.of("/events/1"), false));
+        assertEquals(List.of(), lastKnown.get(List.of("/events/2"), false));
+        assertEquals(List.of(views("/events/3", 3)), lastKnown.get(List.of("/events/3"), false));
+    }
+
+    @Test
+    void remember_WithoutUris_ShouldNotStore() {
+        LastKnownViews lastKnown = new LastKnownViews(10);
+
+        lastKnown.remember(null, false, List.of(views("/events/1", 1)));
+
+        assertEquals(List.of(), lastKnown.get(List.of("/events/1"), false));
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.ewm.stats.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+    private static final List<String> URIS = List.of("/events/1");
+    private static final List<ViewStatsDto> STATS = List.of(new ViewStatsDto("ewm-main", "/events/1", 5L));
+
+    private final SingleFlight singleFlight = new SingleFlight(Duration.ofSeconds(1));
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicInteger joins = new AtomicInteger();
+    private final CountDownLatch fetching = new CountDownLatch(1);
+    private final CountDownLatch joined = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    // вызов, который ждет release
+    private Supplier<List<ViewStatsDto>> slowFetch(Supplier<List<ViewStatsDto>> result) {
+        return () -> {
+            fetches.incrementAndGet();
+            fetching.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private Future<List<ViewStatsDto>> leader(Supplier<List<ViewStatsDto>> result) throws InterruptedException {
+        Future<List<ViewStatsDto>> leader = executor.submit(() ->
+                singleFlight.get(START, END, URIS, false, slowFetch(result), joins::incrementAndGet));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        return leader;
+    }
+
+    private Future<List<ViewStatsDto>> follower(LocalDateTime end) {
+        return executor.submit(() -> singleFlight.get(START, end, URIS, false, () -> {
+            fetches.incrementAndGet();
+            return STATS;
+        }, () -> {
+            joins.incrementAndGet();
+            joined.countDown();
+        }));
+    }
+
+    @Test
+    void get_EndWithinTolerance_ShouldJoinRunningCall() throws Exception {
+        Future<List<ViewStatsDto>> leader = leader(() -> STATS);
+
+        Future<List<ViewStatsDto>> follower = follower(END.plusNanos(500_000_000));
+        assertTrue(joined.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertEquals(STATS, leader.get(5, TimeUnit.SECONDS));
+        assertSame(leader.get(), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, fetches.get());
+        assertEquals(1, joins.get());
+    }
+
+    @Test
+    void get_EndBeyondTolerance_ShouldCallSeparately() throws Exception {
+        Future<List<ViewStatsDto>> leader = leader(() -> STATS);
+
+        // более поздний конец не ждет чужой вызов, который может не включать его хиты
+        assertEquals(STATS, follower(END.plusSeconds(2)).get(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertEquals(STATS, leader.get(5, TimeUnit.SECONDS));
+        assertEquals(2, fetches.get());
+        assertEquals(0, joins.get());
+    }
+
+    @Test
+    void get_RunningCallFailed_ShouldThrowSameErrorToJoined() throws Exception {
+        IllegalStateException error = new IllegalStateException("stats-server недоступен");
+        Future<List<ViewStatsDto>> leader = leader(() -> {
+            throw error;
+        });
+
+        Future<List<ViewStatsDto>> follower = follower(END);
+        assertTrue(joined.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertSame(error, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(error, assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    void get_Sequential_ShouldNotReuseFinishedCall() {
+        singleFlight.get(START, END, URIS, false, () -> {
+            fetches.incrementAndGet();
+            return STATS;
+        }, joins::incrementAndGet);
+        singleFlight.get(START, END, URIS, false, () -> {
+            fetches.incrementAndGet();
+            return STATS;
+        }, joins::incrementAndGet);
+
+        assertEquals(2, fetches.get());
+        assertEquals(0, joins.get());
+    }
+}
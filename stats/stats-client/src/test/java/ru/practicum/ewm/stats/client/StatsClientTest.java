@@ -0,0 +1,69 @@
+package ru.practicum.ewm.stats.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class StatsClientTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+    private static final List<String> URIS = List.of("/events/1");
+
+    private MockRestServiceServer server;
+    private StatsClient statsClient;
+
+    @BeforeEach
+    void setUp() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://stats-server");
+        server = MockRestServiceServer.bindTo(builder).build();
+        statsClient = new StatsClient(builder.build(), StatsClientSettings.builder()
+                .failureThreshold(3)
+                .openDuration(Duration.ofSeconds(1))
+                .coalesceTolerance(Duration.ZERO)
+                .build(), null, null);
+    }
+
+    @Test
+    void getStats_RetryAfter_ShouldOpenAtOnceAndAnswerLastKnown() {
+        server.expect(once(), requestTo(startsWith("http://stats-server/stats")))
+                .andRespond(withSuccess("[{\"app\":\"ewm-main\",\"uri\":\"/events/1\",\"hits\":5}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(startsWith("http://stats-server/stats")))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "60"));
+        List<ViewStatsDto> expected = List.of(new ViewStatsDto("ewm-main", "/events/1", 5L));
+
+        assertEquals(expected, statsClient.getStats(START, START.plusDays(1), URIS, false));
+        assertEquals(expected, statsClient.getStats(START, START.plusDays(1), URIS, false));
+
+        // первый же ответ с Retry-After размыкает, не дожидаясь порога; следующий вызов к серверу не идет
+        assertEquals(CircuitBreaker.State.OPEN, statsClient.getCircuitState());
+        assertEquals(expected, statsClient.getStats(START, START.plusDays(1), URIS, false));
+        server.verify();
+    }
+
+    @Test
+    void getStats_ServerErrorsBelowThreshold_ShouldStayClosed() {
+        server.expect(once(), requestTo(startsWith("http://stats-server/stats")))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertEquals(List.of(), statsClient.getStats(START, START.plusDays(1), URIS, false));
+
+        assertEquals(CircuitBreaker.State.CLOSED, statsClient.getCircuitState());
+        server.verify();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.ewm.stats.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatsLookupBatcherTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private final List<LocalDateTime> callEnds = new CopyOnWriteArrayList<>();
+    private final AtomicInteger joins = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // по две строки (два приложения) на каждый uri пакета
+    private List<ViewStatsDto> fetch(List<String> uris, LocalDateTime end) {
+        calls.add(uris);
+        callEnds.add(end);
+        List<ViewStatsDto> rows = new ArrayList<>();
+        for (String uri : uris) {
+            rows.add(new ViewStatsDto("ewm-main", uri, 2L));
+            rows.add(new ViewStatsDto("ewm-admin", uri, 1L));
+        }
+        return rows;
+    }
+
+    private Future<List<ViewStatsDto>> lookup(StatsLookupBatcher batcher, String uri, LocalDateTime end) {
+        return executor.submit(() -> batcher.get(START, end, uri, false, this::fetch, joins::incrementAndGet));
+    }
+
+    @Test
+    void get_MaxUrisCollected_ShouldSealBeforeWindow() throws Exception {
+        StatsLookupBatcher batcher = new StatsLookupBatcher(Duration.ofSeconds(30), 3);
+        long started = System.nanoTime();
+
+        List<Future<List<ViewStatsDto>>> lookups = List.of(
+                lookup(batcher, "/events/1", END),
+                lookup(batcher, "/events/2", END.plusSeconds(5)),
+                lookup(batcher, "/events/3", END.plusSeconds(1)));
+        for (Future<List<ViewStatsDto>> lookup : lookups) {
+            lookup.get(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, calls.size());
+        assertEquals(Set.of("/events/1", "/events/2", "/events/3"), Set.copyOf(calls.getFirst()));
+        // общий вызов - по самому позднему концу
+        assertEquals(END.plusSeconds(5), callEnds.getFirst());
+        assertEquals(2, joins.get());
+    }
+
+    @Test
+    void get_WindowPassed_ShouldSealWithCollectedUris() throws Exception {
+        StatsLookupBatcher batcher = new StatsLookupBatcher(Duration.ofMillis(50), 100);
+
+        lookup(batcher, "/events/1", END).get(5, TimeUnit.SECONDS);
+        lookup(batcher, "/events/2", END).get(5, TimeUnit.SECONDS);
+
+        // второй запрос пришел после закрытия первого пакета и ушел своим
+        assertEquals(List.of(List.of("/events/1"), List.of("/events/2")), calls);
+        assertEquals(0, joins.get());
+    }
+
+    @Test
+    void get_SharedBatch_ShouldReturnOnlyRowsOfOwnUri() throws Exception {
+        StatsLookupBatcher batcher = new StatsLookupBatcher(Duration.ofSeconds(30), 2);
+
+        Future<List<ViewStatsDto>> first = lookup(batcher, "/events/1", END);
+        Future<List<ViewStatsDto>> second = lookup(batcher, "/events/2", END);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 2L),
+                new ViewStatsDto("ewm-admin", "/events/1", 1L)), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/2", 2L),
+                new ViewStatsDto("ewm-admin", "/events/2", 1L)), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void get_FetchFailed_ShouldThrowToEveryUriOfBatch() {
+        StatsLookupBatcher batcher = new StatsLookupBatcher(Duration.ofSeconds(30), 2);
+        IllegalStateException error = new IllegalStateException("stats-server недоступен");
+
+        List<Future<List<ViewStatsDto>>> lookups = List.of("/events/1", "/events/2").stream()
+                .map(uri -> executor.submit(() -> batcher.get(START, END, uri, false, (uris, end) -> {
+                    throw error;
+                }, joins::incrementAndGet)))
+                .toList();
+
+        for (Future<List<ViewStatsDto>> lookup : lookups) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> lookup.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package ru.practicum.ewm.stats.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -30,4 +32,17 @@ public class EndpointHitDto {
     @NotNull
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
+
+    // в POST /hits: сколько одинаковых хитов схлопнуто клиентом в эту запись, null - один
+    @Positive
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long count;
+
+    public EndpointHitDto(Long id, String app, String uri, String ip, LocalDateTime timestamp) {
+        this(id, app, uri, ip, timestamp, null);
+    }
+
+    public long hits() {
+        return count == null ? 1 : count;
+    }
 }
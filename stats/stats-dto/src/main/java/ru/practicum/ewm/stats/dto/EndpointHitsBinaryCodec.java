@@ -0,0 +1,215 @@
+package ru.practicum.ewm.stats.dto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Двоичный формат пачки хитов для POST /hits (application/x-ewm-hits).
+ * <pre>
+ * 'E' 'H' версия
+ * varint N, N строк: varint длина + UTF-8    - таблица app, uri и ip, каждая строка один раз
+ * varint M, M записей:
+ *   varint app, varint uri, varint ip        - номер строки в таблице
+ *   zigzag varint timestamp                  - эпоха в миллисекундах по UTC, разница с предыдущей записью
+ *   varint count                             - сколько одинаковых хитов подряд схлопнуто в запись
+ * </pre>
+ * Счетчик записи - сумма {@link EndpointHitDto#getCount()} одинаковых хитов подряд, при чтении он возвращается
+ * в count того же хита, а не разворачивается.
+ * Время без зоны переводится в эпоху по UTC с обеих сторон, поэтому возвращается то же LocalDateTime.
+ */
+public final class EndpointHitsBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-ewm-hits";
+
+    private static final byte MAGIC_0 = 'E';
+    private static final byte MAGIC_1 = 'H';
+    private static final byte VERSION = 1;
+
+    private EndpointHitsBinaryCodec() {
+    }
+
+    public static byte[] encode(List<EndpointHitDto> hits) {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(hits.size() * 8);
+        int recordCount = 0;
+        long previousMillis = 0;
+
+        for (int i = 0; i < hits.size(); ) {
+            EndpointHitDto hit = hits.get(i);
+            if (hit.getTimestamp() == null) {
+                throw new IllegalArgumentException("У хита должно быть задано время");
+            }
+            long count = hit.hits();
+            int next = i + 1;
+            while (next < hits.size() && sameHit(hit, hits.get(next))) {
+                count += hits.get(next).hits();
+                next++;
+            }
+            i = next;
+
+            long millis = hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+            writeVarint(records, intern(hit.getApp(), strings, table));
+            writeVarint(records, intern(hit.getUri(), strings, table));
+            writeVarint(records, intern(hit.getIp(), strings, table));
+            writeVarint(records, zigzag(millis - previousMillis));
+            writeVarint(records, count);
+            previousMillis = millis;
+            recordCount++;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() + table.size() * 16 + 16);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarint(out, table.size());
+        for (String value : table) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+        writeVarint(out, recordCount);
+        out.write(records.toByteArray(), 0, records.size());
+        return out.toByteArray();
+    }
+
+    // maxHits ограничивает сумму счетчиков: маленькое тело не должно превращаться в миллионы хитов
+    public static List<EndpointHitDto> decode(byte[] data, int maxHits) {
+        Reader reader = new Reader(data);
+        if (reader.readByte() != MAGIC_0 || reader.readByte() != MAGIC_1) {
+            throw new IllegalArgumentException("Неизвестный формат пачки хитов");
+        }
+        byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия формата пачки хитов: " + version);
+        }
+
+        // каждая строка и запись занимают хотя бы байт, так что длины больше остатка - признак битых данных
+        String[] table = new String[reader.readLength()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = reader.readString(reader.readLength());
+        }
+
+        int recordCount = reader.readLength();
+        List<EndpointHitDto> hits = new ArrayList<>(Math.min(recordCount, maxHits));
+        long total = 0;
+        long millis = 0;
+        for (int i = 0; i < recordCount; i++) {
+            String app = reader.readString(table);
+            String uri = reader.readString(table);
+            String ip = reader.readString(table);
+            millis += unzigzag(reader.readVarint());
+            long count = reader.readVarint();
+            if (count < 1) {
+                throw new IllegalArgumentException("Некорректное число хитов в записи: " + count);
+            }
+            if (count > maxHits - total) {
+                throw new IllegalArgumentException("В пачке больше " + maxHits + " хитов");
+            }
+            total += count;
+            LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+            hits.add(new EndpointHitDto(null, app, uri, ip, timestamp, count == 1 ? null : count));
+        }
+        if (reader.hasRemaining()) {
+            throw new IllegalArgumentException("Лишние байты после пачки хитов");
+        }
+        return hits;
+    }
+
+    private static boolean sameHit(EndpointHitDto first, EndpointHitDto second) {
+        return first == second
+                || Objects.equals(first.getApp(), second.getApp())
+                && Objects.equals(first.getUri(), second.getUri())
+                && Objects.equals(first.getIp(), second.getIp())
+                && Objects.equals(first.getTimestamp(), second.getTimestamp());
+    }
+
+    private static int intern(String value, Map<String, Integer> strings, List<String> table) {
+        if (value == null) {
+            throw new IllegalArgumentException("У хита должны быть заданы app, uri и ip");
+        }
+        return strings.computeIfAbsent(value, key -> {
+            table.add(key);
+            return table.size() - 1;
+        });
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Пачка хитов оборвана");
+            }
+            return data[position++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Некорректное число в пачке хитов");
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Некорректная длина в пачке хитов: " + length);
+            }
+            return (int) length;
+        }
+
+        String readString(int length) {
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String readString(String[] table) {
+            long index = readVarint();
+            if (index < 0 || index >= table.length) {
+                throw new IllegalArgumentException("Некорректная ссылка на строку в пачке хитов: " + index);
+            }
+            return table[(int) index];
+        }
+
+        boolean hasRemaining() {
+            return position < data.length;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.ewm.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeSeriesDto {
+
+    // minute, hour или day
+    private String bucket;
+
+    // начало первой и последней корзины, i-е значение ряда относится к from + i корзин
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime from;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime to;
+
+    private Boolean unique;
+
+    private List<UriSeriesDto> series;
+}
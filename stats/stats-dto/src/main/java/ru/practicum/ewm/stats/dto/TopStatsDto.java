@@ -0,0 +1,30 @@
+package ru.practicum.ewm.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopStatsDto {
+
+    private String window;
+
+    // фактическое начало окна - начало самой старой корзины
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime from;
+
+    private Long total;
+
+    // больше скольких хитов не могло быть у uri, не попавшего в выдачу
+    private Long maxOtherHits;
+
+    private List<TopUriDto> uris;
+}
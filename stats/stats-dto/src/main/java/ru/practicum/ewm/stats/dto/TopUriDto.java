@@ -0,0 +1,18 @@
+package ru.practicum.ewm.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopUriDto {
+    private String app;
+    private String uri;
+    // оценка сверху, истинное число хитов не меньше hits - error
+    private Long hits;
+    private Long error;
+}
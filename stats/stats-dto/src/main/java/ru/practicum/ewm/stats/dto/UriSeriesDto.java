@@ -0,0 +1,21 @@
+package ru.practicum.ewm.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UriSeriesDto {
+    private String app;
+    private String uri;
+    // для unique - сумма по корзинам, а не число уникальных ip за весь интервал
+    private Long total;
+    // по значению на каждую корзину интервала, включая пустые
+    private List<Long> hits;
+}
@@ -0,0 +1,49 @@
+package ru.practicum.ewm.stats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.practicum.ewm.stats.controller.IngestAdmissionInterceptor;
+import ru.practicum.ewm.stats.controller.StatsController;
+import ru.practicum.ewm.stats.metrics.TimedJsonHttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+public class StatsServerConfig implements WebMvcConfigurer {
+
+    private final IngestAdmissionInterceptor ingestAdmissionInterceptor;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestAdmissionInterceptor)
+                .addPathPatterns("/hit", "/hits");
+    }
+
+    // ошибка на запрос с Accept: application/x-ndjson отдается одной JSON-строкой, а не 406 из обработчика ошибок;
+    // JSON пишется конвертером с замером времени сериализации
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (ListIterator<HttpMessageConverter<?>> it = converters.listIterator(); it.hasNext(); ) {
+            if (it.next() instanceof MappingJackson2HttpMessageConverter jackson) {
+                List<MediaType> mediaTypes = new ArrayList<>(jackson.getSupportedMediaTypes());
+                mediaTypes.add(MediaType.parseMediaType(StatsController.APPLICATION_NDJSON));
+                MappingJackson2HttpMessageConverter timed =
+                        new TimedJsonHttpMessageConverter(jackson.getObjectMapper(), meterRegistry);
+                timed.setSupportedMediaTypes(mediaTypes);
+                it.set(timed);
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ru.practicum.ewm.stats.archive;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Холодный архив: сегменты с хитами, перенесенными HitArchiver из таблицы hits.
+ * Список сегментов хранится в hits_archive_segments и фиксируется в одной транзакции с удалением хитов,
+ * поэтому каждый хит считается либо в базе, либо в архиве. Файл получает окончательное имя только после фиксации,
+ * так что сегмент без строки в списке (список потерян) восстанавливается при запуске по заголовку файла.
+ * Чтение базы вместе с архивом идет под блокировкой чтения, а перенос фиксируется под блокировкой записи
+ * с одновременным добавлением сегмента, так что запрос не застает хиты удаленными, но еще не в архиве.
+ */
+@Slf4j
+@Component
+public class HitArchive implements SmartInitializingSingleton {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final List<HitSegment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${stats.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.archive.dir:archive}")
+    private Path directory;
+
+    @Value("${stats.archive.lock-timeout:PT5S}")
+    private Duration lockTimeout;
+
+    public HitArchive(JdbcTemplate jdbcTemplate, HitDictionary hitDictionary, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        Gauge.builder("stats.archive.segments", segments, List::size)
+                .description("Сегменты архива хитов")
+                .register(meterRegistry);
+        Gauge.builder("stats.archive.size", this,
+                        archive -> archive.segments.stream().mapToLong(HitSegment::getSizeInBytes).sum())
+                .description("Размер сегментов архива хитов")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть архив хитов " + directory, e);
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        Set<String> registered = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT name FROM hits_archive_segments ORDER BY min_timestamp", String.class));
+        for (String name : registered) {
+            Path file = directory.resolve(name);
+            Path temp = directory.resolve(name + TEMP_SUFFIX);
+            // транзакция переноса зафиксирована, а переименовать файл до остановки не успели
+            if (!Files.exists(file) && Files.exists(temp)) {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (!Files.exists(file)) {
+                log.error("Сегмент {} архива хитов не найден в {}, его хиты не попадут в статистику", name, directory);
+                continue;
+            }
+            segments.add(HitSegment.open(file));
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String segmentName = name.endsWith(TEMP_SUFFIX)
+                        ? name.substring(0, name.length() - TEMP_SUFFIX.length()) : name;
+                if (name.endsWith(TEMP_SUFFIX) && !registered.contains(segmentName)) {
+                    // транзакция переноса откатилась, хиты остались в базе
+                    Files.delete(file);
+                    log.info("Удален недописанный сегмент архива {}", name);
+                } else if (name.endsWith(SEGMENT_SUFFIX) && !registered.contains(name)) {
+                    register(HitSegment.open(file));
+                }
+            }
+        }
+        log.info("Архив хитов {}: {} сегментов, {} хитов", directory, segments.size(),
+                segments.stream().mapToLong(HitSegment::getRows).sum());
+    }
+
+    private void register(HitSegment segment) {
+        jdbcTemplate.update("""
+                INSERT INTO hits_archive_segments (name, min_timestamp, max_timestamp, hits, size_bytes)
+                VALUES (?, ?, ?, ?, ?)
+                """, segment.getName(), segment.getMinTime(), segment.getMaxTime(), segment.getRows(),
+                segment.getSizeInBytes());
+        segments.add(segment);
+        log.warn("Сегмент {} не был зарегистрирован в hits_archive_segments, восстановлен по заголовку: {} хитов",
+                segment.getName(), segment.getRows());
+    }
+
+    // сегмент становится виден вместе с фиксацией текущей транзакции переноса, при откате не появляется
+    void addOnCommit(HitSegment segment) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                try {
+                    // долгий запрос не держит перенос: транзакция откатывается, хиты уйдут в следующий раз
+                    if (!lock.writeLock().tryLock(lockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        throw new CannotAcquireLockException("Архив хитов занят запросами дольше " + lockTimeout);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CannotAcquireLockException("Перенос хитов в архив прерван", e);
+                }
+                segments.add(segment);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    segments.remove(segment);
+                }
+                if (lock.writeLock().isHeldByCurrentThread()) {
+                    lock.writeLock().unlock();
+                }
+            }
+        });
+    }
+
+    // после переименования файла сегмента; отображение в память переживает переименование
+    void replace(HitSegment segment, HitSegment renamed) {
+        segments.replaceAll(current -> current == segment ? renamed : current);
+    }
+
+    // запрос по базе и архиву вместе, без переноса посередине
+    public <T> T read(Supplier<T> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean overlaps(List<TimeSlice> slices) {
+        return segments.stream().anyMatch(segment -> segment.overlaps(slices));
+    }
+
+    public Map<StatsKey, Long> countRaw(List<TimeSlice> slices, List<String> uris) {
+        Map<StatsKey, Long> result = new HashMap<>();
+        Set<Integer> uriIds = uriIds(uris);
+        for (HitSegment segment : segments) {
+            if (segment.overlaps(slices)) {
+                segment.countHits(slices, uriIds, (appId, uriId, hits) ->
+                        result.merge(hitDictionary.key(appId, uriId), hits, Long::sum));
+            }
+        }
+        return result;
+    }
+
+    // ip одного (app, uri) из разных сегментов могут повторяться
+    public void forEachDistinctIp(List<TimeSlice> slices, List<String> uris, BiConsumer<StatsKey, String> consumer) {
+        Set<Integer> uriIds = uriIds(uris);
+        for (HitSegment segment : segments) {
+            if (segment.overlaps(slices)) {
+                segment.forEachDistinctIp(slices, uriIds, (appId, uriId, ip) ->
+                        consumer.accept(hitDictionary.key(appId, uriId), ip));
+            }
+        }
+    }
+
+    private Set<Integer> uriIds(List<String> uris) {
+        List<Integer> ids = hitDictionary.findUriIds(uris);
+        return ids == null ? null : Set.copyOf(ids);
+    }
+}
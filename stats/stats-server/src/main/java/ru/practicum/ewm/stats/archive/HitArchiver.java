@@ -0,0 +1,133 @@
+package ru.practicum.ewm.stats.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Переносит сырые хиты старше after из hits в сегменты архива, по сегменту на сутки, не больше max-segment-hits
+ * хитов в сегменте - остаток суток уходит в следующие. Хиты удаляются и читаются одним запросом, файл пишется
+ * во временный и регистрируется в той же транзакции, в архиве запросов сегмент появляется вместе с ее фиксацией,
+ * файл переименовывается после. Агрегаты, скетчи и битмапы остаются в базе, архив нужен точному подсчету
+ * и краям интервалов, которые считаются по сырым хитам. Поздние хиты за уже перенесенные сутки
+ * уходят в следующий сегмент тех же суток.
+ */
+@Slf4j
+@Component
+public class HitArchiver {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HitArchive hitArchive;
+
+    @Value("${stats.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.archive.after:P90D}")
+    private Duration after;
+
+    @Value("${stats.archive.max-segment-hits:5000000}")
+    private int maxSegmentHits;
+
+    public HitArchiver(DataSource dataSource, PlatformTransactionManager transactionManager, HitArchive hitArchive,
+                       @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hitArchive = hitArchive;
+    }
+
+    @Scheduled(cron = "${stats.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(after).truncatedTo(ChronoUnit.DAYS);
+        try {
+            LocalDateTime oldest;
+            while ((oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM hits WHERE timestamp < ?",
+                    LocalDateTime.class, cutoff)) != null) {
+                LocalDateTime day = oldest.truncatedTo(ChronoUnit.DAYS);
+                archiveSegment(day, day.plusDays(1));
+            }
+        } catch (DataAccessException | IOException | UncheckedIOException e) {
+            log.error("Ошибка переноса хитов старше {} в архив: {}", cutoff, e.getMessage());
+        }
+    }
+
+    // сегмент из самых ранних хитов суток; writer держит в памяти сжатые столбцы не больше maxSegmentHits хитов
+    private void archiveSegment(LocalDateTime from, LocalDateTime to) throws IOException {
+        String name = "hits-" + DAY.format(from) + "-" + System.currentTimeMillis() + HitArchive.SEGMENT_SUFFIX;
+        Path file = hitArchive.getDirectory().resolve(name);
+        Path temp = hitArchive.getDirectory().resolve(name + HitArchive.TEMP_SUFFIX);
+        HitSegment.Writer writer = new HitSegment.Writer();
+        HitSegment[] segment = new HitSegment[1];
+        long started = System.nanoTime();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query("""
+                        WITH moved AS (
+                            DELETE FROM hits
+                             WHERE (id, timestamp) IN (
+                                   SELECT id, timestamp
+                                     FROM hits
+                                    WHERE timestamp >= ? AND timestamp < ?
+                                    ORDER BY timestamp
+                                    LIMIT ?)
+                            RETURNING app_id, uri_id, ip, timestamp)
+                        SELECT app_id, uri_id, host(ip) AS ip, timestamp
+                          FROM moved
+                         ORDER BY uri_id, app_id, timestamp
+                        """, rs -> {
+                    writer.add(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getObject("timestamp", LocalDateTime.class), rs.getString("ip"));
+                }, from, to, maxSegmentHits);
+                if (writer.getRows() == 0) {
+                    return;
+                }
+                try {
+                    long size = writer.writeTo(temp);
+                    jdbcTemplate.update("""
+                            INSERT INTO hits_archive_segments (name, min_timestamp, max_timestamp, hits, size_bytes)
+                            VALUES (?, ?, ?, ?, ?)
+                            """, name, writer.getMinTime(), writer.getMaxTime(), writer.getRows(), size);
+                    segment[0] = HitSegment.open(temp);
+                    hitArchive.addOnCommit(segment[0]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (writer.getRows() == 0) {
+            return;
+        }
+
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        hitArchive.replace(segment[0], segment[0].renamed(file));
+        log.info("В архив {} перенесено {} хитов за {}, {} байт за {} мс", name, segment[0].getRows(),
+                from.toLocalDate(), segment[0].getSizeInBytes(),
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+}
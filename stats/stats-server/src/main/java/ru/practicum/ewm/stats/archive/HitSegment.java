@@ -0,0 +1,387 @@
+package ru.practicum.ewm.stats.archive;
+
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый файл архива хитов по столбцам. Хиты отсортированы по (uri_id, app_id, timestamp)
+ * и разбиты на группы с одинаковыми uri и app, у каждой группы в каталоге - число хитов и границы времени.
+ * <pre>
+ * заголовок 64 байта: 'E' 'H' 'S' версия, число групп, число ip, число хитов, min и max времени,
+ *                     смещения словаря ip, столбца времени и столбца ip
+ * каталог групп:      uri_id, app_id, число хитов, min и max времени, начало группы в обоих столбцах
+ * словарь ip:         смещения строк (число ip + 1), затем строки host(ip) в UTF-8
+ * столбец времени:    varint разница с предыдущим хитом группы в микросекундах, первый - с min группы
+ * столбец ip:         varint номер ip в словаре
+ * </pre>
+ * Время без зоны хранится как эпоха по UTC. Группа, целиком лежащая в запрошенном интервале,
+ * считается по каталогу без чтения столбцов. Файл читается через отображение в память, чтение потокобезопасно.
+ */
+public class HitSegment {
+
+    private static final byte[] MAGIC = {'E', 'H', 'S'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int GROUP_SIZE = 36;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int groupCount;
+    private final int ipCount;
+    private final long rows;
+    private final long minMicros;
+    private final long maxMicros;
+    private final long ipDictionaryOffset;
+    private final long timestampsOffset;
+    private final long ipsOffset;
+
+    private HitSegment(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.get(0) != MAGIC[0] || buffer.get(1) != MAGIC[1]
+                || buffer.get(2) != MAGIC[2]) {
+            throw new IllegalArgumentException("Файл " + path + " не сегмент архива хитов");
+        }
+        if (buffer.get(3) != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия сегмента " + path + ": " + buffer.get(3));
+        }
+        this.groupCount = buffer.getInt(4);
+        this.ipCount = buffer.getInt(8);
+        this.rows = buffer.getLong(12);
+        this.minMicros = buffer.getLong(20);
+        this.maxMicros = buffer.getLong(28);
+        this.ipDictionaryOffset = buffer.getLong(36);
+        this.timestampsOffset = buffer.getLong(44);
+        this.ipsOffset = buffer.getLong(52);
+    }
+
+    public static HitSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HitSegment(path, buffer);
+        }
+    }
+
+    HitSegment renamed(Path path) {
+        return new HitSegment(path, buffer);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public LocalDateTime getMinTime() {
+        return fromMicros(minMicros);
+    }
+
+    public LocalDateTime getMaxTime() {
+        return fromMicros(maxMicros);
+    }
+
+    public boolean overlaps(List<TimeSlice> slices) {
+        for (long[] range : ranges(slices)) {
+            if (overlaps(range, minMicros, maxMicros)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // uriIds == null - без фильтра по uri
+    public void countHits(List<TimeSlice> slices, Set<Integer> uriIds, CountConsumer consumer) {
+        List<long[]> ranges = ranges(slices);
+        for (int i = 0; i < groupCount; i++) {
+            int group = HEADER_SIZE + i * GROUP_SIZE;
+            int uriId = buffer.getInt(group);
+            if (uriIds != null && !uriIds.contains(uriId)) {
+                continue;
+            }
+            long groupMin = buffer.getLong(group + 12);
+            long groupMax = buffer.getLong(group + 20);
+            long hits = 0;
+            boolean partial = false;
+            for (long[] range : ranges) {
+                // интервалы не пересекаются, поэтому накрывший группу целиком - единственный задевший ее
+                if (range[0] <= groupMin * 1000 && groupMax * 1000 <= range[1]) {
+                    hits = buffer.getInt(group + 8);
+                    break;
+                }
+                partial |= overlaps(range, groupMin, groupMax);
+            }
+            if (hits == 0 && partial) {
+                hits = scan(group, ranges, null);
+            }
+            if (hits > 0) {
+                consumer.accept(buffer.getInt(group + 4), uriId, hits);
+            }
+        }
+    }
+
+    // ip передаются в виде host(ip) из PostgreSQL, каждый не больше одного раза на (app, uri)
+    public void forEachDistinctIp(List<TimeSlice> slices, Set<Integer> uriIds, IpConsumer consumer) {
+        List<long[]> ranges = ranges(slices);
+        for (int i = 0; i < groupCount; i++) {
+            int group = HEADER_SIZE + i * GROUP_SIZE;
+            int uriId = buffer.getInt(group);
+            if (uriIds != null && !uriIds.contains(uriId)) {
+                continue;
+            }
+            long groupMin = buffer.getLong(group + 12);
+            long groupMax = buffer.getLong(group + 20);
+            if (ranges.stream().noneMatch(range -> overlaps(range, groupMin, groupMax))) {
+                continue;
+            }
+            BitSet ips = new BitSet(ipCount);
+            scan(group, ranges, ips);
+            int appId = buffer.getInt(group + 4);
+            for (int ip = ips.nextSetBit(0); ip >= 0; ip = ips.nextSetBit(ip + 1)) {
+                consumer.accept(appId, uriId, ip(ip));
+            }
+        }
+    }
+
+    // хиты группы в интервалах; ips != null - заодно отмечает их номера ip
+    private long scan(int group, List<long[]> ranges, BitSet ips) {
+        int count = buffer.getInt(group + 8);
+        long micros = buffer.getLong(group + 12);
+        Cursor timestamps = new Cursor(timestampsOffset + buffer.getInt(group + 28));
+        Cursor ipIndexes = ips == null ? null : new Cursor(ipsOffset + buffer.getInt(group + 32));
+        long hits = 0;
+        for (int row = 0; row < count; row++) {
+            micros += timestamps.readVarint();
+            int ip = ipIndexes == null ? 0 : (int) ipIndexes.readVarint();
+            if (contains(ranges, micros * 1000)) {
+                hits++;
+                if (ips != null) {
+                    ips.set(ip);
+                }
+            }
+        }
+        return hits;
+    }
+
+    private String ip(int index) {
+        int offsets = (int) ipDictionaryOffset;
+        int from = buffer.getInt(offsets + index * Integer.BYTES);
+        int to = buffer.getInt(offsets + (index + 1) * Integer.BYTES);
+        byte[] bytes = new byte[to - from];
+        buffer.get(offsets + (ipCount + 1) * Integer.BYTES + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean contains(List<long[]> ranges, long nanos) {
+        for (long[] range : ranges) {
+            if (range[0] <= nanos && nanos <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlaps(long[] range, long fromMicros, long toMicros) {
+        return range[0] <= toMicros * 1000 && fromMicros * 1000 <= range[1];
+    }
+
+    // интервалы как [from, to] в наносекундах эпохи, чтобы не терять точность LocalDateTime запроса
+    private static List<long[]> ranges(List<TimeSlice> slices) {
+        List<long[]> ranges = new ArrayList<>(slices.size());
+        for (TimeSlice slice : slices) {
+            if (!slice.isEmpty()) {
+                long to = toNanos(slice.to());
+                ranges.add(new long[]{toNanos(slice.from()), slice.toInclusive() ? to : to - 1});
+            }
+        }
+        return ranges;
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private final class Cursor {
+
+        private int position;
+
+        private Cursor(long position) {
+            this.position = (int) position;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(int appId, int uriId, long hits);
+    }
+
+    @FunctionalInterface
+    public interface IpConsumer {
+        void accept(int appId, int uriId, String ip);
+    }
+
+    /**
+     * Собирает сегмент из хитов, поступающих в порядке (uri_id, app_id, timestamp), например из курсора.
+     * В памяти держит только сжатые столбцы и словарь ip.
+     */
+    public static class Writer {
+
+        private final List<long[]> groups = new ArrayList<>();
+        private final Map<String, Integer> ipIndexes = new HashMap<>();
+        private final List<String> ips = new ArrayList<>();
+        private final ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream ipColumn = new ByteArrayOutputStream();
+        private long[] group;
+        private long previousMicros;
+        private long rows;
+        private long minMicros = Long.MAX_VALUE;
+        private long maxMicros = Long.MIN_VALUE;
+
+        public void add(int appId, int uriId, LocalDateTime timestamp, String ip) {
+            long micros = toMicros(timestamp);
+            if (group == null || group[0] != uriId || group[1] != appId) {
+                if (group != null && (uriId < group[0] || uriId == group[0] && appId < group[1])) {
+                    throw new IllegalStateException("Хиты сегмента должны идти по возрастанию uri_id и app_id");
+                }
+                // uri_id, app_id, хиты, min, max, начало в столбце времени, начало в столбце ip
+                group = new long[]{uriId, appId, 0, micros, micros, timestamps.size(), ipColumn.size()};
+                groups.add(group);
+                previousMicros = micros;
+            }
+            if (micros < previousMicros) {
+                throw new IllegalStateException("Хиты группы сегмента должны идти по возрастанию времени");
+            }
+            writeVarint(timestamps, micros - previousMicros);
+            writeVarint(ipColumn, ipIndexes.computeIfAbsent(ip, key -> {
+                ips.add(key);
+                return ips.size() - 1;
+            }));
+            previousMicros = micros;
+            group[2]++;
+            group[4] = micros;
+            rows++;
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public LocalDateTime getMinTime() {
+            return fromMicros(minMicros);
+        }
+
+        public LocalDateTime getMaxTime() {
+            return fromMicros(maxMicros);
+        }
+
+        // файл создается заново и сбрасывается на диск до возврата
+        public long writeTo(Path path) throws IOException {
+            if (rows == 0) {
+                throw new IllegalStateException("Пустой сегмент не записывается");
+            }
+            ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+            ByteBuffer offsets = ByteBuffer.allocate((ips.size() + 1) * Integer.BYTES);
+            for (String ip : ips) {
+                offsets.putInt(dictionary.size());
+                dictionary.writeBytes(ip.getBytes(StandardCharsets.UTF_8));
+            }
+            offsets.putInt(dictionary.size());
+
+            long ipDictionaryOffset = HEADER_SIZE + (long) groups.size() * GROUP_SIZE;
+            long timestampsOffset = ipDictionaryOffset + offsets.capacity() + dictionary.size();
+            long ipsOffset = timestampsOffset + timestamps.size();
+            if (ipsOffset + ipColumn.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Сегмент больше 2 ГБ, архивируйте меньшими периодами");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + groups.size() * GROUP_SIZE);
+            header.put(MAGIC).put(VERSION)
+                    .putInt(groups.size())
+                    .putInt(ips.size())
+                    .putLong(rows)
+                    .putLong(minMicros)
+                    .putLong(maxMicros)
+                    .putLong(ipDictionaryOffset)
+                    .putLong(timestampsOffset)
+                    .putLong(ipsOffset)
+                    .position(HEADER_SIZE);
+            for (long[] g : groups) {
+                header.putInt((int) g[0]).putInt((int) g[1]).putInt((int) g[2]).putLong(g[3]).putLong(g[4])
+                        .putInt((int) g[5]).putInt((int) g[6]);
+            }
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                for (ByteBuffer part : new ByteBuffer[]{header.flip(), offsets.flip()}) {
+                    while (part.hasRemaining()) {
+                        channel.write(part);
+                    }
+                }
+                // столбцы пишутся из буферов без копирования в массивы
+                OutputStream out = Channels.newOutputStream(channel);
+                dictionary.writeTo(out);
+                timestamps.writeTo(out);
+                ipColumn.writeTo(out);
+                channel.force(true);
+                return channel.size();
+            }
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.ewm.stats.cache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+
+// uris хранятся отсортированными без повторов, null - без фильтра, чтобы одинаковые запросы давали один ключ
+public record StatsCacheKey(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+
+    public static StatsCacheKey of(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        List<String> normalized = uris == null || uris.isEmpty() ? null : List.copyOf(new TreeSet<>(uris));
+        return new StatsCacheKey(start, end, normalized, unique);
+    }
+
+    // хит с таким uri и временем попал бы в результат
+    public boolean covers(String uri, LocalDateTime timestamp) {
+        return !timestamp.isBefore(start) && !timestamp.isAfter(end) && (uris == null || uris.contains(uri));
+    }
+}
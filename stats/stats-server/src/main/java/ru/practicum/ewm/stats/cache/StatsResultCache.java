@@ -0,0 +1,144 @@
+package ru.practicum.ewm.stats.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.datasource.ReplicaProperties;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.partition.HitsDroppedEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Результаты /stats за закрытые интервалы - закончившиеся раньше now - grace. Срока жизни нет,
+ * вытесняются по суммарному числу строк. Хит старше grace удаляет результаты, в интервал и uris которых
+ * он попадает; более свежий хит в закрытый интервал попасть не может. Удаление старых хитов по retention
+ * удаляет результаты интервалов, начавшихся раньше границы удаления. При чтении с реплик результат,
+ * посчитанный раньше чем через max-lag + lag-check-interval после инвалидации, не кешируется:
+ * реплика могла еще не получить изменение, из-за которого кеш сброшен.
+ */
+@Slf4j
+@Component
+public class StatsResultCache {
+
+    private static final int MAX_LATE_CHECK = 1000;
+
+    private final Cache<StatsCacheKey, List<ViewStatsDto>> cache;
+    // растет перед каждой инвалидацией: результат, посчитанный параллельно с ней, в кеше не остается
+    private final AtomicLong generation = new AtomicLong();
+    private final boolean enabled;
+    private final Duration grace;
+    private final long replicaLagNanos;
+    private volatile long invalidatedAt;
+
+    // replicaProperties есть только при чтении с реплик, см. ReplicaDataSourceConfig
+    public StatsResultCache(@Value("${stats.cache.enabled:false}") boolean enabled,
+                            @Value("${stats.cache.max-rows:1000000}") long maxRows,
+                            @Value("${stats.cache.grace:PT5M}") Duration grace,
+                            @Nullable ReplicaProperties replicaProperties,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.grace = grace;
+        this.replicaLagNanos = replicaProperties == null ? 0
+                : replicaProperties.getMaxLag().plus(replicaProperties.getLagCheckInterval()).toNanos();
+        this.invalidatedAt = System.nanoTime() - replicaLagNanos;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((StatsCacheKey key, List<ViewStatsDto> rows) -> rows.size() + 1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats.result");
+        Gauge.builder("stats.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Доля запросов /stats за закрытые интервалы, отданных из кеша")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // интервалы, закончившиеся раньше этого момента, считаются закрытыми
+    public LocalDateTime closedBefore() {
+        return LocalDateTime.now().minus(grace);
+    }
+
+    public List<ViewStatsDto> get(StatsCacheKey key, Supplier<List<ViewStatsDto>> loader) {
+        List<ViewStatsDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long observed = generation.get();
+        long started = System.nanoTime();
+        List<ViewStatsDto> result = List.copyOf(loader.get());
+        if (started - invalidatedAt < replicaLagNanos) {
+            return result;
+        }
+        cache.put(key, result);
+        if (generation.get() != observed) {
+            cache.invalidate(key);
+        }
+        return result;
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        invalidatedAt = System.nanoTime();
+    }
+
+    public long purge() {
+        invalidate();
+        long size = cache.estimatedSize();
+        cache.invalidateAll();
+        log.info("Кеш результатов /stats очищен, удалено около {} записей", size);
+        return size;
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime lateBefore = closedBefore();
+        List<EndpointHit> late = event.hits().stream()
+                .filter(hit -> hit.getTimestamp().isBefore(lateBefore))
+                .toList();
+        if (late.isEmpty()) {
+            return;
+        }
+
+        // большую пачку (импорт истории) дешевле сбросить целиком, чем сверять с каждым ключом
+        if (late.size() > MAX_LATE_CHECK) {
+            purge();
+            return;
+        }
+        invalidate();
+        cache.asMap().keySet().removeIf(key -> late.stream()
+                .anyMatch(hit -> key.covers(hit.getUri(), hit.getTimestamp())));
+        log.debug("Кеш результатов /stats: {} опоздавших хитов", late.size());
+    }
+
+    @EventListener
+    public void onHitsDropped(HitsDroppedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        invalidate();
+        cache.asMap().keySet().removeIf(key -> key.start().isBefore(event.before()));
+        log.debug("Кеш результатов /stats: удалены результаты с началом раньше {}", event.before());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.ewm.stats.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.ewm.stats.cache.StatsResultCache;
+import ru.practicum.ewm.stats.ingest.HitImportFormat;
+import ru.practicum.ewm.stats.ingest.HitImportResult;
+import ru.practicum.ewm.stats.ingest.HitImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@Tag(name = "Statistic admin controller")
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final StatsResultCache statsResultCache;
+    private final HitImporter hitImporter;
+
+    @Operation(summary = "Очистить кеш результатов /stats")
+    @DeleteMapping("/cache")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void purgeCache() {
+        log.info("Получен запрос на очистку кеша результатов статистики");
+        statsResultCache.purge();
+    }
+
+    // тело читается потоком, Content-Encoding: gzip распаковывается на лету
+    @Operation(summary = "Импортировать хиты из CSV: app,uri,ip,timestamp")
+    @PostMapping(value = "/hits/import", consumes = "text/csv")
+    public HitImportResult importCsv(InputStream body,
+                                     @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+                                     String encoding) throws IOException {
+        return importHits(body, encoding, HitImportFormat.CSV);
+    }
+
+    @Operation(summary = "Импортировать хиты из NDJSON: EndpointHitDto в строке")
+    @PostMapping(value = "/hits/import", consumes = StatsController.APPLICATION_NDJSON)
+    public HitImportResult importNdjson(InputStream body,
+                                        @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+                                        String encoding) throws IOException {
+        return importHits(body, encoding, HitImportFormat.NDJSON);
+    }
+
+    private HitImportResult importHits(InputStream body, String encoding, HitImportFormat format)
+            throws IOException {
+        log.info("Получен запрос на импорт хитов в формате {}", format);
+        InputStream input = "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(body, 1 << 16) : body;
+        HitImportResult result = hitImporter.importHits(input, format);
+        log.info("Импорт хитов завершен: записано {}, пропущено {}, {} мс, {} строк/с",
+                result.rows(), result.rejected(), result.millis(), result.rowsPerSecond());
+        return result;
+    }
+}
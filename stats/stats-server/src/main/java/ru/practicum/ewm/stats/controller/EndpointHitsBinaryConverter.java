@@ -0,0 +1,65 @@
+package ru.practicum.ewm.stats.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.EndpointHitsBinaryCodec;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Пачки хитов в двоичном формате {@link EndpointHitsBinaryCodec}: чтение тела POST /hits и, для симметрии, запись.
+ * Spring Boot сам добавляет бины конвертеров к стандартным, JSON остается форматом по умолчанию.
+ */
+@Component
+public class EndpointHitsBinaryConverter extends AbstractGenericHttpMessageConverter<List<EndpointHitDto>> {
+
+    private static final ResolvableType HITS_TYPE = ResolvableType.forClassWithGenerics(List.class, EndpointHitDto.class);
+
+    private final int maxHits;
+
+    public EndpointHitsBinaryConverter(@Value("${stats.ingest.max-hits:100000}") int maxHits) {
+        super(MediaType.parseMediaType(EndpointHitsBinaryCodec.MEDIA_TYPE));
+        this.maxHits = maxHits;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return HITS_TYPE.isAssignableFrom(ResolvableType.forType(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return type != null && HITS_TYPE.isAssignableFrom(ResolvableType.forType(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public List<EndpointHitDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        return readInternal(null, inputMessage);
+    }
+
+    @Override
+    protected List<EndpointHitDto> readInternal(Class<? extends List<EndpointHitDto>> clazz,
+                                                HttpInputMessage inputMessage) throws IOException {
+        try {
+            return EndpointHitsBinaryCodec.decode(inputMessage.getBody().readAllBytes(), maxHits);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(List<EndpointHitDto> hits, Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        outputMessage.getBody().write(EndpointHitsBinaryCodec.encode(hits));
+    }
+}
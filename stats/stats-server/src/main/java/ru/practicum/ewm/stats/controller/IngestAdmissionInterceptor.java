@@ -0,0 +1,35 @@
+package ru.practicum.ewm.stats.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.practicum.ewm.stats.ingest.IngestLimiter;
+
+// допуск до разбора тела и до соединения с базой: отказ при перегрузке не занимает ни того, ни другого
+@Component
+@RequiredArgsConstructor
+public class IngestAdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED_AT = IngestAdmissionInterceptor.class.getName() + ".admittedAt";
+
+    private final IngestLimiter ingestLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (ingestLimiter.isEnabled() && "POST".equals(request.getMethod())) {
+            request.setAttribute(ADMITTED_AT, ingestLimiter.acquire());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(ADMITTED_AT) instanceof Long admittedAt) {
+            request.removeAttribute(ADMITTED_AT);
+            ingestLimiter.release(admittedAt);
+        }
+    }
+}
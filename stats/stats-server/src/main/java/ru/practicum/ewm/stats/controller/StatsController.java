@@ -3,16 +3,29 @@ package ru.practicum.ewm.stats.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.HitsCountDto;
+import ru.practicum.ewm.stats.dto.TimeSeriesDto;
+import ru.practicum.ewm.stats.dto.TopStatsDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 import ru.practicum.ewm.stats.service.StatsService;
+import ru.practicum.ewm.stats.timeseries.SeriesBucket;
+import ru.practicum.ewm.stats.top.TopWindow;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -26,7 +39,10 @@ import java.util.List;
 @RestController
 public class StatsController {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -35,6 +51,16 @@ public class StatsController {
         return statsService.addHit(endpointHitDto);
     }
 
+    @Operation(summary = "Пакетно сохранить события в статистику", description = "Возвращает только количество сохраненных записей")
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitsCountDto addHits(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        log.info("Получен запрос на пакетное добавление {} событий в статистику", endpointHitDtos.size());
+        return HitsCountDto.builder()
+                .count((long) statsService.addHits(endpointHitDtos))
+                .build();
+    }
+
     @Operation(summary = "Получить статистику", description = "full description of method")
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(
@@ -46,12 +72,107 @@ public class StatsController {
             @RequestParam(required = false)
             List<String> uris,
             @RequestParam(required = false, defaultValue = "false")
-            Boolean unique
+            Boolean unique,
+            @Parameter(description = "Уникальные посетители оценкой по HyperLogLog-скетчам вместо точного подсчета")
+            @RequestParam(required = false, defaultValue = "false")
+            Boolean approximate
     ) {
         log.info("Получен запрос на выгрузку статистики за период с {} по {}", start, end);
+        if (approximate) {
+            return statsService.getApproximateStats(parseDate(start), parseDate(end), uris, unique);
+        }
         return statsService.getStats(parseDate(start), parseDate(end), uris, unique);
     }
 
+    @Operation(summary = "Получить статистику потоком",
+            description = "Точный подсчет по сырым хитам, по одному JSON-объекту на строку по мере чтения из базы")
+    @GetMapping(value = "/stats", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam
+            String start,
+            @RequestParam
+            String end,
+            @RequestParam(required = false)
+            List<String> uris,
+            @RequestParam(required = false, defaultValue = "false")
+            Boolean unique
+    ) {
+        log.info("Получен запрос на потоковую выгрузку статистики за период с {} по {}", start, end);
+        LocalDateTime startDate = parseDate(start);
+        LocalDateTime endDate = parseDate(end);
+        // после начала записи тела статус уже не поменять, поэтому проверка до него
+        if (startDate.isAfter(endDate)) {
+            throw new ValidationException("Старт не может быть позже энд");
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                statsService.streamStats(startDate, endDate, uris, unique, viewStats -> {
+                    try {
+                        generator.writeObject(viewStats);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    @Operation(summary = "Самые посещаемые uri",
+            description = "Оценка по сводкам Space-Saving за последний час, сутки или неделю с границей ошибки")
+    @GetMapping("/stats/top")
+    public TopStatsDto getTop(
+            @RequestParam(required = false, defaultValue = "10")
+            Integer n,
+            @Parameter(description = "hour, day или week")
+            @RequestParam(required = false, defaultValue = "day")
+            String window
+    ) {
+        log.info("Получен запрос на топ-{} uri за окно {}", n, window);
+        return statsService.getTop(parseWindow(window), n);
+    }
+
+    @Operation(summary = "Ряд посещений по времени",
+            description = "По значению на каждую минуту, час или сутки интервала для всех uri сразу, пустые корзины - нули")
+    @GetMapping("/stats/timeseries")
+    public TimeSeriesDto getTimeSeries(
+            @RequestParam
+            String start,
+            @RequestParam
+            String end,
+            @RequestParam(required = false)
+            List<String> uris,
+            @Parameter(description = "minute, hour или day")
+            @RequestParam(required = false, defaultValue = "hour")
+            String bucket,
+            @RequestParam(required = false, defaultValue = "false")
+            Boolean unique
+    ) {
+        log.info("Получен запрос на ряд статистики за период с {} по {} по корзинам {}", start, end, bucket);
+        return statsService.getTimeSeries(parseDate(start), parseDate(end), uris, parseBucket(bucket), unique);
+    }
+
+    private SeriesBucket parseBucket(String bucket) {
+        try {
+            return SeriesBucket.valueOf(bucket.trim().toUpperCase());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Неизвестная корзина: " + bucket);
+        }
+    }
+
+    private TopWindow parseWindow(String window) {
+        try {
+            return TopWindow.valueOf(window.trim().toUpperCase());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Неизвестное окно: " + window);
+        }
+    }
+
     private LocalDateTime parseDate(String date) {
         try {
             String decoded = URLDecoder.decode(date, StandardCharsets.UTF_8).trim();
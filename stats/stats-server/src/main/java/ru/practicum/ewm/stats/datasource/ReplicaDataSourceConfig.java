@@ -0,0 +1,15 @@
+package ru.practicum.ewm.stats.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.ewm.datasource.ReplicaDataSourceConfigSupport;
+
+// реплики - stats.datasource.replica.urls, без них источник данных создает Spring Boot
+@Configuration
+@ConditionalOnProperty(name = "stats.datasource.replica.urls")
+public class ReplicaDataSourceConfig extends ReplicaDataSourceConfigSupport {
+
+    public ReplicaDataSourceConfig() {
+        super("stats.datasource.replica", "stats.datasource.replica.lag");
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm.stats.dictionary;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Создается Hibernate через контейнер бинов Spring. Только читает словарь:
+ * при записи приложение уже зарегистрировано, в запросах неизвестное приложение ничего не находит.
+ */
+@Converter
+public class AppIdConverter implements AttributeConverter<String, Integer> {
+
+    private final HitDictionary hitDictionary;
+
+    // словарь зависит от менеджера транзакций, а конвертер создается вместе с EntityManagerFactory
+    public AppIdConverter(@Lazy HitDictionary hitDictionary) {
+        this.hitDictionary = hitDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String app) {
+        return app == null ? null : hitDictionary.findAppId(app);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : hitDictionary.appName(id);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.ewm.stats.dictionary;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.StatsKey;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словари приложений и uri: в hits и агрегатах вместо строк хранятся их id.
+ * Значения кешируются в памяти навсегда - приложений единицы, uri ограничены числом событий.
+ * Новые значения регистрируются в отдельной транзакции, чтобы откат записи хитов не оставил в кеше
+ * id, которого нет в базе.
+ */
+@Component
+public class HitDictionary {
+
+    // id, которого нет в словаре: фильтр по неизвестным значениям ничего не находит
+    public static final int UNKNOWN_ID = -1;
+
+    private final Dictionary apps;
+    private final Dictionary uris;
+
+    public HitDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.apps = new Dictionary("apps", jdbcTemplate, transactionTemplate);
+        this.uris = new Dictionary("uris", jdbcTemplate, transactionTemplate);
+    }
+
+    public void registerAll(Collection<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            apps.register(hit.getApp());
+            uris.register(hit.getUri());
+        }
+    }
+
+    public int appId(String app) {
+        return apps.register(app);
+    }
+
+    public int uriId(String uri) {
+        return uris.register(uri);
+    }
+
+    public int findAppId(String app) {
+        return apps.find(app);
+    }
+
+    public int findUriId(String uri) {
+        return uris.find(uri);
+    }
+
+    // id для фильтра по uri, null - без фильтра
+    public List<Integer> findUriIds(List<String> uriNames) {
+        if (uriNames == null || uriNames.isEmpty()) {
+            return null;
+        }
+        List<Integer> ids = uriNames.stream()
+                .map(uris::find)
+                .filter(id -> id != UNKNOWN_ID)
+                .distinct()
+                .toList();
+        return ids.isEmpty() ? List.of(UNKNOWN_ID) : ids;
+    }
+
+    public String appName(int id) {
+        return apps.name(id);
+    }
+
+    public String uriName(int id) {
+        return uris.name(id);
+    }
+
+    public StatsKey key(int appId, int uriId) {
+        return new StatsKey(apps.name(appId), uris.name(uriId));
+    }
+
+    // порядок первичного ключа таблиц по корзинам (uri_id, bucket, app_id) - в нем строки блокируются при записи
+    public Comparator<BucketKey> keyOrder() {
+        return Comparator
+                .comparingInt((BucketKey bucketKey) -> uriId(bucketKey.key().uri()))
+                .thenComparing(BucketKey::bucket)
+                .thenComparingInt(bucketKey -> appId(bucketKey.key().app()));
+    }
+
+    public MapSqlParameterSource keyParams(BucketKey key) {
+        return new MapSqlParameterSource()
+                .addValue("app", appId(key.key().app()))
+                .addValue("uri", uriId(key.key().uri()))
+                .addValue("bucket", key.bucket());
+    }
+
+    private static final class Dictionary {
+
+        private final String table;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        private Dictionary(String table, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+            this.table = table;
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = transactionTemplate;
+        }
+
+        int register(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            id = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("INSERT INTO " + table + " (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+                return jdbcTemplate.queryForObject("SELECT id FROM " + table + " WHERE name = ?", Integer.class, name);
+            });
+            cache(name, Objects.requireNonNull(id));
+            return id;
+        }
+
+        int find(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            List<Integer> found = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE name = ?",
+                    Integer.class, name);
+            if (found.isEmpty()) {
+                return UNKNOWN_ID;
+            }
+            cache(name, found.getFirst());
+            return found.getFirst();
+        }
+
+        String name(int id) {
+            String name = names.get(id);
+            if (name != null) {
+                return name;
+            }
+            name = jdbcTemplate.queryForObject("SELECT name FROM " + table + " WHERE id = ?", String.class, id);
+            cache(name, id);
+            return name;
+        }
+
+        private void cache(String name, int id) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.ewm.stats.dictionary;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.context.annotation.Lazy;
+
+// как AppIdConverter, но для uri
+@Converter
+public class UriIdConverter implements AttributeConverter<String, Integer> {
+
+    private final HitDictionary hitDictionary;
+
+    public UriIdConverter(@Lazy HitDictionary hitDictionary) {
+        this.hitDictionary = hitDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String uri) {
+        return uri == null ? null : hitDictionary.findUriId(uri);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : hitDictionary.uriName(id);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.embedded;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.logging.LoggingApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.StandardEnvironment;
+import ru.practicum.ewm.stats.StatsServiceApp;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.client.StatsGatewayProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * stats-server в процессе приложения-хозяина: отдельный контекст без веб-слоя со своей базой, планировщиками
+ * и application.yml этого модуля. Переменные окружения и системные свойства хозяина в контекст не попадают
+ * (SPRING_DATASOURCE_URL хозяина указывает на его базу), все отличия от application.yml - в properties.
+ */
+@Slf4j
+public class EmbeddedStatsGatewayProvider implements StatsGatewayProvider {
+
+    public static final String MODE = "embedded";
+
+    @Override
+    public String getMode() {
+        return MODE;
+    }
+
+    @Override
+    public StatsGateway create(Map<String, String> properties, MeterRegistry meterRegistry) {
+        String root = moduleRoot();
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("spring.config.location", root + "application.yml");
+        args.put("spring.sql.init.schema-locations", root + "schema.sql");
+        if (meterRegistry != null) {
+            // метрики идут в реестр хозяина и видны в его /actuator/prometheus
+            args.put("management.prometheus.metrics.export.enabled", "false");
+        }
+        args.putAll(properties);
+
+        SpringApplication application = new SpringApplicationBuilder(StatsServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .environment(new IsolatedEnvironment())
+                .registerShutdownHook(false)
+                .initializers(context -> {
+                    if (meterRegistry != null) {
+                        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+                    }
+                })
+                .build();
+        // логирование уже настроено хозяином, второй контекст перенастроил бы его для всего процесса
+        application.setListeners(application.getListeners().stream()
+                .filter(listener -> !(listener instanceof LoggingApplicationListener))
+                .toList());
+
+        ConfigurableApplicationContext context = application.run(args.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new));
+        log.info("Сервис статистики запущен в процессе приложения");
+        return new InProcessStatsGateway(context);
+    }
+
+    // корень классов модуля: первые попавшиеся в classpath application.yml и schema.sql принадлежат хозяину
+    private static String moduleRoot() {
+        String location = StatsServiceApp.class.getProtectionDomain().getCodeSource().getLocation().toString();
+        return location.endsWith(".jar") ? "jar:" + location + "!/" : location;
+    }
+
+    private static class IsolatedEnvironment extends StandardEnvironment {
+
+        @Override
+        protected void customizePropertySources(MutablePropertySources propertySources) {
+        }
+    }
+}
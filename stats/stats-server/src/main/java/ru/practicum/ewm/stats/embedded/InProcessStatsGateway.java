@@ -0,0 +1,55 @@
+package ru.practicum.ewm.stats.embedded;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.stats.client.StatsGateway;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * StatsGateway поверх StatsService того же процесса: без HTTP и JSON, DTO передаются как есть.
+ * Владеет контекстом stats-server и закрывает его вместе с собой.
+ */
+@Slf4j
+public class InProcessStatsGateway implements StatsGateway {
+
+    private final ConfigurableApplicationContext context;
+    private final StatsService statsService;
+
+    public InProcessStatsGateway(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.statsService = context.getBean(StatsService.class);
+    }
+
+    @Override
+    public void addHit(EndpointHitDto endpointHitDto) {
+        try {
+            statsService.addHit(endpointHitDto);
+        } catch (RuntimeException e) {
+            log.debug("Хит не сохранен: {}", e.getMessage());
+        }
+    }
+
+    // те же проверки, что у StatsClient, чтобы смена реализации не меняла поведение для вызывающего
+    @Override
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Даты начала и окончания должны быть заданы");
+        }
+
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Даты окончания должна быть позже даты начала");
+        }
+
+        return statsService.getStats(start, end, uris, Boolean.TRUE.equals(unique));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
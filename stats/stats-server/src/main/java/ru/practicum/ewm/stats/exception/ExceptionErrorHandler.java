@@ -2,8 +2,11 @@ package ru.practicum.ewm.stats.exception;
 
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -66,6 +69,35 @@ public class ExceptionErrorHandler {
                 .body(Map.of("error", e.getMessage()));
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Object> handleMessageNotReadable(HttpMessageNotReadableException e) {
+        log.warn("Ошибка разбора тела запроса: {}", e.getMessage());
+
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    // клиент по 415 понимает, что двоичный формат хитов не поддерживается, и переходит на JSON
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<Object> handleMediaTypeNotSupported(HttpMediaTypeNotSupportedException e) {
+        log.warn("Неподдерживаемый формат тела запроса: {}", e.getMessage());
+
+        return ResponseEntity
+                .status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Object> handleOverloaded(OverloadedException e) {
+        log.warn("Запрос отклонен из-за перегрузки: {}", e.getMessage());
+
+        return ResponseEntity
+                .status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
     @ExceptionHandler(Throwable.class)
     public ResponseEntity<Object> handleUnexpected(Throwable e) {
         log.error("НЕПРЕДВИДЕННАЯ ОШИБКА ОБРАБОТКИ: {}", e.getMessage());
@@ -0,0 +1,26 @@
+package ru.practicum.ewm.stats.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+// запрос не принят из-за перегрузки: 429 - слишком много одновременных запросов, 503 - запись не успевает
+public class OverloadedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public OverloadedException(HttpStatus status, Duration retryAfter, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
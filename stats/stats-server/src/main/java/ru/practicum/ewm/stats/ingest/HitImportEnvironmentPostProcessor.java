@@ -0,0 +1,27 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Запуск с stats.import.file дописывает хиты в существующую базу: schema.sql при таком старте не выполняется
+ * и веб-сервер не поднимается, что бы ни было задано в настройках. Иначе schema.sql пересоздала бы таблицы.
+ */
+public class HitImportEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String SOURCE = "statsImport";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.containsProperty("stats.import.file")) {
+            return;
+        }
+        environment.getPropertySources().addFirst(new MapPropertySource(SOURCE, Map.of(
+                "spring.sql.init.mode", "never",
+                "spring.main.web-application-type", "none")));
+    }
+}
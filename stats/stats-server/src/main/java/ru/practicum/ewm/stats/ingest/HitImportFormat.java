@@ -0,0 +1,23 @@
+package ru.practicum.ewm.stats.ingest;
+
+public enum HitImportFormat {
+    // app,uri,ip,timestamp в строке, необязательная строка заголовка, поля с запятыми - в двойных кавычках
+    CSV,
+    // EndpointHitDto в JSON по одному в строке
+    NDJSON;
+
+    // по расширению файла, .gz не учитывается
+    public static HitImportFormat fromFileName(String name) {
+        String lower = name.toLowerCase();
+        if (lower.endsWith(".gz")) {
+            lower = lower.substring(0, lower.length() - 3);
+        }
+        if (lower.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Неизвестный формат файла хитов: " + name);
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.ewm.stats.ingest;
+
+// rejected - пропущенные строки с некорректными полями
+public record HitImportResult(long rows, long rejected, long millis, long rowsPerSecond) {
+}
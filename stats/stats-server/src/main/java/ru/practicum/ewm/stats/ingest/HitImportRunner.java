@@ -0,0 +1,69 @@
+package ru.practicum.ewm.stats.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Импорт из командной строки: после старта загружает stats.import.file и завершает процесс.
+ * "-" - стандартный ввод, файлы *.gz распаковываются на лету.
+ * <pre>
+ * java -jar stats-server.jar --stats.import.file=hits.csv.gz
+ * </pre>
+ * schema.sql и веб-сервер при таком запуске выключает {@link HitImportEnvironmentPostProcessor}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.import.file")
+public class HitImportRunner implements ApplicationRunner {
+
+    private final HitImporter hitImporter;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${stats.import.file}")
+    private String file;
+
+    // CSV или NDJSON, по умолчанию - по расширению файла
+    @Value("${stats.import.format:}")
+    private String format;
+
+    public HitImportRunner(HitImporter hitImporter, ConfigurableApplicationContext context) {
+        this.hitImporter = hitImporter;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        HitImportFormat importFormat = format.isBlank()
+                ? HitImportFormat.fromFileName(file)
+                : HitImportFormat.valueOf(format.toUpperCase());
+        log.info("Импорт хитов из {} в формате {}", file, importFormat);
+
+        HitImportResult result;
+        try (InputStream input = open()) {
+            result = hitImporter.importHits(input, importFormat);
+        }
+        log.info("Импорт хитов завершен: записано {}, пропущено {}, {} мс, {} строк/с",
+                result.rows(), result.rejected(), result.millis(), result.rowsPerSecond());
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    private InputStream open() throws IOException {
+        if (file.equals("-")) {
+            return System.in;
+        }
+        InputStream input = Files.newInputStream(Path.of(file));
+        return file.endsWith(".gz") ? new GZIPInputStream(input, 1 << 16) : input;
+    }
+}
@@ -0,0 +1,240 @@
+package ru.practicum.ewm.stats.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.IpAddresses;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.sketch.HllUniqueService;
+import ru.practicum.ewm.stats.sketch.IpBitmapService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Массовая загрузка исторических хитов: строки CSV или NDJSON читаются потоком и пишутся в hits через COPY
+ * пачками по batch-size, каждая пачка - своей транзакцией. Агрегаты, скетчи и битмапы пачками не обновляются:
+ * после каждых rebuild-rows строк и в конце они пересчитываются из hits по записанным хитам несколькими запросами.
+ * До пересчета эти хиты видны только точному подсчету по сырым хитам; при сбое импорта между записью и пересчетом
+ * агрегатов по последним строкам не будет. Строки с некорректными полями пропускаются.
+ */
+@Slf4j
+@Component
+public class HitImporter {
+
+    // шаг hit_seq и allocationSize генератора id в EndpointHit
+    private static final int ID_BLOCK = 50;
+    private static final int MAX_LOGGED_REJECTS = 10;
+    private static final int PROGRESS_EVERY_BATCHES = 20;
+    private static final String CSV_HEADER = "app,uri,ip,timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HitDictionary hitDictionary;
+    private final HitRollupService hitRollupService;
+    private final HllUniqueService hllUniqueService;
+    private final IpBitmapService ipBitmapService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stats.import.batch-size:50000}")
+    private int batchSize;
+
+    @Value("${stats.import.rebuild-rows:1000000}")
+    private long rebuildRows;
+
+    public HitImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher, HitDictionary hitDictionary,
+                       HitRollupService hitRollupService, HllUniqueService hllUniqueService,
+                       IpBitmapService ipBitmapService, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.hitDictionary = hitDictionary;
+        this.hitRollupService = hitRollupService;
+        this.hllUniqueService = hllUniqueService;
+        this.ipBitmapService = ipBitmapService;
+        this.objectMapper = objectMapper;
+    }
+
+    public HitImportResult importHits(InputStream input, HitImportFormat format) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        long rejected = 0;
+        int batches = 0;
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        ImportedHits imported = new ImportedHits();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || lineNumber == 1 && format == HitImportFormat.CSV
+                    && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                continue;
+            }
+            try {
+                batch.add(format == HitImportFormat.CSV ? parseCsv(line) : parseNdjson(line));
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                if (++rejected <= MAX_LOGGED_REJECTS) {
+                    log.warn("Импорт хитов: строка {} пропущена: {}", lineNumber, e.getMessage());
+                }
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                rows += write(batch, imported);
+                batch = new ArrayList<>(batchSize);
+                if (imported.getRows() >= rebuildRows) {
+                    rebuild(imported);
+                    imported = new ImportedHits();
+                }
+                if (++batches % PROGRESS_EVERY_BATCHES == 0) {
+                    log.info("Импорт хитов: записано {}, {} строк/с", rows, rowsPerSecond(rows, started));
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            rows += write(batch, imported);
+        }
+        rebuild(imported);
+
+        long millis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        return new HitImportResult(rows, rejected, millis, rowsPerSecond(rows, started));
+    }
+
+    private int write(List<EndpointHit> batch, ImportedHits imported) {
+        hitDictionary.registerAll(batch);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> blocks = jdbcTemplate.queryForList("SELECT nextval('hit_seq') FROM generate_series(1, ?)",
+                    Long.class, (batch.size() + ID_BLOCK - 1) / ID_BLOCK);
+            StringBuilder rows = new StringBuilder(batch.size() * 64);
+            for (int i = 0; i < batch.size(); i++) {
+                EndpointHit hit = batch.get(i);
+                // как у генератора Hibernate: значение последовательности - последний id блока
+                hit.setId(blocks.get(i / ID_BLOCK) - ID_BLOCK + 1 + i % ID_BLOCK);
+                imported.add(hit);
+                rows.append(hit.getId()).append(',')
+                        .append(hitDictionary.appId(hit.getApp())).append(',')
+                        .append(hitDictionary.uriId(hit.getUri())).append(',')
+                        .append(address(hit.getIp())).append(',')
+                        .append(hit.getTimestamp()).append('\n');
+            }
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                            "COPY hits (id, app_id, uri_id, ip, timestamp) FROM STDIN WITH (FORMAT csv)",
+                            new StringReader(rows.toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            eventPublisher.publishEvent(new HitsSavedEvent(batch, true));
+        });
+        return batch.size();
+    }
+
+    private void rebuild(ImportedHits imported) {
+        if (imported.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> hitRollupService.addImported(imported));
+        hllUniqueService.addImported(imported);
+        ipBitmapService.addImported(imported);
+        log.info("Импорт хитов: агрегаты, скетчи и битмапы по {} строкам с {} по {} пересчитаны за {} мс",
+                imported.getRows(), imported.getFrom(), imported.getTo(),
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private EndpointHit parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("ожидалось 4 поля app,uri,ip,timestamp, получено " + fields.size());
+        }
+        return toHit(fields.get(0), fields.get(1), fields.get(2), LocalDateTime.parse(fields.get(3).replace(' ', 'T')));
+    }
+
+    private EndpointHit parseNdjson(String line) throws JsonProcessingException {
+        EndpointHitDto dto = objectMapper.readValue(line, EndpointHitDto.class);
+        if (dto.getTimestamp() == null) {
+            throw new IllegalArgumentException("не задано время");
+        }
+        return toHit(dto.getApp(), dto.getUri(), dto.getIp(), dto.getTimestamp());
+    }
+
+    private static EndpointHit toHit(String app, String uri, String ip, LocalDateTime timestamp) {
+        if (app == null || app.isBlank() || uri == null || uri.isBlank()) {
+            throw new IllegalArgumentException("не заданы app или uri");
+        }
+        if (ip == null || IpAddresses.parse(ip) == null) {
+            throw new IllegalArgumentException("некорректный ip: " + ip);
+        }
+        return new EndpointHit(null, app, uri, ip, timestamp);
+    }
+
+    // тот же адрес, что пишет в inet конвертер JPA; строка клиента остается в хите для скетчей
+    private static String address(String ip) {
+        InetAddress address = IpAddresses.parse(ip);
+        return address.getHostAddress();
+    }
+
+    // поля через запятую, поле в двойных кавычках может содержать запятые и удвоенные кавычки
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static long rowsPerSecond(long rows, long startedNanos) {
+        long nanos = Math.max(1, System.nanoTime() - startedNanos);
+        return rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.stats.ingest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный неблокирующий кольцевой буфер: много писателей, один читатель.
+ * У каждой ячейки свой счетчик, по которому писатель понимает, свободна ли ячейка,
+ * а читатель - опубликован ли в ней элемент. Блокировок нет, писатели конкурируют только за CAS хвоста.
+ */
+public class HitRingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public HitRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Емкость буфера должна быть не меньше 2");
+        }
+        capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        mask = capacity - 1;
+        items = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // вызывать только из потока-читателя
+    public T poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T item = items.get(index);
+        items.set(index, null);
+        sequences.set(index, position + capacity);
+        head.lazySet(position + 1);
+        return item;
+    }
+
+    // вызывать только из потока-читателя
+    public int drainTo(List<T> target, int limit) {
+        int drained = 0;
+        T item;
+        while (drained < limit && (item = poll()) != null) {
+            target.add(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,192 @@
+package ru.practicum.ewm.stats.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.repository.StatsRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Отложенная групповая запись одиночных хитов: запросы складывают хиты в кольцевой буфер,
+ * выделенный поток раз в commit-interval забирает накопленное и пишет одной транзакцией.
+ * Запрос ждет фиксации не дольше commit-timeout; хиты, оставшиеся в буфере после остановки записи,
+ * завершаются отказом, а не висят.
+ */
+@Slf4j
+@Component
+public class HitWriteBehindBuffer {
+
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final IngestDurability durability;
+    private final Duration commitInterval;
+    private final int maxBatch;
+    private final Duration commitTimeout;
+    private final HitRingBuffer<PendingHit> ring;
+    private Thread writer;
+    private volatile boolean running;
+
+    public HitWriteBehindBuffer(
+            StatsRepository statsRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${stats.ingest.write-behind.enabled:false}") boolean enabled,
+            @Value("${stats.ingest.write-behind.durability:commit}") IngestDurability durability,
+            @Value("${stats.ingest.write-behind.capacity:65536}") int capacity,
+            @Value("${stats.ingest.write-behind.commit-interval:5ms}") Duration commitInterval,
+            @Value("${stats.ingest.write-behind.max-batch:5000}") int maxBatch,
+            @Value("${stats.ingest.write-behind.commit-timeout:5s}") Duration commitTimeout
+    ) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.durability = durability;
+        this.commitInterval = commitInterval;
+        this.maxBatch = maxBatch;
+        this.commitTimeout = commitTimeout;
+        this.ring = new HitRingBuffer<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "stats-hit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Запущена групповая запись хитов: режим {}, интервал {}, буфер {}",
+                durability, commitInterval, ring.capacity());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(Duration.ofSeconds(10).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // читатель у буфера один: пока поток записи жив, остаток забирает он, иначе ожидающих спасет только таймаут
+        if (writer.isAlive()) {
+            return;
+        }
+        List<PendingHit> left = new ArrayList<>(maxBatch);
+        OverloadedException stopped = new OverloadedException(HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1),
+                "Групповая запись хитов остановлена");
+        while (ring.drainTo(left, maxBatch) > 0) {
+            left.forEach(pending -> fail(pending, stopped));
+            log.warn("Не записано {} хитов, поставленных после остановки", left.size());
+            left.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public IngestDurability getDurability() {
+        return durability;
+    }
+
+    public int getDepth() {
+        return ring.size();
+    }
+
+    /**
+     * Ставит хит в буфер. В режиме COMMIT возвращает future, который завершится после фиксации транзакции,
+     * в режиме ENQUEUE - уже завершенный future. Если буфер переполнен, возвращает null.
+     */
+    public CompletableFuture<EndpointHit> submit(EndpointHit hit) {
+        CompletableFuture<EndpointHit> committed = durability == IngestDurability.COMMIT
+                ? new CompletableFuture<>()
+                : null;
+        if (!running || !ring.offer(new PendingHit(hit, committed))) {
+            return null;
+        }
+        return committed != null ? committed : CompletableFuture.completedFuture(hit);
+    }
+
+    // ошибка записи пробрасывается своим исключением, а не оберткой CompletionException
+    public EndpointHit await(CompletableFuture<EndpointHit> committed) {
+        try {
+            return committed.get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new OverloadedException(HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1),
+                    "Хит не зафиксирован за " + commitTimeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание фиксации хита прервано", e);
+        }
+    }
+
+    private void run() {
+        List<PendingHit> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            long cycleStart = System.nanoTime();
+            ring.drainTo(batch, maxBatch);
+            commit(batch);
+            long pause = commitInterval.toNanos() - (System.nanoTime() - cycleStart);
+            if (pause > 0 && running) {
+                LockSupport.parkNanos(this, pause);
+            }
+        }
+        while (ring.drainTo(batch, maxBatch) > 0) {
+            commit(batch);
+        }
+    }
+
+    private void commit(List<PendingHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<EndpointHit> hits = batch.stream().map(PendingHit::hit).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> statsRepository.insertAll(hits));
+            batch.forEach(pending -> {
+                if (pending.committed() != null) {
+                    pending.committed().complete(pending.hit());
+                }
+            });
+        } catch (Exception e) {
+            log.error("Не удалось записать пачку из {} хитов: {}", hits.size(), e.getMessage());
+            batch.forEach(pending -> fail(pending, e));
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private static void fail(PendingHit pending, Exception e) {
+        if (pending.committed() != null) {
+            pending.committed().completeExceptionally(e);
+        }
+    }
+
+    private record PendingHit(EndpointHit hit, CompletableFuture<EndpointHit> committed) {
+    }
+}
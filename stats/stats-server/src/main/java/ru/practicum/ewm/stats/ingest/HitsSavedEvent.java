@@ -0,0 +1,17 @@
+package ru.practicum.ewm.stats.ingest;
+
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Публикуется внутри транзакции, в которой сохранены хиты. Синхронные слушатели выполняются в той же транзакции,
+ * слушатели фазы AFTER_COMMIT видят только зафиксированные данные.
+ * Для хитов импорта imported = true: агрегаты, скетчи и битмапы по ним HitImporter пересчитывает из hits сам.
+ */
+public record HitsSavedEvent(List<EndpointHit> hits, boolean imported) {
+
+    public HitsSavedEvent(List<EndpointHit> hits) {
+        this(hits, false);
+    }
+}
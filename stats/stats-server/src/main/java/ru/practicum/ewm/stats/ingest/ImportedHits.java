@@ -0,0 +1,63 @@
+package ru.practicum.ewm.stats.ingest;
+
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хиты, записанные импортом, для пересчета производных данных из hits: диапазоны id из блоков hit_seq,
+ * выданных импорту, и границы времени для отсечения секций. Соседние блоки склеиваются, хиты параллельной
+ * записи получают другие блоки и в диапазоны не попадают.
+ */
+public class ImportedHits {
+
+    private final List<Long> idFrom = new ArrayList<>();
+    private final List<Long> idTo = new ArrayList<>();
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long rows;
+
+    public void add(EndpointHit hit) {
+        long id = hit.getId();
+        int last = idTo.size() - 1;
+        if (last >= 0 && idTo.get(last) == id - 1) {
+            idTo.set(last, id);
+        } else {
+            idFrom.add(id);
+            idTo.add(id);
+        }
+        if (from == null || hit.getTimestamp().isBefore(from)) {
+            from = hit.getTimestamp();
+        }
+        if (to == null || hit.getTimestamp().isAfter(to)) {
+            to = hit.getTimestamp();
+        }
+        rows++;
+    }
+
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public Long[] getIdFrom() {
+        return idFrom.toArray(Long[]::new);
+    }
+
+    public Long[] getIdTo() {
+        return idTo.toArray(Long[]::new);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.ewm.stats.ingest;
+
+public enum IngestDurability {
+    // ответ сразу после постановки в буфер, при падении сервиса непереданные хиты теряются
+    ENQUEUE,
+    // ответ после фиксации транзакции, в которую попал хит
+    COMMIT
+}
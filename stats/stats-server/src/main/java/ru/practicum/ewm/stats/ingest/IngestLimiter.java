@@ -0,0 +1,167 @@
+package ru.practicum.ewm.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Допуск запросов записи хитов. Одновременно выполняется не больше limit запросов, limit подстраивается
+ * по времени ответа (AIMD): запрос дольше target-latency уменьшает его в BACKOFF раз, быстрый запрос
+ * при занятом лимите прибавляет 1/limit, то есть около единицы за limit запросов.
+ * Сверх лимита запрос ждет в очереди не дольше max-wait; при полной очереди сразу получает 429,
+ * по истечении ожидания - 503, в обоих случаях с Retry-After по текущей задержке записи.
+ */
+@Component
+public class IngestLimiter {
+
+    private static final double BACKOFF = 0.9;
+    private static final double SMOOTHING = 0.1;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final Map<String, Counter> shed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double latencyNanos;
+
+    public IngestLimiter(@Value("${stats.ingest.limit.enabled:false}") boolean enabled,
+                         @Value("${stats.ingest.limit.initial:20}") int initialLimit,
+                         @Value("${stats.ingest.limit.min:2}") int minLimit,
+                         @Value("${stats.ingest.limit.max:200}") int maxLimit,
+                         @Value("${stats.ingest.limit.target-latency:250ms}") Duration targetLatency,
+                         @Value("${stats.ingest.limit.queue:100}") int queueCapacity,
+                         @Value("${stats.ingest.limit.max-wait:50ms}") Duration maxWait,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        this.shed = Map.of(
+                "queue_full", shedCounter(meterRegistry, "queue_full"),
+                "timeout", shedCounter(meterRegistry, "timeout"),
+                "buffer_full", shedCounter(meterRegistry, "buffer_full"));
+        Gauge.builder("stats.ingest.limit", this, IngestLimiter::getLimit)
+                .description("Текущий предел одновременных запросов записи хитов")
+                .register(meterRegistry);
+        Gauge.builder("stats.ingest.in_flight", this, limiter -> limiter.locked(() -> limiter.inFlight))
+                .description("Выполняющиеся запросы записи хитов")
+                .register(meterRegistry);
+        Gauge.builder("stats.ingest.queued", this, limiter -> limiter.locked(() -> limiter.waiting))
+                .description("Запросы записи хитов, ждущие допуска")
+                .register(meterRegistry);
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("stats.ingest.shed")
+                .description("Запросы записи хитов, отклоненные из-за перегрузки")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLimit() {
+        return locked(() -> (int) limit);
+    }
+
+    /**
+     * Допускает запрос или бросает OverloadedException. Возвращает момент допуска,
+     * его нужно передать в release по завершении запроса.
+     */
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return System.nanoTime();
+            }
+            if (waiting >= queueCapacity) {
+                throw reject(HttpStatus.TOO_MANY_REQUESTS, "queue_full", "Слишком много одновременных запросов записи");
+            }
+            waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw reject(HttpStatus.SERVICE_UNAVAILABLE, "timeout", "Запись хитов не успевает");
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(HttpStatus.SERVICE_UNAVAILABLE, "timeout", "Ожидание допуска прервано");
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long admittedAt) {
+        long latency = System.nanoTime() - admittedAt;
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            latencyNanos = latencyNanos == 0 ? latency : latencyNanos + SMOOTHING * (latency - latencyNanos);
+            if (latency > targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // отказ без ожидания, например при переполненном буфере групповой записи
+    public OverloadedException reject(HttpStatus status, String reason, String message) {
+        shed.get(reason).increment();
+        return new OverloadedException(status, retryAfter(), message);
+    }
+
+    // примерно столько уйдет на запросы, уже стоящие в очереди, но не меньше секунды
+    private Duration retryAfter() {
+        return locked(() -> {
+            double perRequest = Math.max(latencyNanos, targetLatencyNanos) / limit;
+            long seconds = (long) Math.ceil(perRequest * (waiting + 1) / 1_000_000_000d);
+            return Duration.ofSeconds(Math.max(1, seconds));
+        });
+    }
+
+    private <T> T locked(java.util.function.Supplier<T> supplier) {
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
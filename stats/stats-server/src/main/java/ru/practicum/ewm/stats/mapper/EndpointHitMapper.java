@@ -1,13 +1,19 @@
 package ru.practicum.ewm.stats.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 import ru.practicum.ewm.stats.model.EndpointHit;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface EndpointHitMapper {
 
     EndpointHit toEndpointHit(EndpointHitDto endpointHitDto);
 
+    List<EndpointHit> toEndpointHits(List<EndpointHitDto> endpointHitDtos);
+
+    @Mapping(target = "count", ignore = true)
     EndpointHitDto toEndpointHitDto(EndpointHit endpointHit);
 }
@@ -0,0 +1,175 @@
+package ru.practicum.ewm.stats.memory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.partition.HitsDroppedEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Неуникальная статистика за последние stats.memory.window из памяти, без обращения к базе.
+ * Окно восстанавливается из hits до старта веб-сервера и дальше пополняется зафиксированными хитами
+ * этого экземпляра, поэтому рассчитано на один экземпляр сервиса статистики.
+ */
+@Slf4j
+@Service
+public class HotStatsService implements SmartInitializingSingleton {
+
+    // хиты с часами, убежавшими вперед больше чем на час, в окно не попадают
+    private static final Duration FUTURE_SLACK = Duration.ofHours(1);
+    private static final Duration END_SLACK = Duration.ofMinutes(1);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private HotStatsWindow window;
+    private volatile boolean ready;
+
+    @Value("${stats.memory.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.memory.window:PT24H}")
+    private Duration windowDuration;
+
+    public HotStatsService(NamedParameterJdbcTemplate jdbcTemplate, HitDictionary hitDictionary,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        Gauge.builder("stats.memory.size", this, HotStatsService::getSizeInBytes)
+                .description("Память счетчиков окна неуникальной статистики")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        window = new HotStatsWindow((int) Math.ceilDiv(windowDuration.toMinutes(), 60));
+        LocalDateTime from = LocalDateTime.now().minus(windowDuration);
+        long started = System.nanoTime();
+        long[] rows = new long[1];
+
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query("""
+                    SELECT app_id, uri_id, timestamp, COUNT(*) AS hits
+                      FROM hits
+                     WHERE timestamp >= :from
+                     GROUP BY app_id, uri_id, timestamp
+                    """, new MapSqlParameterSource("from", from), rs -> {
+                window.add(HotStatsWindow.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                        rs.getObject("timestamp", LocalDateTime.class), rs.getLong("hits"));
+                rows[0]++;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        log.info("Окно статистики в памяти с {} восстановлено из {} строк за {} мс", from, rows[0],
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minus(windowDuration);
+        LocalDateTime to = now.plus(FUTURE_SLACK);
+
+        lock.writeLock().lock();
+        try {
+            for (EndpointHit hit : event.hits()) {
+                if (!hit.getTimestamp().isBefore(from) && hit.getTimestamp().isBefore(to)) {
+                    window.add(HotStatsWindow.key(hitDictionary.appId(hit.getApp()), hitDictionary.uriId(hit.getUri())),
+                            hit.getTimestamp(), 1);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // retention короче окна: удаленные из базы хиты убираются и из окна
+    @EventListener
+    public void onHitsDropped(HitsDroppedEvent event) {
+        if (!ready || !event.before().isAfter(LocalDateTime.now().minus(windowDuration))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            window.removeBefore(event.before());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Из окна статистики в памяти удалены хиты раньше {}", event.before());
+    }
+
+    // в окне есть все хиты интервала: его начало не раньше начала окна, а конец - не в будущем
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!ready || start.isAfter(end)) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return !start.isBefore(now.minus(windowDuration)) && !end.isAfter(now.plus(END_SLACK));
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = hitDictionary.findUriIds(uris);
+        IntPredicate uriFilter = null;
+        if (uriIds != null) {
+            Set<Integer> allowed = new HashSet<>(uriIds);
+            uriFilter = allowed::contains;
+        }
+
+        LongLongHashMap counts;
+        lock.readLock().lock();
+        try {
+            counts = window.count(start, end, uriFilter);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ViewStatsDto> result = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> result.add(new ViewStatsDto(hitDictionary.appName(HotStatsWindow.appId(key)),
+                hitDictionary.uriName(HotStatsWindow.uriId(key)), hits)));
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+
+    private double getSizeInBytes() {
+        if (!ready) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return window.getSizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
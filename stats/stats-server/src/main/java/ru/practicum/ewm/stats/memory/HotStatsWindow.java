@@ -0,0 +1,203 @@
+package ru.practicum.ewm.stats.memory;
+
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Счетчики хитов за последние дни в кольцевых массивах корзин: часовых, минутных и секундных внутри минуты.
+ * Ключ счетчика - (appId << 32 | uriId). Корзина хранит номер своего периода, поэтому чужая
+ * (от предыдущего оборота кольца) читается как пустая и очищается при первой записи.
+ * Интервал раскладывается на целые часы, минуты и секунды, хиты приходят с точностью до секунды.
+ * Не потокобезопасен.
+ */
+public class HotStatsWindow {
+
+    private static final ChronoUnit[] LEVELS = {ChronoUnit.HOURS, ChronoUnit.MINUTES, ChronoUnit.SECONDS};
+
+    private final Slot[] hours;
+    private final MinuteSlot[] minutes;
+
+    public HotStatsWindow(int hours) {
+        // запас в час, чтобы хиты с часами, убежавшими вперед, не затирали начало окна
+        this.hours = new Slot[hours + 2];
+        this.minutes = new MinuteSlot[(hours + 2) * 60];
+    }
+
+    public static long key(int appId, int uriId) {
+        return (long) appId << 32 | (uriId & 0xFFFFFFFFL);
+    }
+
+    public static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int uriId(long key) {
+        return (int) key;
+    }
+
+    public void add(long key, LocalDateTime timestamp, long count) {
+        long second = timestamp.toEpochSecond(ZoneOffset.UTC);
+        long minute = Math.floorDiv(second, 60);
+        long hour = Math.floorDiv(minute, 60);
+
+        hourSlot(hour, true).counts.addTo(key, count);
+        MinuteSlot minuteSlot = minuteSlot(minute, true);
+        minuteSlot.counts.addTo(key, count);
+        int secondIndex = (int) Math.floorMod(second, 60);
+        if (minuteSlot.seconds[secondIndex] == null) {
+            minuteSlot.seconds[secondIndex] = new LongLongHashMap();
+        }
+        minuteSlot.seconds[secondIndex].addTo(key, count);
+    }
+
+    // очищает корзины, целиком лежащие раньше before; граница удаления секций - начало суток,
+    // поэтому корзин, которые она делит, не бывает
+    public void removeBefore(LocalDateTime before) {
+        long second = epoch(before);
+        for (Slot slot : hours) {
+            if (slot != null && slot.period < Math.floorDiv(second, 3600)) {
+                slot.reset(Long.MIN_VALUE);
+            }
+        }
+        for (MinuteSlot slot : minutes) {
+            if (slot != null && slot.period < Math.floorDiv(second, 60)) {
+                slot.reset(Long.MIN_VALUE);
+            }
+        }
+    }
+
+    public LongLongHashMap count(LocalDateTime start, LocalDateTime end, IntPredicate uriFilter) {
+        LongLongHashMap result = new LongLongHashMap();
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, LEVELS);
+
+        for (TimeSlice slice : split.getBuckets(ChronoUnit.HOURS)) {
+            for (long hour = epoch(slice.from()) / 3600; hour < epoch(slice.to()) / 3600; hour++) {
+                Slot slot = hourSlot(hour, false);
+                if (slot != null) {
+                    addFiltered(result, slot.counts, uriFilter);
+                }
+            }
+        }
+        for (TimeSlice slice : split.getBuckets(ChronoUnit.MINUTES)) {
+            for (long minute = epoch(slice.from()) / 60; minute < epoch(slice.to()) / 60; minute++) {
+                MinuteSlot slot = minuteSlot(minute, false);
+                if (slot != null) {
+                    addFiltered(result, slot.counts, uriFilter);
+                }
+            }
+        }
+        for (TimeSlice slice : split.getBuckets(ChronoUnit.SECONDS)) {
+            addSeconds(result, epoch(slice.from()), epoch(slice.to()), uriFilter);
+        }
+        // в сырых краях остаются только доли секунды и точка конца интервала
+        for (TimeSlice slice : split.getRaw()) {
+            long first = epoch(TimeRangeSplit.ceil(slice.from(), ChronoUnit.SECONDS));
+            long last = epoch(slice.to().truncatedTo(ChronoUnit.SECONDS));
+            boolean lastIncluded = slice.toInclusive() || slice.to().getNano() > 0;
+            addSeconds(result, first, lastIncluded ? last + 1 : last, uriFilter);
+        }
+        return result;
+    }
+
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Slot slot : hours) {
+            size += slot == null ? 0 : slot.counts.getSizeInBytes();
+        }
+        for (MinuteSlot slot : minutes) {
+            if (slot != null) {
+                size += slot.counts.getSizeInBytes();
+                for (LongLongHashMap second : slot.seconds) {
+                    size += second == null ? 0 : second.getSizeInBytes();
+                }
+            }
+        }
+        return size;
+    }
+
+    private void addSeconds(LongLongHashMap result, long fromSecond, long toSecond, IntPredicate uriFilter) {
+        for (long second = fromSecond; second < toSecond; second++) {
+            MinuteSlot slot = minuteSlot(Math.floorDiv(second, 60), false);
+            LongLongHashMap counts = slot == null ? null : slot.seconds[(int) Math.floorMod(second, 60)];
+            if (counts != null) {
+                addFiltered(result, counts, uriFilter);
+            }
+        }
+    }
+
+    private static void addFiltered(LongLongHashMap result, LongLongHashMap counts, IntPredicate uriFilter) {
+        if (uriFilter == null) {
+            result.addAll(counts);
+            return;
+        }
+        counts.forEach((key, count) -> {
+            if (uriFilter.test(uriId(key))) {
+                result.addTo(key, count);
+            }
+        });
+    }
+
+    private Slot hourSlot(long hour, boolean forWrite) {
+        int index = (int) Math.floorMod(hour, hours.length);
+        Slot slot = hours[index];
+        if (slot != null && slot.period == hour) {
+            return slot;
+        }
+        if (!forWrite) {
+            return null;
+        }
+        if (slot == null) {
+            slot = new Slot();
+            hours[index] = slot;
+        }
+        slot.reset(hour);
+        return slot;
+    }
+
+    private MinuteSlot minuteSlot(long minute, boolean forWrite) {
+        int index = (int) Math.floorMod(minute, minutes.length);
+        MinuteSlot slot = minutes[index];
+        if (slot != null && slot.period == minute) {
+            return slot;
+        }
+        if (!forWrite) {
+            return null;
+        }
+        if (slot == null) {
+            slot = new MinuteSlot();
+            minutes[index] = slot;
+        }
+        slot.reset(minute);
+        return slot;
+    }
+
+    private static long epoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static class Slot {
+        long period = Long.MIN_VALUE;
+        final LongLongHashMap counts = new LongLongHashMap();
+
+        void reset(long period) {
+            this.period = period;
+            counts.clear();
+        }
+    }
+
+    private static class MinuteSlot extends Slot {
+        final LongLongHashMap[] seconds = new LongLongHashMap[60];
+
+        @Override
+        void reset(long period) {
+            super.reset(period);
+            Arrays.fill(seconds, null);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.ewm.stats.memory;
+
+import java.util.Arrays;
+
+/**
+ * Счетчики long -> long с открытой адресацией и линейным пробированием, без упаковки в Long.
+ * Ключ 0 зарезервирован под пустую ячейку. Не потокобезопасна.
+ */
+public class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 <= expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public void addTo(long key, long delta) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Ключ 0 зарезервирован");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    public long get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0L;
+    }
+
+    public void addAll(LongLongHashMap other) {
+        long[] otherKeys = other.keys;
+        long[] otherValues = other.values;
+        for (int i = 0; i < otherKeys.length; i++) {
+            if (otherKeys[i] != EMPTY) {
+                addTo(otherKeys[i], otherValues[i]);
+            }
+        }
+    }
+
+    public void forEach(LongLongConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (keys.length > MIN_CAPACITY * 8) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(keys, EMPTY);
+        }
+        size = 0;
+    }
+
+    public long getSizeInBytes() {
+        return 16L * keys.length;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                addTo(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
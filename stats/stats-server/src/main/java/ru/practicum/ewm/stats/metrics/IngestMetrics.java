@@ -0,0 +1,56 @@
+package ru.practicum.ewm.stats.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// записанные хиты по приложениям после фиксации - и /hit, и /hits, и импорт.
+// app приходит от клиента, поэтому тегов не больше stats.metrics.max-apps, хиты остальных приложений - под other
+@Component
+public class IngestMetrics {
+
+    static final String OTHER_APP = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxApps;
+    private final Set<String> apps = new HashSet<>();
+
+    public IngestMetrics(MeterRegistry meterRegistry, @Value("${stats.metrics.max-apps:100}") int maxApps) {
+        this.meterRegistry = meterRegistry;
+        this.maxApps = maxApps;
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        Map<String, Long> perApp = new HashMap<>();
+        for (EndpointHit hit : event.hits()) {
+            perApp.merge(hit.getApp(), 1L, Long::sum);
+        }
+        perApp.forEach((app, hits) -> Counter.builder("stats.ingest.hits")
+                .description("Записанные хиты")
+                .tag("app", appTag(app))
+                .register(meterRegistry)
+                .increment(hits));
+        DistributionSummary.builder("stats.ingest.batch")
+                .description("Хитов в одной записи в базу")
+                .register(meterRegistry)
+                .record(event.hits().size());
+    }
+
+    private synchronized String appTag(String app) {
+        if (apps.contains(app) || apps.size() < maxApps && apps.add(app)) {
+            return app;
+        }
+        return OTHER_APP;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.ewm.stats.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Метрики запросов статистики по источнику ответа (variant): memory, rollup, hll, bitmap, sharded, archive,
+ * raw - четыре запроса StatsRepository, различаются тегами unique и filtered (задан ли список uri), stream, top,
+ * timeseries. stats.query - время до получения результата, без сериализации ответа (она в
+ * stats.response.serialization), stats.query.uris - длина списка uri, stats.query.rows - строк в результате.
+ * Запросы дольше slow-query считаются в stats.query.slow и пишутся в лог с параметрами, но не чаще одного
+ * раза за slow-query-sample, пропущенные учитываются в следующей записи.
+ */
+@Slf4j
+@Component
+public class StatsQueryMetrics {
+
+    private static final int LOGGED_URIS = 10;
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryNanos;
+    private final long sampleIntervalNanos;
+    private final AtomicLong lastSampleAt = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong skippedSamples = new AtomicLong();
+
+    public StatsQueryMetrics(MeterRegistry meterRegistry,
+                             @Value("${stats.metrics.slow-query:500ms}") Duration slowQuery,
+                             @Value("${stats.metrics.slow-query-sample:PT1S}") Duration sampleInterval) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryNanos = slowQuery.toNanos();
+        this.sampleIntervalNanos = sampleInterval.toNanos();
+    }
+
+    public <T> List<T> record(String variant, LocalDateTime start, LocalDateTime end, List<String> uris,
+                              boolean unique, Supplier<List<T>> query) {
+        return record(variant, start, end, uris, unique, query, List::size);
+    }
+
+    public <T> T record(String variant, LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                        Supplier<T> query, ToIntFunction<T> rows) {
+        long started = System.nanoTime();
+        T result = query.get();
+        stop(variant, start, end, uris, unique, started, rows.applyAsInt(result));
+        return result;
+    }
+
+    // для потоковой выгрузки: started - System.nanoTime() перед запросом, rows - сколько строк ушло клиенту
+    public void stop(String variant, LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                     long started, long rows) {
+        long elapsed = System.nanoTime() - started;
+        int uriCount = uris == null ? 0 : uris.size();
+        String filtered = String.valueOf(uriCount > 0);
+
+        Timer.builder("stats.query")
+                .description("Время получения статистики без сериализации ответа")
+                .tags("variant", variant, "unique", String.valueOf(unique), "filtered", filtered)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(elapsed));
+        DistributionSummary.builder("stats.query.uris")
+                .description("Число uri в запросе статистики")
+                .tag("variant", variant)
+                .register(meterRegistry)
+                .record(uriCount);
+        DistributionSummary.builder("stats.query.rows")
+                .description("Число строк в ответе статистики")
+                .tags("variant", variant, "unique", String.valueOf(unique))
+                .register(meterRegistry)
+                .record(rows);
+
+        if (elapsed > slowQueryNanos) {
+            Counter.builder("stats.query.slow")
+                    .description("Запросы статистики дольше stats.metrics.slow-query")
+                    .tag("variant", variant)
+                    .register(meterRegistry)
+                    .increment();
+            sampleSlow(variant, start, end, uris, unique, elapsed, rows);
+        }
+    }
+
+    private void sampleSlow(String variant, LocalDateTime start, LocalDateTime end, List<String> uris,
+                            boolean unique, long elapsed, long rows) {
+        long now = System.nanoTime();
+        long last = lastSampleAt.get();
+        if (last != Long.MIN_VALUE && now - last < sampleIntervalNanos || !lastSampleAt.compareAndSet(last, now)) {
+            skippedSamples.incrementAndGet();
+            return;
+        }
+        int uriCount = uris == null ? 0 : uris.size();
+        log.warn("Медленный запрос статистики {} за {} мс: start={}, end={}, unique={}, uris={}{} ({} шт.), строк {}, "
+                        + "пропущено медленных с прошлой записи {}",
+                variant, Duration.ofNanos(elapsed).toMillis(), start, end, unique,
+                uris == null ? null : uris.subList(0, Math.min(uriCount, LOGGED_URIS)),
+                uriCount > LOGGED_URIS ? "..." : "", uriCount, rows, skippedSamples.getAndSet(0));
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.ewm.stats.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public record BucketKey(StatsKey key, LocalDateTime bucket) {
+
+    public static BucketKey of(EndpointHit hit, ChronoUnit unit) {
+        return new BucketKey(new StatsKey(hit.getApp(), hit.getUri()), hit.getTimestamp().truncatedTo(unit));
+    }
+}
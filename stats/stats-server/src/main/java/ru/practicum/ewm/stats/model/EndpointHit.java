@@ -2,6 +2,8 @@ package ru.practicum.ewm.stats.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.practicum.ewm.stats.dictionary.AppIdConverter;
+import ru.practicum.ewm.stats.dictionary.UriIdConverter;
 
 import java.time.LocalDateTime;
 
@@ -11,7 +13,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@SequenceGenerator(name = "id_gen", sequenceName = "hit_seq", allocationSize = 1)
+@SequenceGenerator(name = "id_gen", sequenceName = "hit_seq", allocationSize = 50)
 @Table(name = "hits")
 public class EndpointHit {
 
@@ -19,12 +21,15 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "id_gen")
     private Long id;
 
-    @Column(name = "app", nullable = false)
+    @Convert(converter = AppIdConverter.class)
+    @Column(name = "app_id", nullable = false)
     private String app;
 
-    @Column(name = "uri", nullable = false)
+    @Convert(converter = UriIdConverter.class)
+    @Column(name = "uri_id", nullable = false)
     private String uri;
 
+    @Convert(converter = IpAddressConverter.class)
     @Column(name = "ip", nullable = false)
     private String ip;
 
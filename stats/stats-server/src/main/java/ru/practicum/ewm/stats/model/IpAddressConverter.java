@@ -0,0 +1,28 @@
+package ru.practicum.ewm.stats.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.net.InetAddress;
+
+// ip хранится в колонке inet, строки, не являющиеся адресом, отсекаются при приеме хитов
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, InetAddress> {
+
+    @Override
+    public InetAddress convertToDatabaseColumn(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        InetAddress address = IpAddresses.parse(ip);
+        if (address == null) {
+            throw new IllegalArgumentException("Некорректный ip: " + ip);
+        }
+        return address;
+    }
+
+    @Override
+    public String convertToEntityAttribute(InetAddress address) {
+        return address == null ? null : address.getHostAddress();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.ewm.stats.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Разбирает только литералы IPv4/IPv6, к DNS не обращается. ::ffff:a.b.c.d приводится к IPv4.
+     * Возвращает null, если строка не адрес.
+     */
+    public static InetAddress parse(String ip) {
+        try {
+            long ipv4 = parseIpv4(ip);
+            if (ipv4 >= 0) {
+                return InetAddress.getByAddress(new byte[]{
+                        (byte) (ipv4 >>> 24), (byte) (ipv4 >>> 16), (byte) (ipv4 >>> 8), (byte) ipv4});
+            }
+            // в строке только символы IPv6-литерала, поэтому InetAddress не обращается к DNS
+            if (ip.indexOf(':') >= 0
+                    && ip.chars().allMatch(c -> c == ':' || c == '.' || Character.digit(c, 16) >= 0)) {
+                return InetAddress.getByName(ip);
+            }
+        } catch (UnknownHostException e) {
+            return null;
+        }
+        return null;
+    }
+
+    // адрес вида a.b.c.d как беззнаковое число или -1
+    public static long parseIpv4(String ip) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++octets > 4) {
+                    return -1;
+                }
+                address = address << 8 | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + c - '0';
+                if (value > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.ewm.stats.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживает секции таблицы hits, разбитой по диапазонам timestamp: заранее создает секции
+ * на premake периодов вперед, переносит в отдельные секции строки, попавшие в секцию по умолчанию
+ * (поздние и исторические хиты), и удаляет секции старше retention периодов целиком, без DELETE.
+ * Об удалении сообщает HitsDroppedEvent, чтобы агрегаты, кеш результатов и окно в памяти не отдавали
+ * удаленные хиты.
+ */
+@Slf4j
+@Component
+public class HitPartitionManager {
+
+    static final String PARENT = "hits";
+    static final String DEFAULT_PARTITION = "hits_default";
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${stats.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.partitioning.granularity:MONTH}")
+    private PartitionGranularity granularity;
+
+    @Value("${stats.partitioning.premake:3}")
+    private int premake;
+
+    // сколько прошедших периодов хранить помимо текущего, 0 - хранить все
+    @Value("${stats.partitioning.retention:0}")
+    private int retention;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    record Partition(String name, LocalDateTime from, LocalDateTime to) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partitioning.cron:0 5 * * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate current = granularity.floor(LocalDate.now());
+        LocalDateTime cutoff = retention > 0 ? granularity.plus(current, -retention).atStartOfDay() : null;
+
+        boolean dropped = false;
+        try {
+            dropped = splitDefault(cutoff);
+            for (int i = 0; i <= premake; i++) {
+                LocalDate start = granularity.plus(current, i);
+                create(start, existing());
+            }
+            if (cutoff != null) {
+                dropped |= dropBefore(cutoff);
+            }
+        } catch (DataAccessException e) {
+            log.error("Ошибка обслуживания секций таблицы {}: {}", PARENT, e.getMessage());
+        }
+        // и после ошибки: удаленное до нее уже не вернуть
+        if (dropped) {
+            eventPublisher.publishEvent(new HitsDroppedEvent(cutoff));
+        }
+    }
+
+    List<Partition> existing() {
+        return jdbcTemplate.query("""
+                SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                 WHERE i.inhparent = ?::regclass
+                """, (rs, rowNum) -> parseBound(rs.getString("name"), rs.getString("bound")), PARENT)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    static Partition parseBound(String name, String bound) {
+        Matcher matcher = BOUNDS.matcher(bound);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new Partition(name, LocalDateTime.parse(matcher.group(1).replace(' ', 'T')),
+                LocalDateTime.parse(matcher.group(2).replace(' ', 'T')));
+    }
+
+    private void create(LocalDate start, List<Partition> partitions) {
+        LocalDateTime from = start.atStartOfDay();
+        LocalDateTime to = granularity.plus(start, 1).atStartOfDay();
+        // секция другой гранулярности, созданная до смены настроек, уже покрывает период
+        if (partitions.stream().anyMatch(p -> p.from().isBefore(to) && p.to().isAfter(from))) {
+            return;
+        }
+        String name = granularity.partitionName(PARENT, start);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean hasRows = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?)",
+                    Boolean.class, from, to);
+            if (Boolean.TRUE.equals(hasRows)) {
+                // секция по умолчанию не даст создать пересекающуюся секцию, пока в ней есть строки периода
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT + " INCLUDING DEFAULTS)");
+                int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE timestamp >= ? AND timestamp < ? RETURNING *) INSERT INTO " + name
+                        + " SELECT * FROM moved", from, to);
+                jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + name
+                        + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                log.info("Создана секция {}, из {} перенесено {} хитов", name, DEFAULT_PARTITION, moved);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + PARENT
+                        + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                log.info("Создана секция {}", name);
+            }
+        });
+    }
+
+    // true - удалены хиты старше cutoff
+    private boolean splitDefault(LocalDateTime cutoff) {
+        int deleted = 0;
+        if (cutoff != null) {
+            deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?", cutoff);
+            if (deleted > 0) {
+                log.info("Из {} удалено {} хитов старше {}", DEFAULT_PARTITION, deleted, cutoff);
+            }
+        }
+        List<LocalDate> periods = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('" + granularity.name().toLowerCase() + "', timestamp)::date FROM "
+                        + DEFAULT_PARTITION, LocalDate.class);
+        for (LocalDate start : periods) {
+            create(start, existing());
+        }
+        return deleted > 0;
+    }
+
+    private boolean dropBefore(LocalDateTime cutoff) {
+        boolean dropped = false;
+        for (Partition partition : existing()) {
+            if (!partition.to().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+                dropped = true;
+                log.info("Удалена секция {} за период с {} по {}", partition.name(), partition.from(), partition.to());
+            }
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.ewm.stats.partition;
+
+import java.time.LocalDateTime;
+
+/**
+ * Публикуется после удаления по stats.partitioning.retention сырых хитов раньше before (секции и строки
+ * секции по умолчанию). before выровнен по началу суток, поэтому агрегаты удаляются по нему целыми корзинами.
+ */
+public record HitsDroppedEvent(LocalDateTime before) {
+}
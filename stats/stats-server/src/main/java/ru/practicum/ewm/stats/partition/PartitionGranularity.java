@@ -0,0 +1,32 @@
+package ru.practicum.ewm.stats.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionGranularity {
+
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffix;
+
+    PartitionGranularity(ChronoUnit unit, DateTimeFormatter suffix) {
+        this.unit = unit;
+        this.suffix = suffix;
+    }
+
+    public LocalDate floor(LocalDate date) {
+        return this == MONTH ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+    }
+
+    public LocalDate plus(LocalDate start, long periods) {
+        return start.plus(periods, unit);
+    }
+
+    public String partitionName(String parent, LocalDate start) {
+        return parent + "_p" + suffix.format(start);
+    }
+}
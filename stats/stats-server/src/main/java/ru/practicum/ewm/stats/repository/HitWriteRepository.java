@@ -0,0 +1,10 @@
+package ru.practicum.ewm.stats.repository;
+
+import java.util.List;
+
+public interface HitWriteRepository<T> {
+
+    <S extends T> S save(S hit);
+
+    int insertAll(List<T> hits);
+}
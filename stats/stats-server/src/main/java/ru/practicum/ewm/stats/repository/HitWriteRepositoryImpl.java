@@ -0,0 +1,62 @@
+package ru.practicum.ewm.stats.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Все записи хитов проходят здесь, чтобы производные агрегаты обновлялись в той же транзакции.
+ */
+public class HitWriteRepositoryImpl implements HitWriteRepository<EndpointHit> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final HitDictionary hitDictionary;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    public HitWriteRepositoryImpl(ApplicationEventPublisher eventPublisher, HitDictionary hitDictionary) {
+        this.eventPublisher = eventPublisher;
+        this.hitDictionary = hitDictionary;
+    }
+
+    @Override
+    @Transactional
+    public <S extends EndpointHit> S save(S hit) {
+        hitDictionary.registerAll(List.of(hit));
+        entityManager.persist(hit);
+        entityManager.flush();
+        eventPublisher.publishEvent(new HitsSavedEvent(List.of(hit)));
+        return hit;
+    }
+
+    // persist без merge: id берется из пула последовательности, вставки уходят JDBC-пачками,
+    // контекст чистится после каждой пачки, чтобы не держать в памяти всю загрузку
+    @Override
+    @Transactional
+    public int insertAll(List<EndpointHit> hits) {
+        hitDictionary.registerAll(hits);
+        int count = 0;
+        for (EndpointHit hit : hits) {
+            entityManager.persist(hit);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        eventPublisher.publishEvent(new HitsSavedEvent(hits));
+        return count;
+    }
+}
@@ -9,8 +9,8 @@ import ru.practicum.ewm.stats.model.EndpointHit;
 import java.time.LocalDateTime;
 import java.util.List;
 
-
-public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
+// условия только на сам timestamp без функций над ним, иначе PostgreSQL не отсечет лишние секции hits
+public interface StatsRepository extends JpaRepository<EndpointHit, Long>, HitWriteRepository<EndpointHit> {
     @Query("""
             SELECT new ru.practicum.ewm.stats.dto.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip))
               FROM EndpointHit h
@@ -0,0 +1,58 @@
+package ru.practicum.ewm.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.rollup.TimeSliceSql;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Статистика по сырым хитам построчно, без сборки списка в памяти.
+ * PostgreSQL отдает результат курсором порциями по fetch-size, только если запрос идет внутри транзакции
+ * (autocommit выключен), поэтому вызывать из транзакционного метода.
+ */
+@Repository
+public class StatsStreamRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    public StatsStreamRepository(DataSource dataSource, HitDictionary hitDictionary,
+                                 @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.hitDictionary = hitDictionary;
+    }
+
+    public void forEachStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+        // имена берутся соединением, а не из HitDictionary: выгрузка не должна заполнять его кеш всеми uri
+        String sql = """
+                SELECT a.name AS app, u.name AS uri, h.hits
+                  FROM (SELECT app_id, uri_id, %s AS hits
+                          FROM hits
+                         WHERE timestamp BETWEEN :start AND :end%s
+                         GROUP BY app_id, uri_id) h
+                  JOIN apps a ON a.id = h.app_id
+                  JOIN uris u ON u.id = h.uri_id
+                 ORDER BY h.hits DESC
+                """.formatted(unique ? "COUNT(DISTINCT ip)" : "COUNT(*)",
+                TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params));
+
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package ru.practicum.ewm.stats.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.archive.HitArchive;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.ingest.ImportedHits;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final HitArchive hitArchive;
+
+    // строки обновляются в порядке первичного ключа, чтобы параллельные пачки не ловили взаимную блокировку
+    public void increment(ChronoUnit unit, Map<BucketKey, Long> increments) {
+        String table = table(unit);
+        SqlParameterSource[] batch = increments.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(hitDictionary.keyOrder()))
+                .map(entry -> hitDictionary.keyParams(entry.getKey())
+                        .addValue("hits", entry.getValue()))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %1$s (app_id, uri_id, bucket, hits)
+                VALUES (:app, :uri, :bucket, :hits)
+                ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits
+                """.formatted(table), batch);
+    }
+
+    // агрегаты по хитам импорта одним запросом из hits вместо upsert на каждый ключ
+    public void incrementImported(ChronoUnit unit, ImportedHits imported) {
+        jdbcTemplate.update("""
+                INSERT INTO %1$s (app_id, uri_id, bucket, hits)
+                SELECT h.app_id, h.uri_id, %2$s, COUNT(*)
+                  FROM hits h
+                  JOIN unnest(:idFrom::int8[], :idTo::int8[]) AS r(id_from, id_to)
+                    ON h.id BETWEEN r.id_from AND r.id_to
+                 WHERE h.timestamp BETWEEN :from AND :to
+                 GROUP BY 1, 2, 3
+                 ORDER BY 2, 3, 1
+                ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits
+                """.formatted(table(unit), TimeSliceSql.truncate("h.timestamp", unit)), importedParams(imported));
+    }
+
+    // (app, uri, шаг, ip) хитов импорта без повторов, по порядку шагов
+    public void forEachImportedIp(ChronoUnit step, ImportedHits imported, BiConsumer<BucketKey, String> consumer) {
+        jdbcTemplate.query("""
+                SELECT DISTINCT h.app_id, h.uri_id, %s AS step, host(h.ip) AS ip
+                  FROM hits h
+                  JOIN unnest(:idFrom::int8[], :idTo::int8[]) AS r(id_from, id_to)
+                    ON h.id BETWEEN r.id_from AND r.id_to
+                 WHERE h.timestamp BETWEEN :from AND :to
+                 ORDER BY step
+                """.formatted(TimeSliceSql.truncate("h.timestamp", step)), importedParams(imported), rs -> {
+            consumer.accept(new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    rs.getObject("step", LocalDateTime.class)), rs.getString("ip"));
+        });
+    }
+
+    private static MapSqlParameterSource importedParams(ImportedHits imported) {
+        return new MapSqlParameterSource()
+                .addValue("idFrom", imported.getIdFrom())
+                .addValue("idTo", imported.getIdTo())
+                .addValue("from", imported.getFrom())
+                .addValue("to", imported.getTo());
+    }
+
+    public Map<StatsKey, Long> sumBuckets(ChronoUnit unit, List<TimeSlice> slices, List<String> uris) {
+        return sum("""
+                SELECT app_id, uri_id, SUM(hits) AS hits
+                  FROM %s
+                 WHERE (%s)%s
+                 GROUP BY app_id, uri_id
+                """, table(unit), "bucket", slices, uris);
+    }
+
+    // сырые хиты - это таблица hits и перенесенные из нее сегменты архива
+    public Map<StatsKey, Long> countRaw(List<TimeSlice> slices, List<String> uris) {
+        return hitArchive.read(() -> {
+            Map<StatsKey, Long> result = sum("""
+                    SELECT app_id, uri_id, COUNT(*) AS hits
+                      FROM %s
+                     WHERE (%s)%s
+                     GROUP BY app_id, uri_id
+                    """, "hits", "timestamp", slices, uris);
+            if (hitArchive.overlaps(slices)) {
+                hitArchive.countRaw(slices, uris).forEach((key, hits) -> result.merge(key, hits, Long::sum));
+            }
+            return result;
+        });
+    }
+
+    // (app, uri, ip) по сырым хитам - для краев интервала, не покрытых целыми корзинами;
+    // без повторов в пределах базы и каждого сегмента архива, между ними ip могут повторяться
+    public void forEachDistinctIp(List<TimeSlice> slices, List<String> uris, BiConsumer<StatsKey, String> consumer) {
+        if (slices.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT DISTINCT app_id, uri_id, host(ip) AS ip
+                  FROM hits
+                 WHERE (%s)%s
+                """.formatted(TimeSliceSql.where("timestamp", slices, params),
+                TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params));
+
+        hitArchive.read(() -> {
+            if (hitArchive.overlaps(slices)) {
+                hitArchive.forEachDistinctIp(slices, uris, consumer);
+            }
+            jdbcTemplate.query(sql, params, rs -> {
+                consumer.accept(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getString("ip"));
+            });
+            return null;
+        });
+    }
+
+    // ряды: сумма целых корзин unit по шагам step, step не мельче unit
+    public Map<BucketKey, Long> sumSeries(ChronoUnit unit, ChronoUnit step, List<TimeSlice> slices, List<String> uris) {
+        return series("""
+                SELECT app_id, uri_id, %s AS step, SUM(hits) AS hits
+                  FROM %s
+                 WHERE (%s)%s
+                 GROUP BY app_id, uri_id, 3
+                """, table(unit), "bucket", step, slices, uris);
+    }
+
+    public Map<BucketKey, Long> countRawSeries(ChronoUnit step, List<TimeSlice> slices, List<String> uris) {
+        return hitArchive.read(() -> {
+            Map<BucketKey, Long> result = series("""
+                    SELECT app_id, uri_id, %s AS step, COUNT(*) AS hits
+                      FROM %s
+                     WHERE (%s)%s
+                     GROUP BY app_id, uri_id, 3
+                    """, "hits", "timestamp", step, slices, uris);
+            if (hitArchive.overlaps(slices)) {
+                for (TimeSlice slice : steps(slices, step)) {
+                    if (hitArchive.overlaps(List.of(slice))) {
+                        hitArchive.countRaw(List.of(slice), uris).forEach((key, hits) ->
+                                result.merge(new BucketKey(key, slice.from().truncatedTo(step)), hits, Long::sum));
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    // ip одного шага в базе и в архиве могут повторяться, поэтому при архиве шаги считаются по отдельности множествами
+    public Map<BucketKey, Long> countDistinctSeries(ChronoUnit step, List<TimeSlice> slices, List<String> uris) {
+        return hitArchive.read(() -> {
+            if (!hitArchive.overlaps(slices)) {
+                return series("""
+                        SELECT app_id, uri_id, %s AS step, COUNT(DISTINCT ip) AS hits
+                          FROM %s
+                         WHERE (%s)%s
+                         GROUP BY app_id, uri_id, 3
+                        """, "hits", "timestamp", step, slices, uris);
+            }
+            Map<BucketKey, Long> result = new HashMap<>();
+            for (TimeSlice slice : steps(slices, step)) {
+                Map<StatsKey, Set<String>> ips = new HashMap<>();
+                forEachDistinctIp(List.of(slice), uris, (key, ip) ->
+                        ips.computeIfAbsent(key, k -> new HashSet<>()).add(ip));
+                ips.forEach((key, keyIps) ->
+                        result.put(new BucketKey(key, slice.from().truncatedTo(step)), (long) keyIps.size()));
+            }
+            return result;
+        });
+    }
+
+    private Map<BucketKey, Long> series(String template, String table, String column, ChronoUnit step,
+                                        List<TimeSlice> slices, List<String> uris) {
+        Map<BucketKey, Long> result = new HashMap<>();
+        if (slices.isEmpty()) {
+            return result;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String ranges = TimeSliceSql.where(column, slices, params);
+        String uriFilter = TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params);
+
+        jdbcTemplate.query(template.formatted(TimeSliceSql.truncate(column, step), table, ranges, uriFilter), params,
+                rs -> {
+                    BucketKey key = new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                            rs.getObject("step", LocalDateTime.class));
+                    result.merge(key, rs.getLong("hits"), Long::sum);
+                });
+        return result;
+    }
+
+    // отрезки, разрезанные по границам шагов step; включенный правый край на границе - отдельная точка своего шага
+    static List<TimeSlice> steps(List<TimeSlice> slices, ChronoUnit step) {
+        List<TimeSlice> result = new ArrayList<>();
+        for (TimeSlice slice : slices) {
+            LocalDateTime from = slice.from();
+            LocalDateTime next = from.truncatedTo(step).plus(1, step);
+            while (next.isBefore(slice.to()) || slice.toInclusive() && next.equals(slice.to())) {
+                result.add(new TimeSlice(from, next, false));
+                from = next;
+                next = next.plus(1, step);
+            }
+            TimeSlice last = new TimeSlice(from, slice.to(), slice.toInclusive());
+            if (!last.isEmpty()) {
+                result.add(last);
+            }
+        }
+        return result;
+    }
+
+    private Map<StatsKey, Long> sum(String template, String table, String column, List<TimeSlice> slices,
+                                    List<String> uris) {
+        Map<StatsKey, Long> result = new HashMap<>();
+        if (slices.isEmpty()) {
+            return result;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String ranges = TimeSliceSql.where(column, slices, params);
+        String uriFilter = TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params);
+
+        jdbcTemplate.query(template.formatted(table, ranges, uriFilter), params, rs -> {
+            result.merge(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"), Long::sum);
+        });
+        return result;
+    }
+
+    public int deleteBefore(ChronoUnit unit, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM " + table(unit) + " WHERE bucket < :before",
+                new MapSqlParameterSource("before", before));
+    }
+
+    private static String table(ChronoUnit unit) {
+        return switch (unit) {
+            case MINUTES -> "hits_rollup_minute";
+            case HOURS -> "hits_rollup_hour";
+            default -> throw new IllegalArgumentException("Нет таблицы агрегатов для шага " + unit);
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.ewm.stats.rollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.ingest.ImportedHits;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.partition.HitsDroppedEvent;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поминутные и почасовые агрегаты хитов по (app, uri). Обновляются в транзакции записи хитов,
+ * поэтому всегда согласованы с таблицей hits. Неуникальная статистика собирается из целых часов,
+ * целых минут на краях и сырых хитов только для неполных минут, так что объем чтения не зависит от длины истории.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HitRollupService {
+
+    private static final ChronoUnit[] LEVELS = {ChronoUnit.HOURS, ChronoUnit.MINUTES};
+
+    private final HitRollupRepository hitRollupRepository;
+
+    @Value("${stats.rollup.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled || event.imported() || event.hits().isEmpty()) {
+            return;
+        }
+
+        Map<BucketKey, Long> minutes = new HashMap<>();
+        Map<BucketKey, Long> hours = new HashMap<>();
+        for (EndpointHit hit : event.hits()) {
+            minutes.merge(BucketKey.of(hit, ChronoUnit.MINUTES), 1L, Long::sum);
+            hours.merge(BucketKey.of(hit, ChronoUnit.HOURS), 1L, Long::sum);
+        }
+
+        hitRollupRepository.increment(ChronoUnit.MINUTES, minutes);
+        hitRollupRepository.increment(ChronoUnit.HOURS, hours);
+    }
+
+    // хиты, удаленные по retention, уходят и из агрегатов; граница секций не мельче суток и не режет корзины
+    @EventListener
+    public void onHitsDropped(HitsDroppedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int deleted = 0;
+        for (ChronoUnit unit : LEVELS) {
+            deleted += hitRollupRepository.deleteBefore(unit, event.before());
+        }
+        log.info("Удалено {} строк агрегатов хитов раньше {}", deleted, event.before());
+    }
+
+    // хиты импорта: по запросу на уровень из hits, вызывается в транзакции импорта
+    public void addImported(ImportedHits imported) {
+        if (!enabled || imported.isEmpty()) {
+            return;
+        }
+        for (ChronoUnit unit : LEVELS) {
+            hitRollupRepository.incrementImported(unit, imported);
+        }
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, LEVELS);
+
+        Map<StatsKey, Long> counts = new HashMap<>();
+        for (ChronoUnit unit : LEVELS) {
+            hitRollupRepository.sumBuckets(unit, split.getBuckets(unit), uris)
+                    .forEach((key, hits) -> counts.merge(key, hits, Long::sum));
+        }
+        hitRollupRepository.countRaw(split.getRaw(), uris)
+                .forEach((key, hits) -> counts.merge(key, hits, Long::sum));
+
+        return toViewStats(counts);
+    }
+
+    // ряд по шагам step: целые часы берутся только для шагов не мельче часа
+    public Map<BucketKey, Long> getSeries(LocalDateTime start, LocalDateTime end, ChronoUnit step, List<String> uris) {
+        ChronoUnit[] levels = step == ChronoUnit.MINUTES ? new ChronoUnit[]{ChronoUnit.MINUTES} : LEVELS;
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, levels);
+
+        Map<BucketKey, Long> counts = new HashMap<>();
+        for (ChronoUnit unit : levels) {
+            hitRollupRepository.sumSeries(unit, step, split.getBuckets(unit), uris)
+                    .forEach((key, hits) -> counts.merge(key, hits, Long::sum));
+        }
+        hitRollupRepository.countRawSeries(step, split.getRaw(), uris)
+                .forEach((key, hits) -> counts.merge(key, hits, Long::sum));
+        return counts;
+    }
+
+    public static List<ViewStatsDto> toViewStats(Map<StatsKey, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<StatsKey, Long>comparingByValue(Comparator.reverseOrder()))
+                .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.rollup;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разбиение интервала [start, end] на целые корзины заданных размеров (от крупных к мелким)
+ * и рваные края, которые приходится считать по сырым хитам.
+ * Корзина считается целой, только если лежит внутри интервала полностью.
+ */
+public class TimeRangeSplit {
+
+    private final Map<ChronoUnit, List<TimeSlice>> buckets = new EnumMap<>(ChronoUnit.class);
+    private final List<TimeSlice> raw = new ArrayList<>();
+
+    private TimeRangeSplit() {
+    }
+
+    public static TimeRangeSplit of(LocalDateTime start, LocalDateTime end, ChronoUnit... units) {
+        TimeRangeSplit split = new TimeRangeSplit();
+        for (ChronoUnit unit : units) {
+            split.buckets.put(unit, new ArrayList<>());
+        }
+        if (!end.isBefore(start)) {
+            split.split(new TimeSlice(start, end, true), units, 0);
+        }
+        return split;
+    }
+
+    // корзины уровня unit, каждая TimeSlice - полуинтервал [from, to) из целых корзин
+    public List<TimeSlice> getBuckets(ChronoUnit unit) {
+        return buckets.getOrDefault(unit, List.of());
+    }
+
+    public List<TimeSlice> getRaw() {
+        return raw;
+    }
+
+    public static LocalDateTime floor(LocalDateTime time, ChronoUnit unit) {
+        return time.truncatedTo(unit);
+    }
+
+    public static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    private void split(TimeSlice slice, ChronoUnit[] units, int level) {
+        if (slice.isEmpty()) {
+            return;
+        }
+        if (level == units.length) {
+            raw.add(slice);
+            return;
+        }
+
+        ChronoUnit unit = units[level];
+        LocalDateTime first = ceil(slice.from(), unit);
+        LocalDateTime last = floor(slice.to(), unit);
+        if (!first.isBefore(last)) {
+            split(slice, units, level + 1);
+            return;
+        }
+
+        buckets.get(unit).add(new TimeSlice(first, last, false));
+        split(new TimeSlice(slice.from(), first, false), units, level + 1);
+        split(new TimeSlice(last, slice.to(), slice.toInclusive()), units, level + 1);
+    }
+
+    public record TimeSlice(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+
+        public boolean isEmpty() {
+            return toInclusive ? to.isBefore(from) : !from.isBefore(to);
+        }
+    }
+}
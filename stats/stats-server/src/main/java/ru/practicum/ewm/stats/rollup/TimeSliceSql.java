@@ -0,0 +1,50 @@
+package ru.practicum.ewm.stats.rollup;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+public final class TimeSliceSql {
+
+    private TimeSliceSql() {
+    }
+
+    // (column >= :from0 AND column < :to0) OR ... с учетом включенности правого края
+    public static String where(String column, List<TimeSlice> slices, MapSqlParameterSource params) {
+        StringBuilder ranges = new StringBuilder();
+        for (int i = 0; i < slices.size(); i++) {
+            TimeSlice slice = slices.get(i);
+            if (i > 0) {
+                ranges.append(" OR ");
+            }
+            ranges.append("(").append(column).append(" >= :from").append(i)
+                    .append(" AND ").append(column).append(slice.toInclusive() ? " <= :to" : " < :to").append(i)
+                    .append(")");
+            params.addValue("from" + i, slice.from());
+            params.addValue("to" + i, slice.to());
+        }
+        return ranges.toString();
+    }
+
+    // начало шага step, в который попадает column
+    public static String truncate(String column, ChronoUnit step) {
+        String field = switch (step) {
+            case MINUTES -> "minute";
+            case HOURS -> "hour";
+            case DAYS -> "day";
+            default -> throw new IllegalArgumentException("Нет шага ряда " + step);
+        };
+        return "date_trunc('%s', %s)".formatted(field, column);
+    }
+
+    // uriIds из HitDictionary.findUriIds, null - без фильтра
+    public static String uriFilter(List<Integer> uriIds, MapSqlParameterSource params) {
+        if (uriIds == null) {
+            return "";
+        }
+        params.addValue("uris", uriIds);
+        return " AND uri_id IN (:uris)";
+    }
+}
@@ -1,14 +1,34 @@
 package ru.practicum.ewm.stats.service;
 
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.TimeSeriesDto;
+import ru.practicum.ewm.stats.dto.TopStatsDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.timeseries.SeriesBucket;
+import ru.practicum.ewm.stats.top.TopWindow;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     EndpointHitDto addHit(EndpointHitDto endpointHitDto);
 
+    int addHits(List<EndpointHitDto> endpointHitDtos);
+
     List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    List<ViewStatsDto> getApproximateStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                           boolean unique);
+
+    List<ViewStatsDto> getExactStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                     Consumer<ViewStatsDto> consumer);
+
+    TopStatsDto getTop(TopWindow window, int n);
+
+    TimeSeriesDto getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, SeriesBucket bucket,
+                                boolean unique);
 }
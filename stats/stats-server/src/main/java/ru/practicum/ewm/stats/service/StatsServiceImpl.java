@@ -2,17 +2,55 @@ package ru.practicum.ewm.stats.service;
 
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.archive.HitArchive;
+import ru.practicum.ewm.stats.cache.StatsCacheKey;
+import ru.practicum.ewm.stats.cache.StatsResultCache;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.TimeSeriesDto;
+import ru.practicum.ewm.stats.dto.TopStatsDto;
+import ru.practicum.ewm.stats.dto.TopUriDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitWriteBehindBuffer;
+import ru.practicum.ewm.stats.ingest.IngestLimiter;
 import ru.practicum.ewm.stats.mapper.EndpointHitMapper;
+import ru.practicum.ewm.stats.memory.HotStatsService;
+import ru.practicum.ewm.stats.metrics.StatsQueryMetrics;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.IpAddresses;
+import ru.practicum.ewm.stats.model.StatsKey;
 import ru.practicum.ewm.stats.repository.StatsRepository;
+import ru.practicum.ewm.stats.repository.StatsStreamRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.shard.ShardedAggregator;
+import ru.practicum.ewm.stats.sketch.HllUniqueService;
+import ru.practicum.ewm.stats.sketch.IpBitmapService;
+import ru.practicum.ewm.stats.timeseries.SeriesBucket;
+import ru.practicum.ewm.stats.timeseries.TimeSeriesService;
+import ru.practicum.ewm.stats.top.TopStatsService;
+import ru.practicum.ewm.stats.top.TopWindow;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -20,26 +58,297 @@ public class StatsServiceImpl implements StatsService {
 
     private final StatsRepository statsRepository;
     private final EndpointHitMapper endpointHitMapper;
+    private final HitWriteBehindBuffer hitWriteBehindBuffer;
+    private final HitRollupService hitRollupService;
+    private final HllUniqueService hllUniqueService;
+    private final IpBitmapService ipBitmapService;
+    private final HotStatsService hotStatsService;
+    private final StatsStreamRepository statsStreamRepository;
+    private final TopStatsService topStatsService;
+    private final StatsResultCache statsResultCache;
+    private final HitArchive hitArchive;
+    private final HitRollupRepository hitRollupRepository;
+    private final ShardedAggregator shardedAggregator;
+    private final TimeSeriesService timeSeriesService;
+    private final IngestLimiter ingestLimiter;
+    private final StatsQueryMetrics statsQueryMetrics;
 
+    @Value("${stats.ingest.max-hits:100000}")
+    private int maxHits;
+
+    // без внешней транзакции: при групповой записи запрос не держит соединение, пока ждет фиксации
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EndpointHitDto addHit(EndpointHitDto endpointHitDto) {
-        return endpointHitMapper.toEndpointHitDto(
-                statsRepository.save(endpointHitMapper.toEndpointHit(endpointHitDto))
-        );
+        // /hit пишет одну строку и возвращает ее, схлопнутые хиты принимает только /hits
+        if (endpointHitDto.hits() != 1) {
+            throw new ValidationException("count больше 1 принимается только в POST /hits");
+        }
+        validateIp(endpointHitDto);
+        EndpointHit hit = endpointHitMapper.toEndpointHit(endpointHitDto);
+
+        if (hitWriteBehindBuffer.isEnabled()) {
+            CompletableFuture<EndpointHit> accepted = hitWriteBehindBuffer.submit(hit);
+            if (accepted != null) {
+                return endpointHitMapper.toEndpointHitDto(hitWriteBehindBuffer.await(accepted));
+            }
+            // под ограничением допуска переполнение - признак того, что база не успевает, и синхронная запись
+            // только заняла бы еще одно соединение
+            if (ingestLimiter.isEnabled()) {
+                throw ingestLimiter.reject(HttpStatus.SERVICE_UNAVAILABLE, "buffer_full",
+                        "Буфер групповой записи переполнен");
+            }
+            log.warn("Буфер групповой записи переполнен, хит пишется синхронно");
+        }
+
+        return endpointHitMapper.toEndpointHitDto(statsRepository.save(hit));
+    }
+
+    @Override
+    @Transactional
+    public int addHits(List<EndpointHitDto> endpointHitDtos) {
+        endpointHitDtos.forEach(this::validateIp);
+        long total = endpointHitDtos.stream().mapToLong(EndpointHitDto::hits).sum();
+        if (total > maxHits) {
+            throw new ValidationException("В пачке больше " + maxHits + " хитов");
+        }
+        if (total == endpointHitDtos.size()) {
+            return statsRepository.insertAll(endpointHitMapper.toEndpointHits(endpointHitDtos));
+        }
+
+        // схлопнутые клиентом одинаковые хиты записываются отдельными строками, а не строкой с весом:
+        // строка hits - один хит для COUNT в сырых и потоковых запросах, сегментов архива и COPY импорта,
+        // а агрегаты, окно в памяти и топ считают за хит каждый EndpointHit из HitsSavedEvent.
+        // Схлопывание экономит сеть клиента, размножение здесь ограничено stats.ingest.max-hits
+        List<EndpointHit> hits = new ArrayList<>((int) total);
+        for (EndpointHitDto endpointHitDto : endpointHitDtos) {
+            for (long i = 0; i < endpointHitDto.hits(); i++) {
+                hits.add(endpointHitMapper.toEndpointHit(endpointHitDto));
+            }
+        }
+        return statsRepository.insertAll(hits);
     }
 
     @Override
     public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        if (!statsResultCache.isEnabled() || start.isAfter(end)) {
+            return computeStats(start, end, uris, unique);
+        }
+
+        LocalDateTime closedBefore = statsResultCache.closedBefore();
+        if (end.isBefore(closedBefore)) {
+            return statsResultCache.get(StatsCacheKey.of(start, end, uris, unique),
+                    () -> computeStats(start, end, uris, unique));
+        }
+
+        // открытый интервал: закрытая часть до начала часа берется из кеша, свежий хвост считается заново.
+        // Уникальные посетители двух частей не складываются, поэтому для unique хвоста нет
+        LocalDateTime boundary = closedBefore.truncatedTo(ChronoUnit.HOURS);
+        if (unique || !start.isBefore(boundary)) {
+            return computeStats(start, end, uris, unique);
+        }
+        LocalDateTime closedEnd = boundary.minusNanos(1);
+        List<ViewStatsDto> closed = statsResultCache.get(StatsCacheKey.of(start, closedEnd, uris, false),
+                () -> computeStats(start, closedEnd, uris, false));
+        return sum(closed, computeStats(boundary, end, uris, false));
+    }
+
+    private List<ViewStatsDto> computeStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                            boolean unique) {
+        if (!unique && hotStatsService.covers(start, end)) {
+            return statsQueryMetrics.record("memory", start, end, uris, false,
+                    () -> hotStatsService.getStats(start, end, uris));
+        }
+
+        if (!unique && hitRollupService.isEnabled()) {
+            if (start.isAfter(end)) {
+                throw new ValidationException("Старт не может быть позже энд");
+            }
+            return statsQueryMetrics.record("rollup", start, end, uris, false,
+                    () -> hitRollupService.getStats(start, end, uris));
+        }
+
+        return getExactStats(start, end, uris, unique);
+    }
+
+    // уникальные посетители оценкой по HyperLogLog-скетчам, без них - как getStats
+    @Override
+    public List<ViewStatsDto> getApproximateStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                  boolean unique) {
+        if (!unique || !hllUniqueService.isEnabled()) {
+            return getStats(start, end, uris, unique);
+        }
+        if (start.isAfter(end)) {
+            throw new ValidationException("Старт не может быть позже энд");
+        }
+        return statsQueryMetrics.record("hll", start, end, uris, true,
+                () -> hllUniqueService.getStats(start, end, uris));
+    }
+
+    // точный подсчет по сырым хитам, для сверки с агрегатами и скетчами
+    @Override
+    public List<ViewStatsDto> getExactStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        if (unique && ipBitmapService.isEnabled()) {
+            if (start.isAfter(end)) {
+                throw new ValidationException("Старт не может быть позже энд");
+            }
+            return statsQueryMetrics.record("bitmap", start, end, uris, true,
+                    () -> ipBitmapService.getStats(start, end, uris));
+        }
+
+        if (shardedAggregator.isSharded(start, end)) {
+            return statsQueryMetrics.record("sharded", start, end, uris, unique,
+                    () -> getShardedStats(start, end, uris, unique));
+        }
+
+        // проверка архива и запрос к базе - под одной блокировкой архива, иначе перенос может пройти между ними
+        return hitArchive.read(() -> computeRawStats(start, end, uris, unique));
+    }
+
+    private List<ViewStatsDto> computeRawStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               boolean unique) {
+        List<TimeSlice> range = List.of(new TimeSlice(start, end, true));
+        if (hitArchive.overlaps(range)) {
+            return statsQueryMetrics.record("archive", start, end, uris, unique,
+                    () -> getRawStats(range, uris, unique));
+        }
+
         if (uris == null || uris.isEmpty()) {
-            return unique ? statsRepository.getUniqueStats(start, end) : statsRepository.getNotUniqueStats(start, end);
+            return statsQueryMetrics.record("raw", start, end, uris, unique,
+                    () -> unique ? statsRepository.getUniqueStats(start, end)
+                            : statsRepository.getNotUniqueStats(start, end));
         }
 
         if (start.isAfter(end)) {
             throw new ValidationException("Старт не может быть позже энд");
         }
 
-        return unique ? statsRepository.getUniqueStatsForUris(start, end, uris)
-                : statsRepository.getNotUniqueStatsForUris(start, end, uris);
+        return statsQueryMetrics.record("raw", start, end, uris, unique,
+                () -> unique ? statsRepository.getUniqueStatsForUris(start, end, uris)
+                        : statsRepository.getNotUniqueStatsForUris(start, end, uris));
+    }
+
+    // часть хитов интервала перенесена в архив: счет по базе и сегментам вместе
+    private List<ViewStatsDto> getRawStats(List<TimeSlice> range, List<String> uris, boolean unique) {
+        if (!unique) {
+            return HitRollupService.toViewStats(hitRollupRepository.countRaw(range, uris));
+        }
+        Map<StatsKey, Set<String>> ips = new HashMap<>();
+        hitRollupRepository.forEachDistinctIp(range, uris, (key, ip) ->
+                ips.computeIfAbsent(key, k -> new HashSet<>()).add(ip));
+        Map<StatsKey, Long> counts = new HashMap<>();
+        ips.forEach((key, keyIps) -> counts.put(key, (long) keyIps.size()));
+        return HitRollupService.toViewStats(counts);
+    }
+
+    // широкий интервал считается по отрезкам параллельно; уникальные ip отрезков объединяются множествами
+    private List<ViewStatsDto> getShardedStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               boolean unique) {
+        if (!unique) {
+            return HitRollupService.toViewStats(shardedAggregator.aggregate(start, end,
+                    shard -> hitRollupRepository.countRaw(List.of(shard), uris),
+                    (first, second) -> {
+                        second.forEach((key, hits) -> first.merge(key, hits, Long::sum));
+                        return first;
+                    }));
+        }
+        Map<StatsKey, Set<String>> ips = shardedAggregator.aggregate(start, end,
+                shard -> {
+                    Map<StatsKey, Set<String>> shardIps = new HashMap<>();
+                    hitRollupRepository.forEachDistinctIp(List.of(shard), uris, (key, ip) ->
+                            shardIps.computeIfAbsent(key, k -> new HashSet<>()).add(ip));
+                    return shardIps;
+                },
+                (first, second) -> {
+                    second.forEach((key, keyIps) -> first.merge(key, keyIps, (a, b) -> {
+                        a.addAll(b);
+                        return a;
+                    }));
+                    return first;
+                });
+        Map<StatsKey, Long> counts = new HashMap<>();
+        ips.forEach((key, keyIps) -> counts.put(key, (long) keyIps.size()));
+        return HitRollupService.toViewStats(counts);
+    }
+
+    private static List<ViewStatsDto> sum(List<ViewStatsDto> first, List<ViewStatsDto> second) {
+        Map<StatsKey, Long> counts = new LinkedHashMap<>();
+        for (List<ViewStatsDto> part : List.of(first, second)) {
+            for (ViewStatsDto viewStats : part) {
+                counts.merge(new StatsKey(viewStats.getApp(), viewStats.getUri()), viewStats.getHits(), Long::sum);
+            }
+        }
+        return HitRollupService.toViewStats(counts);
+    }
+
+    // точный подсчет по сырым хитам курсором: строки уходят в consumer по мере чтения, список не собирается.
+    // Если интервал задевает архив, строки собираются списком - их не больше числа пар (app, uri)
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            Consumer<ViewStatsDto> consumer) {
+        if (start.isAfter(end)) {
+            throw new ValidationException("Старт не может быть позже энд");
+        }
+        List<TimeSlice> range = List.of(new TimeSlice(start, end, true));
+        List<ViewStatsDto> archived = hitArchive.read(() -> {
+            if (hitArchive.overlaps(range)) {
+                return statsQueryMetrics.record("archive", start, end, uris, unique,
+                        () -> getRawStats(range, uris, unique));
+            }
+            // время потоковой выгрузки включает запись ответа: строки пишутся клиенту по мере чтения,
+            // поэтому медленный клиент может задержать перенос в архив не дольше stats.archive.lock-timeout
+            long started = System.nanoTime();
+            long[] rows = new long[1];
+            statsStreamRepository.forEachStats(start, end, uris, unique, viewStats -> {
+                rows[0]++;
+                consumer.accept(viewStats);
+            });
+            statsQueryMetrics.stop("stream", start, end, uris, unique, started, rows[0]);
+            return List.of();
+        });
+        archived.forEach(consumer);
+    }
+
+    @Override
+    public TopStatsDto getTop(TopWindow window, int n) {
+        if (topStatsService.isEnabled()) {
+            if (n < 1 || n > topStatsService.getCapacity()) {
+                throw new ValidationException("n должно быть от 1 до " + topStatsService.getCapacity());
+            }
+            return topStatsService.getTop(window, n);
+        }
+        if (n < 1) {
+            throw new ValidationException("n должно быть положительным");
+        }
+
+        // без сводок - точный подсчет за то же окно
+        LocalDateTime now = LocalDateTime.now();
+        List<ViewStatsDto> stats = statsQueryMetrics.record("top", window.from(now), now, null, false,
+                () -> statsRepository.getNotUniqueStats(window.from(now), now));
+        return TopStatsDto.builder()
+                .window(window.name())
+                .from(window.from(now))
+                .total(stats.stream().mapToLong(ViewStatsDto::getHits).sum())
+                .maxOtherHits(stats.size() > n ? stats.get(n).getHits() : 0L)
+                .uris(stats.stream()
+                        .limit(n)
+                        .map(viewStats -> new TopUriDto(viewStats.getApp(), viewStats.getUri(), viewStats.getHits(), 0L))
+                        .toList())
+                .build();
+    }
+
+    @Override
+    public TimeSeriesDto getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, SeriesBucket bucket,
+                                       boolean unique) {
+        return statsQueryMetrics.record("timeseries", start, end, uris, unique,
+                () -> timeSeriesService.getSeries(start, end, uris, bucket, unique),
+                series -> series.getSeries().size());
+    }
+
+    // ip хранится как inet, поэтому проверяется до постановки в буфер, а не при записи пачки
+    private void validateIp(EndpointHitDto endpointHitDto) {
+        if (IpAddresses.parse(endpointHitDto.getIp()) == null) {
+            throw new ValidationException("Некорректный ip: " + endpointHitDto.getIp());
+        }
     }
 }
@@ -0,0 +1,164 @@
+package ru.practicum.ewm.stats.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Подсчет по сырым хитам за широкий интервал по частям: интервал режется на отрезки по shard-size,
+ * отрезки разбирают вызывающий поток и виртуальные потоки-помощники, у каждого помощника своя транзакция
+ * только для чтения и свое соединение. Помощников на все запросы вместе не больше parallelism - 1.
+ * Вызывающий поток считает в своей транзакции и не ждет помощников, которым не хватило соединения:
+ * при занятом пуле подсчет идет последовательно, а не встает.
+ */
+@Slf4j
+@Component
+public class ShardedAggregator implements AutoCloseable {
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration shardSize;
+    private final int parallelism;
+    private final Semaphore helpers;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stats-shard-", 0).factory());
+
+    public ShardedAggregator(PlatformTransactionManager transactionManager,
+                             @Value("${stats.sharding.enabled:false}") boolean enabled,
+                             @Value("${stats.sharding.shard-size:P1D}") Duration shardSize,
+                             @Value("${stats.sharding.parallelism:4}") int parallelism) {
+        if (shardSize.isNegative() || shardSize.isZero()) {
+            throw new IllegalArgumentException("stats.sharding.shard-size должен быть положительным");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.shardSize = shardSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.helpers = new Semaphore(this.parallelism - 1);
+    }
+
+    // есть смысл делить, только если интервал длиннее одного отрезка
+    public boolean isSharded(LocalDateTime start, LocalDateTime end) {
+        return enabled && parallelism > 1 && Duration.between(start, end).compareTo(shardSize) > 0;
+    }
+
+    /**
+     * Считает shard по каждому отрезку [start, end] и сливает результаты merge в порядке времени.
+     * shard вызывается из разных потоков, а merge - только из вызывающего.
+     */
+    public <T> T aggregate(LocalDateTime start, LocalDateTime end, Function<TimeSlice, T> shard,
+                           BinaryOperator<T> merge) {
+        Shards<T> shards = new Shards<>(split(start, end, shardSize), shard);
+        for (int i = 1; i < Math.min(parallelism, shards.slices.size()) && helpers.tryAcquire(); i++) {
+            executor.execute(() -> {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (!shards.run()) {
+                            status.setRollbackOnly();
+                        }
+                    });
+                } catch (TransactionException e) {
+                    // отрезки остались вызывающему потоку
+                    log.debug("Помощник подсчета по отрезкам не получил транзакцию: {}", e.getMessage());
+                } finally {
+                    helpers.release();
+                }
+            });
+        }
+
+        shards.run();
+        return shards.await().stream().reduce(merge).orElseThrow();
+    }
+
+    // границы отрезков отсчитываются от начала суток: при шаге в сутки отрезок не пересекает границ секций hits
+    static List<TimeSlice> split(LocalDateTime start, LocalDateTime end, Duration shardSize) {
+        List<TimeSlice> slices = new ArrayList<>();
+        LocalDateTime origin = start.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime boundary = origin.plus(shardSize.multipliedBy(
+                Duration.between(origin, start).dividedBy(shardSize) + 1));
+        LocalDateTime from = start;
+        while (boundary.isBefore(end)) {
+            slices.add(new TimeSlice(from, boundary, false));
+            from = boundary;
+            boundary = boundary.plus(shardSize);
+        }
+        slices.add(new TimeSlice(from, end, true));
+        return slices;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // отрезки разбираются по счетчику; после первой ошибки оставшиеся только отмечаются, чтобы await не ждал их
+    private static class Shards<T> {
+
+        private final List<TimeSlice> slices;
+        private final Function<TimeSlice, T> shard;
+        private final Object[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final CountDownLatch done;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Shards(List<TimeSlice> slices, Function<TimeSlice, T> shard) {
+            this.slices = slices;
+            this.shard = shard;
+            this.results = new Object[slices.size()];
+            this.done = new CountDownLatch(slices.size());
+        }
+
+        // false, если отрезок этого потока упал
+        boolean run() {
+            boolean succeeded = true;
+            int i;
+            while ((i = next.getAndIncrement()) < slices.size()) {
+                try {
+                    if (failure.get() == null) {
+                        results[i] = shard.apply(slices.get(i));
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    succeeded = false;
+                } finally {
+                    done.countDown();
+                }
+            }
+            return succeeded;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Подсчет по отрезкам прерван", e);
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return (List<T>) Arrays.asList(results);
+        }
+    }
+}
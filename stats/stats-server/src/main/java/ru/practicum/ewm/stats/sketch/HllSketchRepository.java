@@ -0,0 +1,119 @@
+package ru.practicum.ewm.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.rollup.TimeSliceSql;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class HllSketchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    public Map<StatsKey, HyperLogLog> load(List<TimeSlice> slices, List<String> uris) {
+        Map<StatsKey, HyperLogLog> result = new HashMap<>();
+        if (slices.isEmpty()) {
+            return result;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT app_id, uri_id, sketch
+                  FROM hits_hll
+                 WHERE (%s)%s
+                """.formatted(TimeSliceSql.where("bucket", slices, params), TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params));
+
+        jdbcTemplate.query(sql, params, rs -> {
+            StatsKey key = hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id"));
+            HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+            result.merge(key, sketch, HyperLogLog::union);
+        });
+        return result;
+    }
+
+    // скетчи по отдельным часам, для рядов
+    public Map<BucketKey, HyperLogLog> loadBuckets(List<TimeSlice> slices, List<String> uris) {
+        Map<BucketKey, HyperLogLog> result = new HashMap<>();
+        if (slices.isEmpty()) {
+            return result;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT app_id, uri_id, bucket, sketch
+                  FROM hits_hll
+                 WHERE (%s)%s
+                """.formatted(TimeSliceSql.where("bucket", slices, params), TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params));
+
+        jdbcTemplate.query(sql, params, rs -> {
+            BucketKey key = new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    rs.getObject("bucket", LocalDateTime.class));
+            result.put(key, HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+        return result;
+    }
+
+    /**
+     * Вливает накопленные в памяти скетчи в сохраненные. Строки блокируются в порядке ключа,
+     * поэтому несколько экземпляров сервиса могут сбрасывать скетчи одновременно.
+     */
+    @Transactional
+    public void merge(Map<BucketKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<BucketKey> keys = sketches.keySet().stream().sorted(hitDictionary.keyOrder()).toList();
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO hits_hll (app_id, uri_id, bucket, sketch)
+                VALUES (:app, :uri, :bucket, :sketch)
+                ON CONFLICT (uri_id, bucket, app_id) DO NOTHING
+                """, keys.stream()
+                .map(key -> hitDictionary.keyParams(key).addValue("sketch", new byte[0]))
+                .toArray(SqlParameterSource[]::new));
+
+        Map<BucketKey, HyperLogLog> merged = new HashMap<>();
+        // ключи передаются тремя массивами: длинный список IN упирается в число параметров и глубину стека PostgreSQL
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uris", keys.stream().map(key -> hitDictionary.uriId(key.key().uri())).toArray(Integer[]::new))
+                .addValue("buckets", keys.stream().map(key -> key.bucket().toString()).toArray(String[]::new))
+                .addValue("apps", keys.stream().map(key -> hitDictionary.appId(key.key().app())).toArray(Integer[]::new));
+        jdbcTemplate.query("""
+                SELECT t.app_id, t.uri_id, t.bucket, t.sketch
+                  FROM hits_hll t
+                  JOIN unnest(:uris::int4[], :buckets::timestamp[], :apps::int4[]) AS k(uri_id, bucket, app_id)
+                    ON t.uri_id = k.uri_id AND t.bucket = k.bucket AND t.app_id = k.app_id
+                 ORDER BY t.uri_id, t.bucket, t.app_id
+                   FOR UPDATE OF t
+                """, params, rs -> {
+            BucketKey key = new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    rs.getObject("bucket", LocalDateTime.class));
+            HyperLogLog sketch = sketches.get(key);
+            byte[] stored = rs.getBytes("sketch");
+            merged.put(key, stored.length == 0 ? sketch : HyperLogLog.union(HyperLogLog.fromBytes(stored), sketch));
+        });
+
+        jdbcTemplate.batchUpdate("""
+                UPDATE hits_hll
+                   SET sketch = :sketch
+                 WHERE uri_id = :uri AND bucket = :bucket AND app_id = :app
+                """, keys.stream()
+                .filter(merged::containsKey)
+                .map(key -> hitDictionary.keyParams(key).addValue("sketch", merged.get(key).toBytes()))
+                .toArray(SqlParameterSource[]::new));
+    }
+}
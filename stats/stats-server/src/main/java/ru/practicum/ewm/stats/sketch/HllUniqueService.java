@@ -0,0 +1,196 @@
+package ru.practicum.ewm.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.ingest.ImportedHits;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приблизительная уникальная статистика: по каждому (app, uri, час) хранится HyperLogLog-скетч IP.
+ * Зафиксированные хиты сначала попадают в скетчи в памяти, раз в flush-interval они вливаются в hits_hll.
+ * Запрос объединяет сохраненные скетчи целых часов, еще не сброшенные скетчи и IP сырых хитов на краях интервала.
+ * Несброшенные скетчи при старте собираются заново из hits за stats.hll.recovery-window, как битмапы IpBitmapService.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HllUniqueService implements SmartInitializingSingleton {
+
+    private static final int RECOVERY_BATCH = 10_000;
+    private static final int IMPORT_SKETCHES = 1_024;
+
+    private final HllSketchRepository hllSketchRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final PendingBuckets<HyperLogLog> pending = new PendingBuckets<>();
+
+    @Value("${stats.hll.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.hll.precision:14}")
+    private int precision;
+
+    // не меньше самой большой задержки между временем хита и его записью плюс flush-interval
+    @Value("${stats.hll.recovery-window:P1D}")
+    private Duration recoveryWindow;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getRelativeError() {
+        return HyperLogLog.relativeError(precision);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        long started = System.nanoTime();
+        long[] rows = new long[1];
+
+        for (LocalDateTime hour = now.minus(recoveryWindow).truncatedTo(ChronoUnit.HOURS); !hour.isAfter(now);
+             hour = hour.plusHours(1)) {
+            LocalDateTime bucket = hour;
+            List<SimpleEntry<StatsKey, String>> batch = new ArrayList<>(RECOVERY_BATCH);
+            hitRollupRepository.forEachDistinctIp(List.of(new TimeSlice(hour, hour.plusHours(1), false)), null,
+                    (key, ip) -> {
+                        batch.add(new SimpleEntry<>(key, ip));
+                        if (batch.size() == RECOVERY_BATCH) {
+                            recover(bucket, batch);
+                            rows[0] += batch.size();
+                            batch.clear();
+                        }
+                    });
+            recover(bucket, batch);
+            rows[0] += batch.size();
+        }
+        log.info("HLL-скетчи с {} восстановлены из {} строк hits за {} мс", now.minus(recoveryWindow), rows[0],
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void recover(LocalDateTime hour, List<SimpleEntry<StatsKey, String>> ips) {
+        pending.update(ips,
+                entry -> new BucketKey(entry.getKey(), hour),
+                key -> new HyperLogLog(precision),
+                (sketch, entry) -> sketch.add(entry.getValue()));
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled || event.imported()) {
+            return;
+        }
+        pending.update(event.hits(),
+                hit -> BucketKey.of(hit, ChronoUnit.HOURS),
+                key -> new HyperLogLog(precision),
+                (sketch, hit) -> sketch.add(hit.getIp()));
+    }
+
+    // хиты импорта собираются из hits и вливаются в сохраненные сразу, минуя несохраненные;
+    // строки идут по порядку корзин, поэтому в памяти не больше IMPORT_SKETCHES скетчей
+    public void addImported(ImportedHits imported) {
+        if (!enabled || imported.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+        hitRollupRepository.forEachImportedIp(ChronoUnit.HOURS, imported, (key, ip) -> {
+            HyperLogLog sketch = sketches.get(key);
+            if (sketch == null) {
+                if (sketches.size() == IMPORT_SKETCHES) {
+                    hllSketchRepository.merge(sketches);
+                    sketches.clear();
+                }
+                sketch = new HyperLogLog(precision);
+                sketches.put(key, sketch);
+            }
+            sketch.add(ip);
+        });
+        hllSketchRepository.merge(sketches);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hll.flush-interval:PT10S}")
+    public synchronized void flush() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, HyperLogLog> sketches = pending.drain();
+        try {
+            hllSketchRepository.merge(sketches);
+        } catch (Exception e) {
+            log.error("Не удалось сохранить {} HLL-скетчей, повтор при следующем сбросе: {}",
+                    sketches.size(), e.getMessage());
+            pending.restore(HyperLogLog::union);
+        } finally {
+            pending.complete();
+        }
+    }
+
+    // ряд по шагам step не мельче часа: скетчи часов одного шага объединяются, края - по сырым хитам своего часа
+    public Map<BucketKey, Long> getSeries(LocalDateTime start, LocalDateTime end, ChronoUnit step, List<String> uris) {
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, ChronoUnit.HOURS);
+        List<TimeSlice> hours = split.getBuckets(ChronoUnit.HOURS);
+
+        Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+        hllSketchRepository.loadBuckets(hours, uris).forEach((key, sketch) ->
+                sketches.merge(new BucketKey(key.key(), key.bucket().truncatedTo(step)), sketch, HyperLogLog::union));
+        pending.forEachBucket(hours, uris, (key, sketch) -> {
+            synchronized (sketch) {
+                HyperLogLog copy = new HyperLogLog(sketch.getPrecision());
+                copy.merge(sketch);
+                sketches.merge(new BucketKey(key.key(), key.bucket().truncatedTo(step)), copy, HyperLogLog::union);
+            }
+        });
+        for (TimeSlice slice : split.getRaw()) {
+            LocalDateTime bucket = slice.from().truncatedTo(step);
+            hitRollupRepository.forEachDistinctIp(List.of(slice), uris, (key, ip) ->
+                    sketches.computeIfAbsent(new BucketKey(key, bucket), k -> new HyperLogLog(precision)).add(ip));
+        }
+
+        Map<BucketKey, Long> counts = new HashMap<>();
+        sketches.forEach((key, sketch) -> counts.put(key, sketch.estimate()));
+        return counts;
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, ChronoUnit.HOURS);
+        List<TimeSlice> hours = split.getBuckets(ChronoUnit.HOURS);
+
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>(hllSketchRepository.load(hours, uris));
+        pending.forEach(hours, uris, (key, sketch) -> {
+            synchronized (sketch) {
+                HyperLogLog copy = new HyperLogLog(sketch.getPrecision());
+                copy.merge(sketch);
+                sketches.merge(key, copy, HyperLogLog::union);
+            }
+        });
+        hitRollupRepository.forEachDistinctIp(split.getRaw(), uris, (key, ip) ->
+                sketches.computeIfAbsent(key, k -> new HyperLogLog(precision)).add(ip));
+
+        Map<StatsKey, Long> counts = new HashMap<>();
+        sketches.forEach((key, sketch) -> counts.put(key, sketch.estimate()));
+        return HitRollupService.toViewStats(counts);
+    }
+}
@@ -0,0 +1,233 @@
+package ru.practicum.ewm.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog для оценки числа уникальных IP. Пока заполнено мало регистров, хранится разреженно
+ * (отсортированный массив пар индекс-ранг), потом переходит к плотному массиву из 2^precision байт.
+ * Скетчи одной точности объединяются поэлементным максимумом, скетч большей точности можно свернуть к меньшей.
+ * Относительная ошибка оценки около 1.04 / sqrt(2^precision).
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final byte FORMAT_SPARSE = 1;
+    private static final byte FORMAT_DENSE = 2;
+
+    private final int precision;
+    private final int registerCount;
+    // упакованные (index << 8 | rank), отсортированы по индексу; null в плотном режиме
+    private int[] sparse;
+    private int sparseSize;
+    private byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Точность HyperLogLog должна быть от " + MIN_PRECISION
+                    + " до " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.sparse = new int[8];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public void add(String value) {
+        addHash(hash64(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        update(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        HyperLogLog source = other.precision == precision ? other : other.fold(precision);
+        source.forEachRegister(this::update);
+    }
+
+    // объединение скетчей разной точности получается с меньшей из них
+    public static HyperLogLog union(HyperLogLog target, HyperLogLog other) {
+        HyperLogLog result = other.precision < target.precision ? target.fold(other.precision) : target;
+        result.merge(other);
+        return result;
+    }
+
+    /**
+     * Сворачивает скетч к меньшей точности: старшие биты индекса остаются индексом,
+     * младшие становятся началом хвоста хеша, по которому считается ранг.
+     */
+    public HyperLogLog fold(int targetPrecision) {
+        if (targetPrecision > precision) {
+            throw new IllegalArgumentException("Скетч нельзя развернуть к большей точности");
+        }
+        HyperLogLog folded = new HyperLogLog(targetPrecision);
+        int shift = precision - targetPrecision;
+        forEachRegister((index, rank) -> {
+            int low = index & ((1 << shift) - 1);
+            int newRank = low == 0
+                    ? shift + rank
+                    : Integer.numberOfLeadingZeros(low) - (32 - shift) + 1;
+            folded.update(index >>> shift, newRank);
+        });
+        return folded;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros;
+        if (registers != null) {
+            zeros = 0;
+            for (byte register : registers) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = registerCount - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += Math.scalb(1.0, -(sparse[i] & 0xFF));
+            }
+        }
+
+        double estimate = alpha() * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        if (registers != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + registerCount);
+            buffer.put(FORMAT_DENSE).put((byte) precision).put(registers);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + Integer.BYTES + sparseSize * Integer.BYTES);
+        buffer.put(FORMAT_SPARSE).put((byte) precision).putInt(sparseSize);
+        for (int i = 0; i < sparseSize; i++) {
+            buffer.putInt(sparse[i]);
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == FORMAT_DENSE) {
+            sketch.sparse = null;
+            sketch.registers = new byte[sketch.registerCount];
+            buffer.get(sketch.registers);
+        } else if (format == FORMAT_SPARSE) {
+            int size = buffer.getInt();
+            sketch.sparse = new int[Math.max(8, size)];
+            for (int i = 0; i < size; i++) {
+                sketch.sparse[i] = buffer.getInt();
+            }
+            sketch.sparseSize = size;
+        } else {
+            throw new IllegalArgumentException("Неизвестный формат скетча: " + format);
+        }
+        return sketch;
+    }
+
+    // FNV-1a с финализатором murmur3, чтобы младшие и старшие биты были одинаково случайны
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void update(int index, int rank) {
+        if (registers != null) {
+            if (registers[index] < rank) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+
+        int position = Arrays.binarySearch(sparse, 0, sparseSize, index << 8);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        if (position < sparseSize && sparse[position] >>> 8 == index) {
+            if ((sparse[position] & 0xFF) < rank) {
+                sparse[position] = index << 8 | rank;
+            }
+            return;
+        }
+
+        // разреженное представление выгодно, пока занято меньше 1/8 регистров
+        if (sparseSize + 1 > registerCount / 8) {
+            toDense();
+            update(index, rank);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparse.length * 2);
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = index << 8 | rank;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        registers = new byte[registerCount];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    private void forEachRegister(RegisterConsumer consumer) {
+        if (registers != null) {
+            for (int i = 0; i < registerCount; i++) {
+                if (registers[i] != 0) {
+                    consumer.accept(i, registers[i]);
+                }
+            }
+        } else {
+            for (int i = 0; i < sparseSize; i++) {
+                consumer.accept(sparse[i] >>> 8, sparse[i] & 0xFF);
+            }
+        }
+    }
+
+    private double alpha() {
+        return switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+    }
+
+    @FunctionalInterface
+    private interface RegisterConsumer {
+        void accept(int index, int rank);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.roaringbitmap.RoaringBitmap;
+import ru.practicum.ewm.stats.model.IpAddresses;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Точное множество IP: IPv4 хранится в сжатом битмапе как беззнаковое int,
+ * IPv6 - в полной текстовой форме, строки, не разобранные как адрес, - как есть.
+ */
+public class IpBitmap {
+
+    private static final byte FORMAT = 1;
+    // грубая оценка памяти на строку в хеш-множестве: узел, объект строки и массив
+    private static final int STRING_OVERHEAD = 64;
+
+    private final RoaringBitmap ipv4;
+    private final Set<String> other;
+
+    public IpBitmap() {
+        this(new RoaringBitmap(), new HashSet<>());
+    }
+
+    private IpBitmap(RoaringBitmap ipv4, Set<String> other) {
+        this.ipv4 = ipv4;
+        this.other = other;
+    }
+
+    public void add(String ip) {
+        long address = IpAddresses.parseIpv4(ip);
+        if (address >= 0) {
+            ipv4.add((int) address);
+            return;
+        }
+        InetAddress parsed = IpAddresses.parse(ip);
+        if (parsed instanceof Inet4Address) {
+            ipv4.add(ByteBuffer.wrap(parsed.getAddress()).getInt());
+            return;
+        }
+        other.add(parsed != null ? parsed.getHostAddress() : ip);
+    }
+
+    public void or(IpBitmap bitmap) {
+        ipv4.or(bitmap.ipv4);
+        other.addAll(bitmap.other);
+    }
+
+    public static IpBitmap union(IpBitmap target, IpBitmap other) {
+        target.or(other);
+        return target;
+    }
+
+    public IpBitmap copy() {
+        return new IpBitmap(ipv4.clone(), new HashSet<>(other));
+    }
+
+    public long cardinality() {
+        return ipv4.getLongCardinality() + other.size();
+    }
+
+    public long getSizeInBytes() {
+        long size = ipv4.getLongSizeInBytes();
+        for (String value : other) {
+            size += STRING_OVERHEAD + value.length();
+        }
+        return size;
+    }
+
+    // runOptimize меняет внутреннее представление, поэтому под тем же монитором, под которым битмап читают запросы
+    public synchronized byte[] toBytes() {
+        ipv4.runOptimize();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ipv4.serializedSizeInBytes() + 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            ipv4.serialize(out);
+            out.writeInt(other.size());
+            for (String value : other) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static IpBitmap fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte format = in.readByte();
+            if (format != FORMAT) {
+                throw new IllegalArgumentException("Неизвестный формат битмапа IP: " + format);
+            }
+            RoaringBitmap ipv4 = new RoaringBitmap();
+            ipv4.deserialize(in);
+            int count = in.readInt();
+            Set<String> other = new HashSet<>(Math.max(16, count * 2));
+            for (int i = 0; i < count; i++) {
+                other.add(in.readUTF());
+            }
+            return new IpBitmap(ipv4, other);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.practicum.ewm.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.rollup.TimeSliceSql;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class IpBitmapRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    public void forEach(List<TimeSlice> slices, List<String> uris, BiConsumer<BucketKey, IpBitmap> consumer) {
+        if (slices.isEmpty()) {
+            return;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT app_id, uri_id, bucket, ips
+                  FROM hits_ip_bitmap
+                 WHERE (%s)%s
+                """.formatted(TimeSliceSql.where("bucket", slices, params), TimeSliceSql.uriFilter(hitDictionary.findUriIds(uris), params));
+
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                            rs.getObject("bucket", LocalDateTime.class)),
+                    IpBitmap.fromBytes(rs.getBytes("ips")));
+        });
+    }
+
+    // объединяет битмапы с сохраненными так же, как HllSketchRepository.merge
+    @Transactional
+    public void merge(Map<BucketKey, IpBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return;
+        }
+        List<BucketKey> keys = bitmaps.keySet().stream().sorted(hitDictionary.keyOrder()).toList();
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO hits_ip_bitmap (app_id, uri_id, bucket, ips)
+                VALUES (:app, :uri, :bucket, :ips)
+                ON CONFLICT (uri_id, bucket, app_id) DO NOTHING
+                """, keys.stream()
+                .map(key -> hitDictionary.keyParams(key).addValue("ips", new byte[0]))
+                .toArray(SqlParameterSource[]::new));
+
+        Map<BucketKey, IpBitmap> merged = new HashMap<>();
+        // ключи передаются тремя массивами: длинный список IN упирается в число параметров и глубину стека PostgreSQL
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uris", keys.stream().map(key -> hitDictionary.uriId(key.key().uri())).toArray(Integer[]::new))
+                .addValue("buckets", keys.stream().map(key -> key.bucket().toString()).toArray(String[]::new))
+                .addValue("apps", keys.stream().map(key -> hitDictionary.appId(key.key().app())).toArray(Integer[]::new));
+        jdbcTemplate.query("""
+                SELECT t.app_id, t.uri_id, t.bucket, t.ips
+                  FROM hits_ip_bitmap t
+                  JOIN unnest(:uris::int4[], :buckets::timestamp[], :apps::int4[]) AS k(uri_id, bucket, app_id)
+                    ON t.uri_id = k.uri_id AND t.bucket = k.bucket AND t.app_id = k.app_id
+                 ORDER BY t.uri_id, t.bucket, t.app_id
+                   FOR UPDATE OF t
+                """, params, rs -> {
+            BucketKey key = new BucketKey(hitDictionary.key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    rs.getObject("bucket", LocalDateTime.class));
+            IpBitmap bitmap = bitmaps.get(key);
+            byte[] stored = rs.getBytes("ips");
+            merged.put(key, stored.length == 0 ? bitmap : IpBitmap.union(IpBitmap.fromBytes(stored), bitmap));
+        });
+
+        jdbcTemplate.batchUpdate("""
+                UPDATE hits_ip_bitmap
+                   SET ips = :ips
+                 WHERE uri_id = :uri AND bucket = :bucket AND app_id = :app
+                """, keys.stream()
+                .filter(merged::containsKey)
+                .map(key -> hitDictionary.keyParams(key).addValue("ips", merged.get(key).toBytes()))
+                .toArray(SqlParameterSource[]::new));
+    }
+}
@@ -0,0 +1,246 @@
+package ru.practicum.ewm.stats.sketch;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.ingest.ImportedHits;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Точная уникальная статистика по битмапам IP на (app, uri, сутки) из hits_ip_bitmap.
+ * Устроена как HllUniqueService: битмапы копятся в памяти и периодически объединяются с сохраненными,
+ * запрос объединяет битмапы целых суток, несохраненные битмапы и IP сырых хитов на краях интервала.
+ * Несохраненные битмапы теряются вместе с процессом, поэтому при старте они заново собираются из hits
+ * за stats.bitmap.recovery-window: объединение идемпотентно, уже сохраненные IP просто совпадут.
+ * Сутки без единого битмапа по запрошенным uri (хиты до включения битмапов) считаются по сырым хитам.
+ */
+@Slf4j
+@Service
+public class IpBitmapService implements SmartInitializingSingleton {
+
+    private static final int RECOVERY_BATCH = 10_000;
+    private static final int IMPORT_BITMAPS = 10_000;
+
+    private final IpBitmapRepository ipBitmapRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final PendingBuckets<IpBitmap> pending = new PendingBuckets<>();
+    private final DistributionSummary bitmapSize;
+    private final Timer mergeTimer;
+    private final Timer flushTimer;
+
+    @Value("${stats.bitmap.enabled:false}")
+    private boolean enabled;
+
+    // не меньше самой большой задержки между временем хита и его записью плюс flush-interval
+    @Value("${stats.bitmap.recovery-window:P1D}")
+    private Duration recoveryWindow;
+
+    public IpBitmapService(IpBitmapRepository ipBitmapRepository, HitRollupRepository hitRollupRepository,
+                           MeterRegistry meterRegistry) {
+        this.ipBitmapRepository = ipBitmapRepository;
+        this.hitRollupRepository = hitRollupRepository;
+        this.bitmapSize = DistributionSummary.builder("stats.bitmap.size")
+                .description("Память на битмап IP (app, uri, сутки), участвующий в запросе")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.mergeTimer = Timer.builder("stats.bitmap.merge")
+                .description("Объединение битмапов IP для одного запроса")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.bitmap.flush")
+                .description("Сохранение накопленных битмапов IP")
+                .register(meterRegistry);
+        Gauge.builder("stats.bitmap.pending.bytes", pending, IpBitmapService::pendingBytes)
+                .description("Память несохраненных битмапов IP")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("stats.bitmap.pending.count", pending, PendingBuckets::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        long started = System.nanoTime();
+        long[] rows = new long[1];
+
+        for (LocalDateTime day = today.minus(recoveryWindow).truncatedTo(ChronoUnit.DAYS); !day.isAfter(today);
+             day = day.plusDays(1)) {
+            LocalDateTime bucket = day;
+            List<SimpleEntry<StatsKey, String>> batch = new ArrayList<>(RECOVERY_BATCH);
+            hitRollupRepository.forEachDistinctIp(List.of(new TimeSlice(day, day.plusDays(1), false)), null,
+                    (key, ip) -> {
+                        batch.add(new SimpleEntry<>(key, ip));
+                        if (batch.size() == RECOVERY_BATCH) {
+                            recover(bucket, batch);
+                            rows[0] += batch.size();
+                            batch.clear();
+                        }
+                    });
+            recover(bucket, batch);
+            rows[0] += batch.size();
+        }
+        log.info("Битмапы IP с {} восстановлены из {} строк hits за {} мс", today.minus(recoveryWindow), rows[0],
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void recover(LocalDateTime day, List<SimpleEntry<StatsKey, String>> ips) {
+        pending.update(ips,
+                entry -> new BucketKey(entry.getKey(), day),
+                key -> new IpBitmap(),
+                (bitmap, entry) -> bitmap.add(entry.getValue()));
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled || event.imported()) {
+            return;
+        }
+        pending.update(event.hits(),
+                hit -> BucketKey.of(hit, ChronoUnit.DAYS),
+                key -> new IpBitmap(),
+                (bitmap, hit) -> bitmap.add(hit.getIp()));
+    }
+
+    // хиты импорта собираются из hits и вливаются в сохраненные сразу, минуя несохраненные;
+    // строки идут по порядку корзин, поэтому в памяти не больше IMPORT_BITMAPS битмапов
+    public void addImported(ImportedHits imported) {
+        if (!enabled || imported.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, IpBitmap> bitmaps = new HashMap<>();
+        hitRollupRepository.forEachImportedIp(ChronoUnit.DAYS, imported, (key, ip) -> {
+            IpBitmap bitmap = bitmaps.get(key);
+            if (bitmap == null) {
+                if (bitmaps.size() == IMPORT_BITMAPS) {
+                    ipBitmapRepository.merge(bitmaps);
+                    bitmaps.clear();
+                }
+                bitmap = new IpBitmap();
+                bitmaps.put(key, bitmap);
+            }
+            bitmap.add(ip);
+        });
+        ipBitmapRepository.merge(bitmaps);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.bitmap.flush-interval:PT10S}")
+    public synchronized void flush() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, IpBitmap> bitmaps = pending.drain();
+        try {
+            flushTimer.record(() -> ipBitmapRepository.merge(bitmaps));
+        } catch (Exception e) {
+            log.error("Не удалось сохранить {} битмапов IP, повтор при следующем сбросе: {}",
+                    bitmaps.size(), e.getMessage());
+            pending.restore(IpBitmap::union);
+        } finally {
+            pending.complete();
+        }
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        TimeRangeSplit split = TimeRangeSplit.of(start, end, ChronoUnit.DAYS);
+        List<TimeSlice> days = split.getBuckets(ChronoUnit.DAYS);
+
+        Map<StatsKey, IpBitmap> bitmaps = new HashMap<>();
+        Set<LocalDateTime> covered = new HashSet<>();
+        AtomicLong mergeNanos = new AtomicLong();
+        ipBitmapRepository.forEach(days, uris, (key, bitmap) -> {
+            bitmapSize.record(bitmap.getSizeInBytes());
+            covered.add(key.bucket());
+            long started = System.nanoTime();
+            bitmaps.merge(key.key(), bitmap, IpBitmap::union);
+            mergeNanos.addAndGet(System.nanoTime() - started);
+        });
+        pending.forEachBucket(days, uris, (key, bitmap) -> {
+            synchronized (bitmap) {
+                covered.add(key.bucket());
+                long started = System.nanoTime();
+                IpBitmap current = bitmaps.get(key.key());
+                if (current == null) {
+                    bitmaps.put(key.key(), bitmap.copy());
+                } else {
+                    current.or(bitmap);
+                }
+                mergeNanos.addAndGet(System.nanoTime() - started);
+            }
+        });
+        mergeTimer.record(mergeNanos.get(), TimeUnit.NANOSECONDS);
+        List<TimeSlice> raw = new ArrayList<>(split.getRaw());
+        raw.addAll(uncovered(days, covered));
+        hitRollupRepository.forEachDistinctIp(raw, uris, (key, ip) ->
+                bitmaps.computeIfAbsent(key, k -> new IpBitmap()).add(ip));
+
+        Map<StatsKey, Long> counts = new HashMap<>();
+        bitmaps.forEach((key, bitmap) -> counts.put(key, bitmap.cardinality()));
+        return HitRollupService.toViewStats(counts);
+    }
+
+    // подряд идущие сутки без битмапов склеиваются в один интервал
+    static List<TimeSlice> uncovered(List<TimeSlice> days, Set<LocalDateTime> covered) {
+        List<TimeSlice> result = new ArrayList<>();
+        for (TimeSlice slice : days) {
+            LocalDateTime from = null;
+            for (LocalDateTime day = slice.from(); day.isBefore(slice.to()); day = day.plusDays(1)) {
+                if (covered.contains(day)) {
+                    if (from != null) {
+                        result.add(new TimeSlice(from, day, false));
+                        from = null;
+                    }
+                } else if (from == null) {
+                    from = day;
+                }
+            }
+            if (from != null) {
+                result.add(new TimeSlice(from, slice.to(), false));
+            }
+        }
+        return result;
+    }
+
+    private static double pendingBytes(PendingBuckets<IpBitmap> pending) {
+        AtomicLong size = new AtomicLong();
+        pending.forEachValue(bitmap -> {
+            synchronized (bitmap) {
+                size.addAndGet(bitmap.getSizeInBytes());
+            }
+        });
+        return size.get();
+    }
+}
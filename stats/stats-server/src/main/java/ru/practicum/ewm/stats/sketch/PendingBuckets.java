@@ -0,0 +1,106 @@
+package ru.practicum.ewm.stats.sketch;
+
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Накопленные в памяти значения по корзинам до сброса в базу. Запись идет под read-lock,
+ * сброс подменяет карту под write-lock, поэтому после подмены в снятую карту никто не пишет.
+ * Само значение изменяется только под его монитором.
+ */
+class PendingBuckets<V> {
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<BucketKey, V> pending = new ConcurrentHashMap<>();
+    private volatile Map<BucketKey, V> flushing = Map.of();
+
+    <T> void update(Iterable<T> items, Function<T, BucketKey> keyMapper, Function<BucketKey, V> factory,
+                    BiConsumer<V, T> updater) {
+        swapLock.readLock().lock();
+        try {
+            for (T item : items) {
+                V value = pending.computeIfAbsent(keyMapper.apply(item), factory);
+                synchronized (value) {
+                    updater.accept(value, item);
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    // снятая карта остается видимой запросам, пока не вызван complete()
+    Map<BucketKey, V> drain() {
+        swapLock.writeLock().lock();
+        try {
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+            return flushing;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // возвращает несохраненные значения обратно, объединение должно быть идемпотентным
+    void restore(BinaryOperator<V> merger) {
+        swapLock.readLock().lock();
+        try {
+            flushing.forEach((key, value) -> pending.compute(key, (k, current) -> {
+                if (current == null) {
+                    return value;
+                }
+                synchronized (current) {
+                    return merger.apply(current, value);
+                }
+            }));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    void complete() {
+        flushing = Map.of();
+    }
+
+    // значения корзин, начало которых попадает в slices; читать значение нужно под его монитором
+    void forEach(List<TimeSlice> slices, List<String> uris, BiConsumer<StatsKey, V> consumer) {
+        forEachBucket(slices, uris, (key, value) -> consumer.accept(key.key(), value));
+    }
+
+    void forEachBucket(List<TimeSlice> slices, List<String> uris, BiConsumer<BucketKey, V> consumer) {
+        BiConsumer<BucketKey, V> filter = (key, value) -> {
+            if (uris != null && !uris.isEmpty() && !uris.contains(key.key().uri())) {
+                return;
+            }
+            if (slices.stream().anyMatch(slice -> !key.bucket().isBefore(slice.from())
+                    && key.bucket().isBefore(slice.to()))) {
+                consumer.accept(key, value);
+            }
+        };
+        flushing.forEach(filter);
+        pending.forEach(filter);
+    }
+
+    void forEachValue(Consumer<V> consumer) {
+        pending.values().forEach(consumer);
+    }
+
+    int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,187 @@
+package ru.practicum.ewm.stats.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving: не больше capacity самых частых ключей с оценкой счетчика сверху.
+ * Для каждого ключа count - error <= истинное значение <= count, а ключ, которого нет в сводке,
+ * встречался не больше getMinCount() раз. При total хитов ошибка не превышает total / capacity.
+ * Счетчики лежат в min-куче по count, вытесняется ключ с наименьшим счетчиком.
+ * Не потокобезопасен.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Long, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Емкость Space-Saving должна быть положительной");
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>();
+    }
+
+    /**
+     * Объединение сводок (Cafaro и др.): ключ, которого нет в одной из сводок, получает к оценке и ошибке
+     * ее минимальный счетчик, из кандидатов остаются capacity с наибольшей оценкой.
+     */
+    public static SpaceSaving merge(int capacity, List<SpaceSaving> summaries) {
+        Map<Long, long[]> candidates = new HashMap<>();
+        long total = 0;
+        long minSum = 0;
+        for (SpaceSaving summary : summaries) {
+            total += summary.total;
+            minSum += summary.getMinCount();
+        }
+        long absentBound = minSum;
+        for (SpaceSaving summary : summaries) {
+            long min = summary.getMinCount();
+            for (int i = 0; i < summary.size; i++) {
+                // в оценке сначала учтены минимумы всех сводок, свой минимум заменяется настоящим счетчиком
+                long[] candidate = candidates.computeIfAbsent(summary.keys[i], key -> new long[]{absentBound, absentBound});
+                candidate[0] += summary.counts[i] - min;
+                candidate[1] += summary.errors[i] - min;
+            }
+        }
+
+        SpaceSaving merged = new SpaceSaving(capacity);
+        candidates.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Long, long[]> entry) -> entry.getValue()[0]).reversed())
+                .limit(capacity)
+                .forEach(entry -> merged.append(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        merged.heapify();
+        merged.total = total;
+        return merged;
+    }
+
+    public void add(long key, long count) {
+        total += count;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += count;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            append(key, count, 0);
+            siftUp(size - 1);
+            return;
+        }
+        // вытесняется минимальный счетчик, новый ключ наследует его значение как ошибку
+        positions.remove(keys[0]);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += count;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // верхняя граница счетчика для ключей, которых нет в сводке
+    public long getMinCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    public long count(long key) {
+        Integer position = positions.get(key);
+        return position == null ? getMinCount() : counts[position];
+    }
+
+    public List<Counter> top(int n) {
+        List<Counter> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Counter(keys[i], counts[i], errors[i]));
+        }
+        result.sort(Comparator.comparingLong(Counter::count).reversed());
+        return result.subList(0, Math.min(n, result.size()));
+    }
+
+    public long getSizeInBytes() {
+        return (long) capacity * Long.BYTES * 3 + positions.size() * 64L;
+    }
+
+    private void append(long key, long count, long error) {
+        keys[size] = key;
+        counts[size] = count;
+        errors[size] = error;
+        positions.put(key, size);
+        size++;
+    }
+
+    private void heapify() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+
+    public record Counter(long key, long count, long error) {
+    }
+}
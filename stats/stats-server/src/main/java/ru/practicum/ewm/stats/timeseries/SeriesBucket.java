@@ -0,0 +1,19 @@
+package ru.practicum.ewm.stats.timeseries;
+
+import java.time.temporal.ChronoUnit;
+
+public enum SeriesBucket {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    SeriesBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.ewm.stats.timeseries;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.dto.TimeSeriesDto;
+import ru.practicum.ewm.stats.dto.UriSeriesDto;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.sketch.HllUniqueService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Плотные ряды хитов по корзинам за один проход: неуникальные - из поминутных и почасовых агрегатов,
+ * уникальные по часам и суткам - из объединения часовых HyperLogLog-скетчей. Поминутных скетчей нет,
+ * поэтому уникальные по минутам и все ряды при выключенных агрегатах и скетчах считаются по сырым хитам
+ * одним запросом с группировкой по корзине.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimeSeriesService {
+
+    private final HitRollupService hitRollupService;
+    private final HllUniqueService hllUniqueService;
+    private final HitRollupRepository hitRollupRepository;
+
+    @Value("${stats.timeseries.max-points:10000}")
+    private int maxPoints;
+
+    // предел корзин во всех рядах ответа: каждый ряд - плотный массив, без uris рядов столько, сколько uri с хитами
+    @Value("${stats.timeseries.max-total-points:1000000}")
+    private long maxTotalPoints;
+
+    public TimeSeriesDto getSeries(LocalDateTime start, LocalDateTime end, List<String> uris, SeriesBucket bucket,
+                                   boolean unique) {
+        if (start.isAfter(end)) {
+            throw new ValidationException("Старт не может быть позже энд");
+        }
+        ChronoUnit unit = bucket.getUnit();
+        LocalDateTime from = start.truncatedTo(unit);
+        LocalDateTime to = end.truncatedTo(unit);
+        long points = unit.between(from, to) + 1;
+        if (points > maxPoints) {
+            throw new ValidationException("В ряду " + points + " корзин, допустимо не больше " + maxPoints
+                    + ": сократите интервал или укрупните корзину");
+        }
+        long maxSeries = maxTotalPoints / points;
+        if (uris != null && uris.size() > maxSeries) {
+            throw tooManySeries(points, maxSeries);
+        }
+
+        Map<StatsKey, long[]> series = new HashMap<>();
+        for (Map.Entry<BucketKey, Long> entry : count(start, end, unit, uris, unique).entrySet()) {
+            BucketKey key = entry.getKey();
+            long[] hits = series.get(key.key());
+            if (hits == null) {
+                if (series.size() >= maxSeries) {
+                    throw tooManySeries(points, maxSeries);
+                }
+                hits = new long[(int) points];
+                series.put(key.key(), hits);
+            }
+            hits[(int) unit.between(from, key.bucket())] += entry.getValue();
+        }
+
+        return TimeSeriesDto.builder()
+                .bucket(bucket.name().toLowerCase())
+                .from(from)
+                .to(to)
+                .unique(unique)
+                .series(series.entrySet().stream()
+                        .map(entry -> UriSeriesDto.builder()
+                                .app(entry.getKey().app())
+                                .uri(entry.getKey().uri())
+                                .total(Arrays.stream(entry.getValue()).sum())
+                                .hits(Arrays.stream(entry.getValue()).boxed().toList())
+                                .build())
+                        .sorted(Comparator.comparing(UriSeriesDto::getTotal).reversed())
+                        .toList())
+                .build();
+    }
+
+    private ValidationException tooManySeries(long points, long maxSeries) {
+        return new ValidationException("При " + points + " корзинах в ряду допустимо не больше " + maxSeries
+                + " рядов: укажите uris, сократите интервал или укрупните корзину");
+    }
+
+    private Map<BucketKey, Long> count(LocalDateTime start, LocalDateTime end, ChronoUnit unit, List<String> uris,
+                                       boolean unique) {
+        List<TimeSlice> range = List.of(new TimeSlice(start, end, true));
+        if (unique) {
+            return hllUniqueService.isEnabled() && unit != ChronoUnit.MINUTES
+                    ? hllUniqueService.getSeries(start, end, unit, uris)
+                    : hitRollupRepository.countDistinctSeries(unit, range, uris);
+        }
+        return hitRollupService.isEnabled()
+                ? hitRollupService.getSeries(start, end, unit, uris)
+                : hitRollupRepository.countRawSeries(unit, range, uris);
+    }
+}
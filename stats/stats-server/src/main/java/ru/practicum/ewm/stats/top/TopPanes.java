@@ -0,0 +1,89 @@
+package ru.practicum.ewm.stats.top;
+
+import ru.practicum.ewm.stats.sketch.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сводки Space-Saving по корзинам одного окна в кольце. Корзина хранит свой номер, поэтому чужая
+ * (от предыдущего оборота) читается как пустая и сбрасывается при первой записи.
+ * Объединение закрытых корзин кешируется до смены текущей корзины или записи опоздавшего хита,
+ * так что запрос объединяет только две сводки, а без новых хитов отдает готовый результат.
+ * Не потокобезопасен.
+ */
+class TopPanes {
+
+    private final TopWindow window;
+    private final int capacity;
+    private final Pane[] panes;
+    private SpaceSaving closed;
+    private long closedFor = Long.MIN_VALUE;
+    private SpaceSaving latest;
+    private long latestFor = Long.MIN_VALUE;
+
+    TopPanes(TopWindow window, int capacity) {
+        this.window = window;
+        this.capacity = capacity;
+        this.panes = new Pane[window.getPanes()];
+    }
+
+    // хит из будущего учитывается в текущей корзине, слишком старый - пропускается
+    void add(long key, LocalDateTime timestamp, long count, LocalDateTime now) {
+        long current = window.paneIndex(now);
+        long index = Math.min(window.paneIndex(timestamp), current);
+        if (index <= current - panes.length) {
+            return;
+        }
+        int slot = (int) Math.floorMod(index, panes.length);
+        if (panes[slot] == null || panes[slot].index != index) {
+            panes[slot] = new Pane(index, new SpaceSaving(capacity));
+        }
+        panes[slot].summary.add(key, count);
+        latest = null;
+        if (index < current) {
+            closed = null;
+        }
+    }
+
+    SpaceSaving summary(LocalDateTime now) {
+        long current = window.paneIndex(now);
+        if (latest != null && latestFor == current) {
+            return latest;
+        }
+        if (closed == null || closedFor != current) {
+            List<SpaceSaving> summaries = new ArrayList<>(panes.length - 1);
+            for (long index = current - panes.length + 1; index < current; index++) {
+                SpaceSaving pane = pane(index);
+                if (pane != null) {
+                    summaries.add(pane);
+                }
+            }
+            closed = SpaceSaving.merge(capacity, summaries);
+            closedFor = current;
+        }
+        SpaceSaving currentPane = pane(current);
+        latest = currentPane == null ? closed : SpaceSaving.merge(capacity, List.of(closed, currentPane));
+        latestFor = current;
+        return latest;
+    }
+
+    long getSizeInBytes() {
+        long size = closed == null ? 0 : closed.getSizeInBytes();
+        for (Pane pane : panes) {
+            if (pane != null) {
+                size += pane.summary.getSizeInBytes();
+            }
+        }
+        return size;
+    }
+
+    private SpaceSaving pane(long index) {
+        Pane pane = panes[(int) Math.floorMod(index, panes.length)];
+        return pane != null && pane.index == index ? pane.summary : null;
+    }
+
+    private record Pane(long index, SpaceSaving summary) {
+    }
+}
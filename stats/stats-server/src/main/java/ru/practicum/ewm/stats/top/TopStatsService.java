@@ -0,0 +1,157 @@
+package ru.practicum.ewm.stats.top;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.dto.TopStatsDto;
+import ru.practicum.ewm.stats.dto.TopUriDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.memory.HotStatsWindow;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.sketch.SpaceSaving;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Самые посещаемые uri за последний час, сутки и неделю по сводкам Space-Saving, обновляемым при записи хитов.
+ * Сводки восстанавливаются из поминутных и почасовых агрегатов до старта веб-сервера, без агрегатов
+ * окна начинаются пустыми. Как и окно в памяти, рассчитано на один экземпляр сервиса статистики.
+ */
+@Slf4j
+@Service
+public class TopStatsService implements SmartInitializingSingleton {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final Map<TopWindow, TopPanes> windows = new EnumMap<>(TopWindow.class);
+    private volatile boolean ready;
+
+    @Value("${stats.top.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.top.capacity:1000}")
+    private int capacity;
+
+    @Value("${stats.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    public TopStatsService(NamedParameterJdbcTemplate jdbcTemplate, HitDictionary hitDictionary,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        Gauge.builder("stats.top.size", this, TopStatsService::getSizeInBytes)
+                .description("Память сводок самых посещаемых uri")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        for (TopWindow window : TopWindow.values()) {
+            windows.put(window, new TopPanes(window, capacity));
+        }
+        if (!rollupEnabled) {
+            ready = true;
+            log.info("Агрегаты выключены, топ uri начинается с пустых окон");
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long started = System.nanoTime();
+        long rows;
+        synchronized (this) {
+            rows = replay("hits_rollup_minute", now, List.of(TopWindow.HOUR))
+                    + replay("hits_rollup_hour", now, List.of(TopWindow.DAY, TopWindow.WEEK));
+        }
+        ready = true;
+        log.info("Топ uri восстановлен из {} строк агрегатов за {} мс", rows,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            for (EndpointHit hit : event.hits()) {
+                long key = HotStatsWindow.key(hitDictionary.appId(hit.getApp()), hitDictionary.uriId(hit.getUri()));
+                for (TopPanes panes : windows.values()) {
+                    panes.add(key, hit.getTimestamp(), 1, now);
+                }
+            }
+        }
+    }
+
+    public TopStatsDto getTop(TopWindow window, int n) {
+        LocalDateTime now = LocalDateTime.now();
+        SpaceSaving summary;
+        synchronized (this) {
+            summary = windows.get(window).summary(now);
+        }
+
+        // сводка после объединения больше не меняется, ее можно читать без блокировки
+        List<SpaceSaving.Counter> top = summary.top(n + 1);
+        long maxOtherHits = top.size() > n ? top.get(n).count() : summary.getMinCount();
+        return TopStatsDto.builder()
+                .window(window.name())
+                .from(window.from(now))
+                .total(summary.getTotal())
+                .maxOtherHits(maxOtherHits)
+                .uris(top.subList(0, Math.min(n, top.size())).stream()
+                        .map(counter -> new TopUriDto(hitDictionary.appName(HotStatsWindow.appId(counter.key())),
+                                hitDictionary.uriName(HotStatsWindow.uriId(counter.key())), counter.count(),
+                                counter.error()))
+                        .toList())
+                .build();
+    }
+
+    private long replay(String table, LocalDateTime now, List<TopWindow> targets) {
+        LocalDateTime from = targets.get(targets.size() - 1).from(now);
+        long[] rows = new long[1];
+        jdbcTemplate.query("""
+                SELECT app_id, uri_id, bucket, hits
+                  FROM %s
+                 WHERE bucket >= :from
+                """.formatted(table), new MapSqlParameterSource("from", from), rs -> {
+            long key = HotStatsWindow.key(rs.getInt("app_id"), rs.getInt("uri_id"));
+            LocalDateTime bucket = rs.getObject("bucket", LocalDateTime.class);
+            for (TopWindow window : targets) {
+                windows.get(window).add(key, bucket, rs.getLong("hits"), now);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private synchronized double getSizeInBytes() {
+        long size = 0;
+        for (TopPanes panes : windows.values()) {
+            size += panes.getSizeInBytes();
+        }
+        return size;
+    }
+}
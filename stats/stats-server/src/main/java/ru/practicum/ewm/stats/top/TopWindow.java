@@ -0,0 +1,45 @@
+package ru.practicum.ewm.stats.top;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Скользящие окна топа: окно собирается из span закрытых корзин по unit и текущей, незакрытой.
+ * Поэтому фактическое начало окна - начало самой старой корзины, оно раньше now - span * unit
+ * не больше чем на одну корзину.
+ */
+public enum TopWindow {
+    HOUR(ChronoUnit.MINUTES, 60),
+    DAY(ChronoUnit.HOURS, 24),
+    WEEK(ChronoUnit.DAYS, 7);
+
+    private final ChronoUnit unit;
+    private final int span;
+
+    TopWindow(ChronoUnit unit, int span) {
+        this.unit = unit;
+        this.span = span;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    // корзин в окне вместе с текущей
+    public int getPanes() {
+        return span + 1;
+    }
+
+    public long paneIndex(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), unit.getDuration().getSeconds());
+    }
+
+    public LocalDateTime paneStart(long paneIndex) {
+        return LocalDateTime.ofEpochSecond(paneIndex * unit.getDuration().getSeconds(), 0, ZoneOffset.UTC);
+    }
+
+    public LocalDateTime from(LocalDateTime now) {
+        return paneStart(paneIndex(now) - span);
+    }
+}
@@ -1,11 +1,75 @@
-DROP SEQUENCE IF EXISTS hit_seq;
-DROP TABLE IF EXISTS hits;
+CREATE SEQUENCE IF NOT EXISTS hit_seq START 1 INCREMENT 50;
 
-CREATE SEQUENCE IF NOT EXISTS hit_seq START 1 INCREMENT 1;
+-- словари: в hits и агрегатах хранятся id вместо строк
+CREATE TABLE IF NOT EXISTS apps (
+    id INT4 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id INT4 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+-- секции по диапазонам timestamp создает и удаляет HitPartitionManager,
+-- в hits_default попадают хиты, для периода которых секции еще нет
 CREATE TABLE IF NOT EXISTS hits (
-    id INT8 PRIMARY KEY,
-    app VARCHAR(255) NOT NULL,
-    uri VARCHAR(255) NOT NULL,
-    ip VARCHAR(255) NOT NULL,
-    timestamp TIMESTAMP NOT NULL
-);
\ No newline at end of file
+    id INT8 NOT NULL,
+    app_id INT4 NOT NULL,
+    uri_id INT4 NOT NULL,
+    ip INET NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+CREATE INDEX IF NOT EXISTS hits_timestamp_idx ON hits (timestamp);
+CREATE INDEX IF NOT EXISTS hits_uri_timestamp_idx ON hits (uri_id, timestamp);
+
+-- агрегаты хитов по (app_id, uri_id) на начало минуты/часа, поддерживаются при записи хитов
+CREATE TABLE IF NOT EXISTS hits_rollup_minute (
+    app_id INT4 NOT NULL,
+    uri_id INT4 NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits INT8 NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+CREATE INDEX IF NOT EXISTS hits_rollup_minute_bucket_idx ON hits_rollup_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS hits_rollup_hour (
+    app_id INT4 NOT NULL,
+    uri_id INT4 NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits INT8 NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+CREATE INDEX IF NOT EXISTS hits_rollup_hour_bucket_idx ON hits_rollup_hour (bucket);
+
+-- HyperLogLog-скетчи IP по (app, uri) на начало часа для приблизительной уникальной статистики
+CREATE TABLE IF NOT EXISTS hits_hll (
+    app_id INT4 NOT NULL,
+    uri_id INT4 NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+CREATE INDEX IF NOT EXISTS hits_hll_bucket_idx ON hits_hll (bucket);
+
+-- точные множества IP по (app, uri) на начало суток: IPv4 - сжатый битмап, остальное - списком
+CREATE TABLE IF NOT EXISTS hits_ip_bitmap (
+    app_id INT4 NOT NULL,
+    uri_id INT4 NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    ips BYTEA NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+CREATE INDEX IF NOT EXISTS hits_ip_bitmap_bucket_idx ON hits_ip_bitmap (bucket);
+
+-- сегменты холодного архива: хиты старше stats.archive.after перенесены из hits в файлы в stats.archive.dir,
+-- строка добавляется в одной транзакции с удалением хитов
+CREATE TABLE IF NOT EXISTS hits_archive_segments (
+    name VARCHAR(255) PRIMARY KEY,
+    min_timestamp TIMESTAMP NOT NULL,
+    max_timestamp TIMESTAMP NOT NULL,
+    hits INT8 NOT NULL,
+    size_bytes INT8 NOT NULL
+);
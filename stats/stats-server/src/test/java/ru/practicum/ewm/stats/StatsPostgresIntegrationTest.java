@@ -0,0 +1,156 @@
+package ru.practicum.ewm.stats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.ewm.stats.archive.HitArchiver;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.partition.HitsDroppedEvent;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// схема из schema.sql и запросы PostgreSQL: агрегаты, словарь, секции, битмапы, скетчи и архив
+@SpringBootTest(properties = {
+        "spring.sql.init.mode=always",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "stats.partitioning.enabled=true",
+        "stats.archive.enabled=true",
+        "stats.archive.after=P30D",
+        "stats.top.enabled=true",
+        "stats.hll.enabled=true",
+        "stats.bitmap.enabled=true"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+public class StatsPostgresIntegrationTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // вне окна статистики в памяти, но моложе переноса в архив
+    private static final LocalDateTime DAY = LocalDateTime.now().minusDays(10).truncatedTo(ChronoUnit.DAYS);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("stats.archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HitArchiver hitArchiver;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static EndpointHitDto hit(String uri, String ip, LocalDateTime timestamp, Long count) {
+        return new EndpointHitDto(null, "ewm-main", uri, ip, timestamp, count);
+    }
+
+    private void addHits(EndpointHitDto... hits) throws Exception {
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(hits))))
+                .andExpect(status().isCreated());
+    }
+
+    private List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, String uri, boolean unique,
+                                        boolean approximate) throws Exception {
+        String body = mockMvc.perform(get("/stats")
+                        .param("start", start.format(FORMAT))
+                        .param("end", end.format(FORMAT))
+                        .param("uris", uri)
+                        .param("unique", String.valueOf(unique))
+                        .param("approximate", String.valueOf(approximate)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return List.of(objectMapper.readValue(body, ViewStatsDto[].class));
+    }
+
+    @Test
+    void stats_HitsOfPastDay_ShouldCountThemFromRollupsBitmapsAndSketches() throws Exception {
+        addHits(hit("/events/1", "10.0.0.1", DAY.plusHours(1), null),
+                hit("/events/1", "10.0.0.2", DAY.plusHours(1), null),
+                hit("/events/1", "10.0.0.1", DAY.plusHours(2).plusSeconds(30), 2L));
+        LocalDateTime end = DAY.plusDays(1).minusSeconds(1);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 4L)),
+                getStats(DAY, end, "/events/1", false, false));
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 2L)),
+                getStats(DAY, end, "/events/1", true, false));
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 2L)),
+                getStats(DAY, end, "/events/1", true, true));
+
+        Integer partitions = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'hits'::regclass", Integer.class);
+        assertTrue(partitions > 1, "секции hits не созданы");
+    }
+
+    @Test
+    void stats_ArchivedHits_ShouldCountThemFromSegments() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(60).truncatedTo(ChronoUnit.DAYS).plusHours(10);
+        addHits(hit("/events/archived", "10.0.0.1", old.plusSeconds(20), null),
+                hit("/events/archived", "10.0.0.2", old.plusSeconds(30), null),
+                hit("/events/archived", "10.0.0.2", old.plusSeconds(40), null));
+
+        hitArchiver.archive();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits WHERE timestamp BETWEEN ? AND ?",
+                Integer.class, old, old.plusMinutes(1)));
+        // неполная минута считается по сырым хитам, то есть по сегменту
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/archived", 3L)),
+                getStats(old.plusSeconds(10), old.plusSeconds(50), "/events/archived", false, false));
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/archived", 2L)),
+                getStats(old.plusSeconds(10), old.plusSeconds(50), "/events/archived", true, false));
+    }
+
+    @Test
+    void onHitsDropped_ShouldDeleteRollupsBeforeCutoff() throws Exception {
+        LocalDateTime dropped = LocalDateTime.now().minusDays(200).truncatedTo(ChronoUnit.DAYS);
+        addHits(hit("/events/dropped", "10.0.0.1", dropped.plusHours(5), null));
+
+        eventPublisher.publishEvent(new HitsDroppedEvent(dropped.plusDays(1)));
+
+        for (String table : List.of("hits_rollup_minute", "hits_rollup_hour")) {
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE bucket < ?",
+                    Integer.class, dropped.plusDays(1)));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.ewm.stats.archive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HitArchiveTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 1, 10, 0, 0);
+    private static final List<TimeSlice> RANGE = List.of(new TimeSlice(DAY, DAY.plusDays(1), false));
+
+    @TempDir
+    private Path directory;
+
+    private HitArchive hitArchive;
+    private HitSegment segment;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hitArchive = new HitArchive(null, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(hitArchive, "enabled", true);
+        ReflectionTestUtils.setField(hitArchive, "lockTimeout", Duration.ofMillis(200));
+
+        HitSegment.Writer writer = new HitSegment.Writer();
+        writer.add(1, 10, DAY.plusHours(1), "10.0.0.1");
+        Path file = directory.resolve("hits.seg");
+        writer.writeTo(file);
+        segment = HitSegment.open(file);
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void addOnCommit_Committed_ShouldShowSegmentTogetherWithCommit() throws Exception {
+        hitArchive.addOnCommit(segment);
+        assertFalse(hitArchive.overlaps(RANGE));
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        // пока транзакция фиксируется, запросы к архиву ждут
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() ->
+                hitArchive.read(() -> hitArchive.overlaps(RANGE)));
+        Thread.sleep(50);
+        assertFalse(reader.isDone());
+
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(reader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void addOnCommit_RolledBack_ShouldNotShowSegment() {
+        hitArchive.addOnCommit(segment);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertFalse(hitArchive.read(() -> hitArchive.overlaps(RANGE)));
+    }
+
+    @Test
+    void addOnCommit_QueryLongerThanLockTimeout_ShouldFailCommit() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> hitArchive.read(() -> {
+            reading.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        hitArchive.addOnCommit(segment);
+
+        try {
+            assertThrows(CannotAcquireLockException.class, () ->
+                    TransactionSynchronizationUtils.triggerBeforeCommit(false));
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            release.countDown();
+        }
+
+        reader.get(5, TimeUnit.SECONDS);
+        assertFalse(hitArchive.overlaps(RANGE));
+    }
+
+    @Test
+    void load_SegmentNotRegistered_ShouldRegisterItFromHeader() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of());
+        HitArchive restored = new HitArchive(jdbcTemplate, null, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(restored, "enabled", true);
+        ReflectionTestUtils.setField(restored, "directory", directory);
+
+        restored.afterSingletonsInstantiated();
+
+        verify(jdbcTemplate).update(anyString(), eq("hits.seg"), eq(DAY.plusHours(1)), eq(DAY.plusHours(1)),
+                eq(1L), eq(segment.getSizeInBytes()));
+        assertTrue(restored.overlaps(RANGE));
+    }
+}
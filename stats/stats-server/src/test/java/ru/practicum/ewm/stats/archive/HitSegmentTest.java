@@ -0,0 +1,103 @@
+package ru.practicum.ewm.stats.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HitSegmentTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 1, 10, 0, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void countHits_WholeAndPartialRanges_ShouldMatchRawCount() throws Exception {
+        HitSegment segment = write();
+
+        assertEquals(Map.of(key(1, 10), 60L, key(1, 20), 30L, key(2, 20), 10L),
+                count(segment, List.of(new TimeSlice(DAY, DAY.plusDays(1), false)), null));
+        // хиты группы (1, 10) идут раз в минуту с 00:00, граница 00:30 не включается
+        assertEquals(Map.of(key(1, 10), 30L, key(1, 20), 30L),
+                count(segment, List.of(new TimeSlice(DAY, DAY.plusMinutes(30), false)), null));
+        assertEquals(Map.of(key(1, 10), 31L),
+                count(segment, List.of(new TimeSlice(DAY, DAY.plusMinutes(30), true)), Set.of(10)));
+        assertEquals(Map.of(key(1, 10), 2L), count(segment, List.of(
+                new TimeSlice(DAY.plusMinutes(5), DAY.plusMinutes(5), true),
+                new TimeSlice(DAY.plusMinutes(50), DAY.plusMinutes(51), false)), Set.of(10)));
+        assertEquals(Map.of(), count(segment, List.of(new TimeSlice(DAY.minusDays(1), DAY, false)), null));
+    }
+
+    @Test
+    void forEachDistinctIp_PartialRange_ShouldReturnIpsOnce() throws Exception {
+        HitSegment segment = write();
+        Map<Long, Set<String>> ips = new HashMap<>();
+
+        segment.forEachDistinctIp(List.of(new TimeSlice(DAY, DAY.plusMinutes(10), false)), Set.of(10),
+                (appId, uriId, ip) -> assertTrue(ips.computeIfAbsent(key(appId, uriId), k -> new HashSet<>()).add(ip)));
+
+        assertEquals(Map.of(key(1, 10), Set.of("10.0.0.0", "10.0.0.1", "10.0.0.2")), ips);
+    }
+
+    @Test
+    void open_WrittenSegment_ShouldKeepIndexAndCompress() throws Exception {
+        HitSegment segment = write();
+
+        assertEquals(100, segment.getRows());
+        assertEquals(DAY, segment.getMinTime());
+        assertEquals(DAY.plusMinutes(59).plusNanos(123_000), segment.getMaxTime());
+        assertTrue(segment.overlaps(List.of(new TimeSlice(DAY.minusDays(1), DAY, true))));
+        assertFalse(segment.overlaps(List.of(new TimeSlice(DAY.minusDays(1), DAY, false))));
+        assertTrue(Files.size(segment.getPath()) < 100 * 16);
+    }
+
+    @Test
+    void add_OutOfOrder_ShouldThrow() {
+        HitSegment.Writer writer = new HitSegment.Writer();
+        writer.add(1, 20, DAY, "10.0.0.1");
+
+        assertThrows(IllegalStateException.class, () -> writer.add(1, 10, DAY, "10.0.0.1"));
+        assertThrows(IllegalStateException.class, () -> writer.add(1, 20, DAY.minusSeconds(1), "10.0.0.1"));
+    }
+
+    // (app 1, uri 10): 60 хитов раз в минуту с 3 ip; (1, 20): 30 хитов за первые полчаса; (2, 20): 10 хитов в конце часа
+    private HitSegment write() throws Exception {
+        HitSegment.Writer writer = new HitSegment.Writer();
+        for (int i = 0; i < 60; i++) {
+            writer.add(1, 10, DAY.plusMinutes(i), "10.0.0." + i % 3);
+        }
+        for (int i = 0; i < 30; i++) {
+            writer.add(1, 20, DAY.plusSeconds(i * 10), "2001:db8::1");
+        }
+        for (int i = 0; i < 10; i++) {
+            writer.add(2, 20, DAY.plusMinutes(50 + i).plusNanos(123_000), "10.0.0." + i);
+        }
+        Path path = directory.resolve("hits-20250110.seg");
+        writer.writeTo(path);
+        return HitSegment.open(path);
+    }
+
+    private static Map<Long, Long> count(HitSegment segment, List<TimeSlice> slices, Set<Integer> uriIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        segment.countHits(slices, uriIds, (appId, uriId, hits) -> counts.merge(key(appId, uriId), hits, Long::sum));
+        return counts;
+    }
+
+    private static long key(int appId, int uriId) {
+        return (long) appId << 32 | uriId;
+    }
+}
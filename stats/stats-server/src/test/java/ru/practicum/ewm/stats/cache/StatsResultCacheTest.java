@@ -0,0 +1,109 @@
+package ru.practicum.ewm.stats.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.datasource.ReplicaProperties;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.partition.HitsDroppedEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StatsResultCacheTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.now().minusDays(2).withNano(0);
+
+    private StatsResultCache cache = new StatsResultCache(true, 1000, Duration.ofMinutes(5), null,
+            new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_SameKeyTwice_ShouldLoadOnce() {
+        load(StatsCacheKey.of(DAY, DAY.plusHours(1), List.of("/events/2", "/events/1"), false));
+        load(StatsCacheKey.of(DAY, DAY.plusHours(1), List.of("/events/1", "/events/2", "/events/1"), false));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void onHitsSaved_LateHit_ShouldEvictOnlyCoveringResults() {
+        StatsCacheKey covering = StatsCacheKey.of(DAY, DAY.plusHours(1), null, false);
+        StatsCacheKey otherUri = StatsCacheKey.of(DAY, DAY.plusHours(1), List.of("/events/2"), false);
+        StatsCacheKey otherTime = StatsCacheKey.of(DAY.plusHours(2), DAY.plusHours(3), null, false);
+        load(covering);
+        load(otherUri);
+        load(otherTime);
+
+        cache.onHitsSaved(new HitsSavedEvent(List.of(hit("/events/1", DAY.plusMinutes(30)),
+                hit("/events/2", LocalDateTime.now()))));
+        load(covering);
+        load(otherUri);
+        load(otherTime);
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void onHitsDropped_ShouldEvictResultsStartingBeforeBoundary() {
+        StatsCacheKey dropped = StatsCacheKey.of(DAY.minusHours(1), DAY.plusHours(1), null, false);
+        StatsCacheKey kept = StatsCacheKey.of(DAY, DAY.plusHours(1), null, false);
+        load(dropped);
+        load(kept);
+
+        cache.onHitsDropped(new HitsDroppedEvent(DAY));
+        load(dropped);
+        load(kept);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void purge_ShouldDropEverything() {
+        StatsCacheKey key = StatsCacheKey.of(DAY, DAY.plusHours(1), null, true);
+        load(key);
+
+        cache.purge();
+        load(key);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_WithinReplicaLagAfterInvalidation_ShouldNotCacheResult() {
+        ReplicaProperties replicaProperties = new ReplicaProperties();
+        replicaProperties.setMaxLag(Duration.ofMinutes(1));
+        cache = new StatsResultCache(true, 1000, Duration.ofMinutes(5), replicaProperties, new SimpleMeterRegistry());
+        StatsCacheKey key = StatsCacheKey.of(DAY, DAY.plusHours(1), null, false);
+        load(key);
+        load(key);
+
+        cache.purge();
+        load(key);
+        load(key);
+
+        // до инвалидации кеш работает, после - реплика могла отдать устаревший результат
+        assertEquals(3, loads.get());
+    }
+
+    private void load(StatsCacheKey key) {
+        cache.get(key, () -> {
+            loads.incrementAndGet();
+            return List.of(new ViewStatsDto("ewm-main", "/events/1", 1L));
+        });
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        EndpointHit hit = new EndpointHit();
+        hit.setApp("ewm-main");
+        hit.setUri(uri);
+        hit.setIp("10.0.0.1");
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
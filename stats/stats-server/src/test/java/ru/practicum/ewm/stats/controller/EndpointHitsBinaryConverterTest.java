@@ -0,0 +1,87 @@
+package ru.practicum.ewm.stats.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.EndpointHitsBinaryCodec;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EndpointHitsBinaryConverterTest {
+
+    private static final Type HITS = new ParameterizedTypeReference<List<EndpointHitDto>>() { }.getType();
+    private static final MediaType BINARY = MediaType.parseMediaType(EndpointHitsBinaryCodec.MEDIA_TYPE);
+
+    private final EndpointHitsBinaryConverter converter = new EndpointHitsBinaryConverter(10);
+
+    @Test
+    void read_EncodedHits_ShouldRestoreHitsWithRepeatsAsCount() throws Exception {
+        var ldt = LocalDateTime.of(2025, 12, 1, 12, 0, 5);
+        EndpointHitDto first = new EndpointHitDto(null, "ewm-main", "/events/1", "10.0.0.1", ldt);
+        EndpointHitDto second = new EndpointHitDto(null, "ewm-main", "/events/2", "2001:db8::1", ldt.minusSeconds(3));
+        List<EndpointHitDto> hits = List.of(first, first, first, second, first);
+
+        byte[] body = EndpointHitsBinaryCodec.encode(hits);
+        List<EndpointHitDto> result = converter.read(HITS, null, new MockHttpInputMessage(body));
+
+        assertEquals(List.of(new EndpointHitDto(null, "ewm-main", "/events/1", "10.0.0.1", ldt, 3L), second, first),
+                result);
+    }
+
+    @Test
+    void read_MoreHitsThanLimit_ShouldThrowNotReadable() {
+        EndpointHitDto hit = new EndpointHitDto(null, "ewm-main", "/events/1", "10.0.0.1", LocalDateTime.now());
+        byte[] body = EndpointHitsBinaryCodec.encode(List.of(hit, new EndpointHitDto(null, "ewm-main", "/events/2",
+                "10.0.0.1", hit.getTimestamp(), 10L)));
+
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(HITS, null, new MockHttpInputMessage(body)));
+    }
+
+    @Test
+    void read_BrokenBody_ShouldThrowNotReadable() {
+        byte[] body = EndpointHitsBinaryCodec.encode(List.of(
+                new EndpointHitDto(null, "ewm-main", "/events/1", "10.0.0.1", LocalDateTime.now())));
+        byte[] truncated = Arrays.copyOf(body, body.length - 2);
+
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(HITS, null, new MockHttpInputMessage(truncated)));
+    }
+
+    @Test
+    void canRead_OnlyHitListsInBinaryFormat() {
+        Type stats = new ParameterizedTypeReference<List<ViewStatsDto>>() { }.getType();
+
+        assertTrue(converter.canRead(HITS, null, BINARY));
+        assertFalse(converter.canRead(HITS, null, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(stats, null, BINARY));
+        assertTrue(converter.canWrite(HITS, null, BINARY));
+        assertFalse(converter.canWrite(stats, null, BINARY));
+    }
+
+    @Test
+    void write_Hits_ShouldReadBackTheSame() throws Exception {
+        var ldt = LocalDateTime.of(2025, 12, 1, 12, 0, 5);
+        List<EndpointHitDto> hits = List.of(new EndpointHitDto(null, "ewm-main", "/events/1", "10.0.0.1", ldt, 2L),
+                new EndpointHitDto(null, "ewm-main", "/events/2", "10.0.0.2", ldt.plusSeconds(1)));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(hits, HITS, BINARY, output);
+
+        assertEquals(BINARY, output.getHeaders().getContentType());
+        assertEquals(hits, converter.read(HITS, null, new MockHttpInputMessage(output.getBodyAsBytes())));
+    }
+}
@@ -1,16 +1,21 @@
 package ru.practicum.ewm.stats.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 import ru.practicum.ewm.stats.service.StatsService;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -22,6 +27,9 @@ public class StatsControllerTest {
     @Mock
     private StatsService statsService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private StatsController statsController;
 
@@ -55,6 +63,24 @@ public class StatsControllerTest {
         verify(statsService, times(1)).addHit(dto);
     }
 
+    @Test
+    void addHits_SuccessCase_ShouldReturnCount() {
+        var ldt = LocalDateTime.now();
+        List<EndpointHitDto> dtos = List.of(
+                new EndpointHitDto(null, "ewm-main", "/events/1", "10.10.255.0", ldt),
+                new EndpointHitDto(null, "ewm-main", "/events/2", "10.10.255.1", ldt)
+        );
+
+        when(statsService.addHits(dtos))
+                .thenReturn(2);
+
+        var result = statsController.addHits(dtos);
+
+        assertNotNull(result);
+        assertEquals(2L, result.getCount());
+        verify(statsService, times(1)).addHits(dtos);
+    }
+
     @Test
     void getStats_UniqueWithoutUris_ShouldReturnStats() {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
@@ -64,10 +90,33 @@ public class StatsControllerTest {
         when(statsService.getStats(start, end, null, true))
                 .thenReturn(stats);
 
-        var result = statsController.getStats(start.toString(), end.toString(), null, true);
+        var result = statsController.getStats(start.toString(), end.toString(), null, true, false);
 
         assertNotNull(result);
         assertEquals(1, result.size());
         verify(statsService, times(1)).getStats(any(), any(), any(), any(boolean.class));
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamStats_SuccessCase_ShouldWriteNdjson() throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+
+        doAnswer(invocation -> {
+            Consumer<ViewStatsDto> consumer = invocation.getArgument(4);
+            consumer.accept(new ViewStatsDto("ewm-main", "/events/1", 3L));
+            consumer.accept(new ViewStatsDto("ewm-main", "/events/2", 1L));
+            return null;
+        }).when(statsService).streamStats(any(), any(), any(), anyBoolean(), any(Consumer.class));
+
+        var response = statsController.streamStats(start.toString(), end.toString(), null, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("""
+                {"app":"ewm-main","uri":"/events/1","hits":3}
+                {"app":"ewm-main","uri":"/events/2","hits":1}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,82 @@
+package ru.practicum.ewm.stats.embedded;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+import ru.practicum.ewm.stats.service.StatsService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InProcessStatsGatewayTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Mock
+    private ConfigurableApplicationContext context;
+
+    @Mock
+    private StatsService statsService;
+
+    private InProcessStatsGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        when(context.getBean(StatsService.class))
+                .thenReturn(statsService);
+        gateway = new InProcessStatsGateway(context);
+    }
+
+    @Test
+    void getStats_NullUnique_ShouldAskServiceForNotUnique() {
+        var stats = List.of(new ViewStatsDto("ewm-main", "/events/1", 3L));
+        when(statsService.getStats(START, START.plusDays(1), List.of("/events/1"), false))
+                .thenReturn(stats);
+
+        assertEquals(stats, gateway.getStats(START, START.plusDays(1), List.of("/events/1"), null));
+    }
+
+    @Test
+    void getStats_EndBeforeStart_ShouldThrowLikeHttpClient() {
+        assertThrows(IllegalArgumentException.class, () ->
+                gateway.getStats(START, START.minusDays(1), null, false));
+        verifyNoInteractions(statsService);
+    }
+
+    @Test
+    void addHit_ServiceOverloaded_ShouldNotThrow() {
+        when(statsService.addHit(any()))
+                .thenThrow(new OverloadedException(HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1), "busy"));
+
+        assertDoesNotThrow(() -> gateway.addHit(EndpointHitDto.builder()
+                .app("ewm-main")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(START)
+                .build()));
+    }
+
+    @Test
+    void close_ShouldCloseOwnContext() {
+        gateway.close();
+
+        verify(context).close();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HitImportEnvironmentPostProcessorTest {
+
+    private final HitImportEnvironmentPostProcessor postProcessor = new HitImportEnvironmentPostProcessor();
+
+    @Test
+    void postProcessEnvironment_ImportFile_ShouldDisableSchemaInitEvenIfConfigured() {
+        var environment = environment(Map.of("stats.import.file", "hits.csv", "spring.sql.init.mode", "always"));
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("never", environment.getProperty("spring.sql.init.mode"));
+        assertEquals("none", environment.getProperty("spring.main.web-application-type"));
+    }
+
+    @Test
+    void postProcessEnvironment_NoImportFile_ShouldKeepSettings() {
+        var environment = environment(Map.of("spring.sql.init.mode", "always"));
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("always", environment.getProperty("spring.sql.init.mode"));
+    }
+
+    private static StandardEnvironment environment(Map<String, Object> properties) {
+        var environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        return environment;
+    }
+}
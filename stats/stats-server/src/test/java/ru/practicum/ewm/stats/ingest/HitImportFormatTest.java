@@ -0,0 +1,26 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HitImportFormatTest {
+
+    @Test
+    void fromFileName_ShouldUseExtensionWithoutGz() {
+        assertEquals(HitImportFormat.CSV, HitImportFormat.fromFileName("hits-2024.CSV.gz"));
+        assertEquals(HitImportFormat.NDJSON, HitImportFormat.fromFileName("/var/log/hits.jsonl"));
+        assertThrows(IllegalArgumentException.class, () -> HitImportFormat.fromFileName("hits.txt"));
+    }
+
+    @Test
+    void splitCsv_QuotedFields_ShouldKeepCommasAndQuotes() {
+        assertEquals(List.of("ewm-main-service", "/events/1", "10.0.0.1", "2024-01-01 10:00:00"),
+                HitImporter.splitCsv("ewm-main-service,/events/1,10.0.0.1,2024-01-01 10:00:00"));
+        assertEquals(List.of("app", "/events?ids=1,2", "say \"hi\"", ""),
+                HitImporter.splitCsv("app,\"/events?ids=1,2\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> HitImporter.splitCsv("app,\"/events"));
+    }
+}
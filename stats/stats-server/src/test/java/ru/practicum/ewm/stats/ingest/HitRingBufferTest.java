@@ -0,0 +1,84 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HitRingBufferTest {
+
+    @Test
+    void capacity_ShouldBeRoundedUpToPowerOfTwo() {
+        assertEquals(8, new HitRingBuffer<Integer>(5).capacity());
+        assertEquals(8, new HitRingBuffer<Integer>(8).capacity());
+    }
+
+    @Test
+    void offer_WhenFull_ShouldReturnFalse() {
+        HitRingBuffer<Integer> buffer = new HitRingBuffer<>(2);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(3));
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void drainTo_ShouldKeepOrderAndRespectLimit() {
+        HitRingBuffer<Integer> buffer = new HitRingBuffer<>(16);
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 4));
+        assertEquals(List.of(0, 1, 2, 3), drained);
+        assertEquals(6, buffer.drainTo(drained, 100));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void offer_ConcurrentProducers_ShouldNotLoseItems() throws InterruptedException {
+        HitRingBuffer<Integer> buffer = new HitRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<Integer> received = new HashSet<>();
+        while (received.size() < producers * perProducer) {
+            Integer item = buffer.poll();
+            if (item != null) {
+                received.add(item);
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(producers * perProducer, received.size());
+        assertNull(buffer.poll());
+    }
+}
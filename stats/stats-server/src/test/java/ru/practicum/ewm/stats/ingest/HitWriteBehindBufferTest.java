@@ -0,0 +1,89 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.repository.StatsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HitWriteBehindBufferTest {
+
+    private static final EndpointHit HIT = EndpointHit.builder()
+            .app("ewm-main")
+            .uri("/events/1")
+            .ip("10.0.0.1")
+            .timestamp(LocalDateTime.of(2025, 12, 1, 0, 0))
+            .build();
+
+    @Mock
+    private StatsRepository statsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HitWriteBehindBuffer buffer(Duration commitTimeout) {
+        return new HitWriteBehindBuffer(statsRepository, transactionManager, true, IngestDurability.COMMIT, 16,
+                Duration.ofMillis(1), 100, commitTimeout);
+    }
+
+    @Test
+    void await_NotCommittedInTime_ShouldRejectWith503() {
+        var buffer = buffer(Duration.ofMillis(10));
+
+        var e = assertThrows(OverloadedException.class, () -> buffer.await(new CompletableFuture<>()));
+
+        assertEquals(503, e.getStatus().value());
+    }
+
+    @Test
+    void await_WriteFailed_ShouldThrowCauseInsteadOfCompletionException() {
+        var buffer = buffer(Duration.ofSeconds(5));
+        when(statsRepository.insertAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+        buffer.start();
+        try {
+            CompletableFuture<EndpointHit> accepted = buffer.submit(HIT);
+
+            assertNotNull(accepted);
+            assertThrows(DataIntegrityViolationException.class, () -> buffer.await(accepted));
+        } finally {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void stop_HitsLeftAfterWriterExit_ShouldFailTheirFutures() throws InterruptedException {
+        var buffer = buffer(Duration.ofSeconds(5));
+        // поток записи уже завершился, а хит успел попасть в буфер - как при постановке после последнего drainTo
+        Thread finished = new Thread(() -> {
+        });
+        finished.start();
+        finished.join();
+        ReflectionTestUtils.setField(buffer, "writer", finished);
+        ReflectionTestUtils.setField(buffer, "running", true);
+        CompletableFuture<EndpointHit> accepted = buffer.submit(HIT);
+
+        buffer.stop();
+
+        var e = assertThrows(ExecutionException.class, accepted::get);
+        assertInstanceOf(OverloadedException.class, e.getCause());
+    }
+}
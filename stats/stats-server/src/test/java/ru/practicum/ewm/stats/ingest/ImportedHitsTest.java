@@ -0,0 +1,38 @@
+package ru.practicum.ewm.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImportedHitsTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Test
+    void add_ShouldGlueAdjacentIdsAndKeepTimeBounds() {
+        var imported = new ImportedHits();
+        assertTrue(imported.isEmpty());
+
+        imported.add(hit(1, BASE.plusHours(2)));
+        imported.add(hit(2, BASE));
+        imported.add(hit(3, BASE.plusHours(1)));
+        // блок 4..50 достался параллельной записи
+        imported.add(hit(51, BASE.plusDays(1)));
+        imported.add(hit(52, BASE.plusHours(5)));
+
+        assertEquals(5, imported.getRows());
+        assertArrayEquals(new Long[]{1L, 51L}, imported.getIdFrom());
+        assertArrayEquals(new Long[]{3L, 52L}, imported.getIdTo());
+        assertEquals(BASE, imported.getFrom());
+        assertEquals(BASE.plusDays(1), imported.getTo());
+    }
+
+    private static EndpointHit hit(long id, LocalDateTime timestamp) {
+        return new EndpointHit(id, "ewm-main", "/events/1", "10.0.0.1", timestamp);
+    }
+}
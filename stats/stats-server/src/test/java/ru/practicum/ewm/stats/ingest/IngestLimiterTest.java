@@ -0,0 +1,86 @@
+package ru.practicum.ewm.stats.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IngestLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IngestLimiter limiter(int initial, int queue, Duration targetLatency, Duration maxWait) {
+        return new IngestLimiter(true, initial, 1, 10, targetLatency, queue, maxWait, meterRegistry);
+    }
+
+    private double shed(String reason) {
+        return meterRegistry.get("stats.ingest.shed").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void acquire_QueueFull_ShouldRejectWith429() {
+        var limiter = limiter(1, 0, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        limiter.acquire();
+
+        var e = assertThrows(OverloadedException.class, limiter::acquire);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        assertTrue(e.getRetryAfter().toSeconds() >= 1);
+        assertEquals(1.0, shed("queue_full"));
+    }
+
+    @Test
+    void acquire_WaitExpired_ShouldRejectWith503() {
+        var limiter = limiter(1, 1, Duration.ofSeconds(1), Duration.ofMillis(20));
+        limiter.acquire();
+
+        var e = assertThrows(OverloadedException.class, limiter::acquire);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(1.0, shed("timeout"));
+    }
+
+    @Test
+    void acquire_ReleasedWhileWaiting_ShouldAdmit() throws Exception {
+        var limiter = limiter(1, 1, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        long admittedAt = limiter.acquire();
+
+        var waiter = CompletableFuture.supplyAsync(limiter::acquire);
+        Thread.sleep(50);
+        limiter.release(admittedAt);
+
+        waiter.get(5, TimeUnit.SECONDS);
+        assertEquals(0.0, shed("timeout"));
+    }
+
+    @Test
+    void release_SlowRequest_ShouldDecreaseLimit() {
+        var limiter = limiter(10, 0, Duration.ZERO, Duration.ZERO);
+
+        limiter.release(limiter.acquire() - TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void release_FastRequestsAtLimit_ShouldIncreaseLimit() {
+        var limiter = limiter(2, 0, Duration.ofSeconds(10), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            long first = limiter.acquire();
+            long second = limiter.acquire();
+            limiter.release(second);
+            limiter.release(first);
+        }
+
+        assertTrue(limiter.getLimit() > 2);
+    }
+}
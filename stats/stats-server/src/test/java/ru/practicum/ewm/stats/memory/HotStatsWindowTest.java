@@ -0,0 +1,78 @@
+package ru.practicum.ewm.stats.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HotStatsWindowTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 12, 1, 0, 0);
+    private static final long EVENT_1 = HotStatsWindow.key(1, 1);
+    private static final long EVENT_2 = HotStatsWindow.key(1, 2);
+
+    @Test
+    void count_RandomRanges_ShouldMatchBruteForce() {
+        HotStatsWindow window = new HotStatsWindow(24);
+        List<LocalDateTime> hits = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            LocalDateTime timestamp = BASE.plusSeconds(random.nextInt(20 * 3600));
+            hits.add(timestamp);
+            window.add(i % 3 == 0 ? EVENT_2 : EVENT_1, timestamp, 1);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = BASE.plusSeconds(random.nextInt(20 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(10 * 3600));
+            long expected = 0;
+            for (int j = 0; j < hits.size(); j++) {
+                if (j % 3 != 0 && !hits.get(j).isBefore(start) && !hits.get(j).isAfter(end)) {
+                    expected++;
+                }
+            }
+
+            assertEquals(expected, window.count(start, end, null).get(EVENT_1), "Интервал " + start + " - " + end);
+        }
+    }
+
+    @Test
+    void count_UriFilter_ShouldKeepOnlyMatchingUris() {
+        HotStatsWindow window = new HotStatsWindow(24);
+        window.add(EVENT_1, BASE.plusMinutes(5), 2);
+        window.add(EVENT_2, BASE.plusMinutes(5), 3);
+
+        LongLongHashMap counts = window.count(BASE, BASE.plusHours(1), uriId -> uriId == 2);
+
+        assertEquals(1, counts.size());
+        assertEquals(3, counts.get(EVENT_2));
+    }
+
+    @Test
+    void add_AfterFullTurn_ShouldForgetOldSlot() {
+        HotStatsWindow window = new HotStatsWindow(2);
+        window.add(EVENT_1, BASE.plusSeconds(30), 1);
+        window.add(EVENT_1, BASE.plusHours(4).plusSeconds(30), 1);
+
+        assertEquals(0, window.count(BASE, BASE.plusHours(1), null).get(EVENT_1));
+        assertEquals(1, window.count(BASE.plusHours(4), BASE.plusHours(5), null).get(EVENT_1));
+    }
+
+    @Test
+    void removeBefore_ShouldForgetOnlyEarlierBuckets() {
+        HotStatsWindow window = new HotStatsWindow(48);
+        window.add(EVENT_1, BASE.minusMinutes(90).plusSeconds(5), 1);
+        window.add(EVENT_1, BASE.minusSeconds(1), 2);
+        window.add(EVENT_1, BASE, 4);
+        window.add(EVENT_1, BASE.plusHours(2), 8);
+
+        window.removeBefore(BASE);
+
+        assertEquals(12, window.count(BASE.minusDays(1), BASE.plusDays(1), null).get(EVENT_1));
+        assertEquals(0, window.count(BASE.minusHours(2), BASE.minusSeconds(1), null).get(EVENT_1));
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.ewm.stats.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LongLongHashMapTest {
+
+    @Test
+    void addTo_ManyKeys_ShouldMatchHashMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = HotStatsWindow.key(1 + random.nextInt(5), 1 + random.nextInt(20_000));
+            map.addTo(key, 1);
+            expected.merge(key, 1L, Long::sum);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, count) -> assertEquals(count, map.get(key)));
+        assertEquals(0, map.get(HotStatsWindow.key(9, 9)));
+    }
+
+    @Test
+    void addAll_ShouldSumCounters() {
+        LongLongHashMap first = new LongLongHashMap();
+        LongLongHashMap second = new LongLongHashMap(100);
+        first.addTo(1, 2);
+        second.addTo(1, 3);
+        second.addTo(2, 1);
+
+        first.addAll(second);
+
+        assertEquals(5, first.get(1));
+        assertEquals(1, first.get(2));
+        assertEquals(2, first.size());
+    }
+
+    @Test
+    void addTo_ZeroKey_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashMap().addTo(0, 1));
+    }
+}
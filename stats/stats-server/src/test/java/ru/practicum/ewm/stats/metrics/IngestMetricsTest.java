@@ -0,0 +1,39 @@
+package ru.practicum.ewm.stats.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.ingest.HitsSavedEvent;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IngestMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void onHitsSaved_MoreAppsThanLimit_ShouldCountRestUnderOther() {
+        var metrics = new IngestMetrics(meterRegistry, 2);
+
+        metrics.onHitsSaved(new HitsSavedEvent(List.of(hit("app-1"), hit("app-2"), hit("app-2"))));
+        metrics.onHitsSaved(new HitsSavedEvent(List.of(hit("app-3"), hit("app-4"), hit("app-1"))));
+
+        assertEquals(3, meterRegistry.find("stats.ingest.hits").counters().size());
+        assertEquals(2.0, meterRegistry.get("stats.ingest.hits").tag("app", "app-1").counter().count());
+        assertEquals(2.0, meterRegistry.get("stats.ingest.hits").tag("app", "app-2").counter().count());
+        assertEquals(2.0, meterRegistry.get("stats.ingest.hits").tag("app", IngestMetrics.OTHER_APP)
+                .counter().count());
+    }
+
+    private static EndpointHit hit(String app) {
+        return EndpointHit.builder()
+                .app(app)
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(LocalDateTime.of(2025, 12, 1, 0, 0))
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.ewm.stats.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StatsQueryMetricsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void record_ShouldTimeQueryByVariantAndCountUrisAndRows() {
+        var metrics = new StatsQueryMetrics(meterRegistry, Duration.ofHours(1), Duration.ofSeconds(1));
+
+        var result = metrics.record("raw", START, START.plusDays(1), List.of("/events/1", "/events/2"), true,
+                () -> List.of("a", "b", "c"));
+
+        assertEquals(3, result.size());
+        assertEquals(1, meterRegistry.get("stats.query")
+                .tags("variant", "raw", "unique", "true", "filtered", "true").timer().count());
+        assertEquals(2.0, meterRegistry.get("stats.query.uris").tag("variant", "raw").summary().totalAmount());
+        assertEquals(3.0, meterRegistry.get("stats.query.rows").tag("variant", "raw").summary().totalAmount());
+        assertNull(meterRegistry.find("stats.query.slow").counter());
+    }
+
+    @Test
+    void record_SlowQuery_ShouldCountEverySlowQuery() {
+        var metrics = new StatsQueryMetrics(meterRegistry, Duration.ZERO, Duration.ofHours(1));
+
+        for (int i = 0; i < 3; i++) {
+            metrics.record("rollup", START, START.plusDays(1), null, false, () -> {
+                sleep();
+                return List.of();
+            });
+        }
+
+        assertEquals(3.0, meterRegistry.get("stats.query.slow").tag("variant", "rollup").counter().count());
+        assertEquals(3, meterRegistry.get("stats.query")
+                .tags("variant", "rollup", "filtered", "false").timer().count());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.ewm.stats.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class IpAddressesTest {
+
+    @Test
+    void parseIpv4_ShouldRejectMalformed() {
+        assertEquals(0xC0A80001L, IpAddresses.parseIpv4("192.168.0.1"));
+        assertEquals(-1, IpAddresses.parseIpv4("192.168.0"));
+        assertEquals(-1, IpAddresses.parseIpv4("192.168.0.256"));
+        assertEquals(-1, IpAddresses.parseIpv4("192.168..1"));
+        assertEquals(-1, IpAddresses.parseIpv4("192.168.0.1.5"));
+    }
+
+    @Test
+    void parse_Literals_ShouldNormalize() {
+        assertEquals("10.0.0.1", IpAddresses.parse("10.0.0.1").getHostAddress());
+        assertEquals("10.0.0.1", IpAddresses.parse("::ffff:10.0.0.1").getHostAddress());
+        assertEquals("2001:db8:0:0:0:0:0:1", IpAddresses.parse("2001:db8::1").getHostAddress());
+    }
+
+    @Test
+    void parse_HostName_ShouldNotResolve() {
+        assertNull(IpAddresses.parse("localhost"));
+        assertNull(IpAddresses.parse("example.com:80"));
+        assertNull(IpAddresses.parse("unknown"));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.ewm.stats.partition.HitPartitionManager.Partition;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HitPartitionManagerTest {
+
+    private static final LocalDate CURRENT = LocalDate.now().withDayOfMonth(1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private HitPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new HitPartitionManager(jdbcTemplate, transactionManager, eventPublisher);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "granularity", PartitionGranularity.MONTH);
+        ReflectionTestUtils.setField(manager, "premake", 0);
+        ReflectionTestUtils.setField(manager, "retention", 1);
+        when(jdbcTemplate.queryForList(anyString(), eq(LocalDate.class)))
+                .thenReturn(List.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void partitions(LocalDate... starts) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(HitPartitionManager.PARENT)))
+                .thenReturn(List.of(starts).stream()
+                        .map(start -> new Partition(PartitionGranularity.MONTH.partitionName("hits", start),
+                                start.atStartOfDay(), start.plusMonths(1).atStartOfDay()))
+                        .toList());
+    }
+
+    @Test
+    void maintain_PartitionOlderThanRetention_ShouldDropItAndPublishEvent() {
+        partitions(CURRENT.minusMonths(2), CURRENT.minusMonths(1), CURRENT);
+
+        manager.maintain();
+
+        verify(jdbcTemplate).execute("DROP TABLE " + PartitionGranularity.MONTH.partitionName("hits",
+                CURRENT.minusMonths(2)));
+        verify(eventPublisher).publishEvent(new HitsDroppedEvent(CURRENT.minusMonths(1).atStartOfDay()));
+    }
+
+    @Test
+    void maintain_NothingToDrop_ShouldNotPublishEvent() {
+        partitions(CURRENT.minusMonths(1), CURRENT);
+
+        manager.maintain();
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
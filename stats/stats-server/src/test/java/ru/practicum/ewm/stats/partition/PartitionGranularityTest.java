@@ -0,0 +1,39 @@
+package ru.practicum.ewm.stats.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PartitionGranularityTest {
+
+    @Test
+    void month_ShouldAlignToFirstDayAndNameBySuffix() {
+        var start = PartitionGranularity.MONTH.floor(LocalDate.of(2025, 2, 17));
+
+        assertEquals(LocalDate.of(2025, 2, 1), start);
+        assertEquals(LocalDate.of(2025, 5, 1), PartitionGranularity.MONTH.plus(start, 3));
+        assertEquals("hits_p202502", PartitionGranularity.MONTH.partitionName("hits", start));
+    }
+
+    @Test
+    void day_ShouldKeepDateAndNameBySuffix() {
+        var start = PartitionGranularity.DAY.floor(LocalDate.of(2025, 2, 28));
+
+        assertEquals(LocalDate.of(2025, 3, 1), PartitionGranularity.DAY.plus(start, 1));
+        assertEquals("hits_p20250228", PartitionGranularity.DAY.partitionName("hits", start));
+    }
+
+    @Test
+    void parseBound_ShouldReadRangeAndSkipDefault() {
+        var partition = HitPartitionManager.parseBound("hits_p202502",
+                "FOR VALUES FROM ('2025-02-01 00:00:00') TO ('2025-03-01 00:00:00')");
+
+        assertEquals(LocalDateTime.of(2025, 2, 1, 0, 0), partition.from());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 0, 0), partition.to());
+        assertNull(HitPartitionManager.parseBound("hits_default", "DEFAULT"));
+    }
+}
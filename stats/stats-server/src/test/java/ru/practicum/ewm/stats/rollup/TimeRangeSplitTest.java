@@ -0,0 +1,64 @@
+package ru.practicum.ewm.stats.rollup;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeRangeSplitTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Test
+    void of_RaggedRange_ShouldUseHoursMinutesAndRawEdges() {
+        var start = BASE.plusHours(1).plusMinutes(10).plusSeconds(30);
+        var end = BASE.plusHours(5).plusMinutes(20).plusSeconds(15);
+
+        var split = TimeRangeSplit.of(start, end, ChronoUnit.HOURS, ChronoUnit.MINUTES);
+
+        assertEquals(List.of(new TimeSlice(BASE.plusHours(2), BASE.plusHours(5), false)),
+                split.getBuckets(ChronoUnit.HOURS));
+        assertEquals(List.of(
+                        new TimeSlice(BASE.plusHours(1).plusMinutes(11), BASE.plusHours(2), false),
+                        new TimeSlice(BASE.plusHours(5), BASE.plusHours(5).plusMinutes(20), false)),
+                split.getBuckets(ChronoUnit.MINUTES));
+        assertEquals(List.of(
+                        new TimeSlice(start, BASE.plusHours(1).plusMinutes(11), false),
+                        new TimeSlice(BASE.plusHours(5).plusMinutes(20), end, true)),
+                split.getRaw());
+    }
+
+    @Test
+    void of_AlignedRange_ShouldKeepInclusiveEndAsRawPoint() {
+        var split = TimeRangeSplit.of(BASE, BASE.plusHours(2), ChronoUnit.HOURS, ChronoUnit.MINUTES);
+
+        assertEquals(List.of(new TimeSlice(BASE, BASE.plusHours(2), false)), split.getBuckets(ChronoUnit.HOURS));
+        assertTrue(split.getBuckets(ChronoUnit.MINUTES).isEmpty());
+        assertEquals(List.of(new TimeSlice(BASE.plusHours(2), BASE.plusHours(2), true)), split.getRaw());
+    }
+
+    @Test
+    void of_RangeInsideOneMinute_ShouldBeRawOnly() {
+        var start = BASE.plusSeconds(5);
+        var end = BASE.plusSeconds(50);
+
+        var split = TimeRangeSplit.of(start, end, ChronoUnit.HOURS, ChronoUnit.MINUTES);
+
+        assertTrue(split.getBuckets(ChronoUnit.HOURS).isEmpty());
+        assertTrue(split.getBuckets(ChronoUnit.MINUTES).isEmpty());
+        assertEquals(List.of(new TimeSlice(start, end, true)), split.getRaw());
+    }
+
+    @Test
+    void of_EndBeforeStart_ShouldBeEmpty() {
+        var split = TimeRangeSplit.of(BASE, BASE.minusSeconds(1), ChronoUnit.HOURS, ChronoUnit.MINUTES);
+
+        assertTrue(split.getRaw().isEmpty());
+        assertTrue(split.getBuckets(ChronoUnit.HOURS).isEmpty());
+    }
+}
@@ -1,22 +1,55 @@
 package ru.practicum.ewm.stats.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.archive.HitArchive;
+import ru.practicum.ewm.stats.cache.StatsCacheKey;
+import ru.practicum.ewm.stats.cache.StatsResultCache;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.exception.OverloadedException;
+import ru.practicum.ewm.stats.ingest.HitWriteBehindBuffer;
+import ru.practicum.ewm.stats.ingest.IngestLimiter;
 import ru.practicum.ewm.stats.mapper.EndpointHitMapper;
+import ru.practicum.ewm.stats.memory.HotStatsService;
+import ru.practicum.ewm.stats.metrics.StatsQueryMetrics;
 import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.StatsKey;
 import ru.practicum.ewm.stats.repository.StatsRepository;
+import ru.practicum.ewm.stats.repository.StatsStreamRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+import ru.practicum.ewm.stats.shard.ShardedAggregator;
+import ru.practicum.ewm.stats.sketch.HllUniqueService;
+import ru.practicum.ewm.stats.sketch.IpBitmapService;
+import ru.practicum.ewm.stats.top.TopStatsService;
+import ru.practicum.ewm.stats.top.TopWindow;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +61,54 @@ public class StatsServiceImplTest {
     @Mock
     private EndpointHitMapper endpointHitMapper;
 
+    @Mock
+    private HitWriteBehindBuffer hitWriteBehindBuffer;
+
+    @Mock
+    private HitRollupService hitRollupService;
+
+    @Mock
+    private HllUniqueService hllUniqueService;
+
+    @Mock
+    private IpBitmapService ipBitmapService;
+
+    @Mock
+    private HotStatsService hotStatsService;
+
+    @Mock
+    private StatsStreamRepository statsStreamRepository;
+
+    @Mock
+    private TopStatsService topStatsService;
+
+    @Mock
+    private StatsResultCache statsResultCache;
+
+    @Mock
+    private HitArchive hitArchive;
+
+    @Mock
+    private HitRollupRepository hitRollupRepository;
+
+    @Mock
+    private ShardedAggregator shardedAggregator;
+
+    @Mock
+    private IngestLimiter ingestLimiter;
+
+    @Spy
+    private StatsQueryMetrics statsQueryMetrics =
+            new StatsQueryMetrics(new SimpleMeterRegistry(), Duration.ofSeconds(1), Duration.ofSeconds(1));
+
     @InjectMocks
     private StatsServiceImpl statsService;
 
+    private void readArchiveThrough() {
+        when(hitArchive.read(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    }
+
     @Test
     void addHit_SuccessCase_ShouldSave() {
         var ldt = LocalDateTime.now();
@@ -82,8 +160,157 @@ public class StatsServiceImplTest {
     }
 
     @Test
-    void getStats_UniqueWithoutUris_ShouldUseCorrectMethod() {
+    void addHit_WriteBehindEnabled_ShouldSubmitToBufferInsteadOfSave() {
+        var ldt = LocalDateTime.now();
+        EndpointHitDto dto = new EndpointHitDto(null, "ewm-main", "/events", "10.10.255.0", ldt);
+        EndpointHit hit = EndpointHit.builder().app("ewm-main").uri("/events").ip("10.10.255.0").timestamp(ldt).build();
+        EndpointHit committed = EndpointHit.builder().id(7L).app("ewm-main").uri("/events").ip("10.10.255.0").timestamp(ldt).build();
+
+        when(endpointHitMapper.toEndpointHit(dto))
+                .thenReturn(hit);
+        when(hitWriteBehindBuffer.isEnabled())
+                .thenReturn(true);
+        CompletableFuture<EndpointHit> accepted = CompletableFuture.completedFuture(committed);
+        when(hitWriteBehindBuffer.submit(hit))
+                .thenReturn(accepted);
+        when(hitWriteBehindBuffer.await(accepted))
+                .thenReturn(committed);
+        when(endpointHitMapper.toEndpointHitDto(committed))
+                .thenReturn(new EndpointHitDto(7L, "ewm-main", "/events", "10.10.255.0", ldt));
+
+        var result = statsService.addHit(dto);
+
+        assertEquals(7L, result.getId());
+        verify(hitWriteBehindBuffer, times(1)).submit(hit);
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    void addHit_WriteBehindOverflow_ShouldFallBackToSave() {
+        var ldt = LocalDateTime.now();
+        EndpointHitDto dto = new EndpointHitDto(null, "ewm-main", "/events", "10.10.255.0", ldt);
+        EndpointHit hit = EndpointHit.builder().app("ewm-main").uri("/events").ip("10.10.255.0").timestamp(ldt).build();
 
+        when(endpointHitMapper.toEndpointHit(dto))
+                .thenReturn(hit);
+        when(hitWriteBehindBuffer.isEnabled())
+                .thenReturn(true);
+        when(hitWriteBehindBuffer.submit(hit))
+                .thenReturn(null);
+        when(statsRepository.save(hit))
+                .thenReturn(hit);
+
+        statsService.addHit(dto);
+
+        verify(statsRepository, times(1)).save(hit);
+    }
+
+    @Test
+    void addHit_WriteBehindOverflowUnderLimit_ShouldRejectWithoutSave() {
+        var ldt = LocalDateTime.now();
+        EndpointHitDto dto = new EndpointHitDto(null, "ewm-main", "/events", "10.10.255.0", ldt);
+        EndpointHit hit = EndpointHit.builder().app("ewm-main").uri("/events").ip("10.10.255.0").timestamp(ldt).build();
+        var rejection = new OverloadedException(HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1), "overflow");
+
+        when(endpointHitMapper.toEndpointHit(dto))
+                .thenReturn(hit);
+        when(hitWriteBehindBuffer.isEnabled())
+                .thenReturn(true);
+        when(hitWriteBehindBuffer.submit(hit))
+                .thenReturn(null);
+        when(ingestLimiter.isEnabled())
+                .thenReturn(true);
+        when(ingestLimiter.reject(eq(HttpStatus.SERVICE_UNAVAILABLE), eq("buffer_full"), any()))
+                .thenReturn(rejection);
+
+        assertSame(rejection, assertThrows(OverloadedException.class, () -> statsService.addHit(dto)));
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    void addHit_InvalidIp_ShouldThrowBeforeSave() {
+        EndpointHitDto dto = EndpointHitDto.builder()
+                .app("ewm-main")
+                .uri("/events")
+                .ip("localhost")
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        assertThrows(ValidationException.class, () -> statsService.addHit(dto));
+        verify(statsRepository, never()).save(any());
+        verify(hitWriteBehindBuffer, never()).submit(any());
+    }
+
+    @Test
+    void addHit_WithCount_ShouldThrowBeforeSave() {
+        EndpointHitDto dto = EndpointHitDto.builder()
+                .app("ewm-main")
+                .uri("/events")
+                .ip("10.0.0.1")
+                .timestamp(LocalDateTime.now())
+                .count(3L)
+                .build();
+
+        assertThrows(ValidationException.class, () -> statsService.addHit(dto));
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    void addHits_SuccessCase_ShouldInsertAllInOneCall() {
+        ReflectionTestUtils.setField(statsService, "maxHits", 10);
+        var ldt = LocalDateTime.now();
+        List<EndpointHitDto> dtos = List.of(
+                new EndpointHitDto(null, "ewm-main", "/events/1", "10.10.255.0", ldt),
+                new EndpointHitDto(null, "ewm-main", "/events/2", "10.10.255.1", ldt)
+        );
+        List<EndpointHit> hits = List.of(
+                EndpointHit.builder().app("ewm-main").uri("/events/1").ip("10.10.255.0").timestamp(ldt).build(),
+                EndpointHit.builder().app("ewm-main").uri("/events/2").ip("10.10.255.1").timestamp(ldt).build()
+        );
+
+        when(endpointHitMapper.toEndpointHits(dtos))
+                .thenReturn(hits);
+        when(statsRepository.insertAll(hits))
+                .thenReturn(2);
+
+        var result = statsService.addHits(dtos);
+
+        assertEquals(2, result);
+        verify(statsRepository, times(1)).insertAll(hits);
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    void addHits_CollapsedHits_ShouldInsertRowPerHit() {
+        ReflectionTestUtils.setField(statsService, "maxHits", 10);
+        var ldt = LocalDateTime.now();
+        var collapsed = new EndpointHitDto(null, "ewm-main", "/events/1", "10.10.255.0", ldt, 3L);
+        var single = new EndpointHitDto(null, "ewm-main", "/events/2", "10.10.255.1", ldt);
+
+        when(endpointHitMapper.toEndpointHit(any()))
+                .thenAnswer(invocation -> EndpointHit.builder().uri(invocation.<EndpointHitDto>getArgument(0).getUri())
+                        .build());
+        when(statsRepository.insertAll(anyList()))
+                .thenAnswer(invocation -> invocation.<List<EndpointHit>>getArgument(0).size());
+
+        var result = statsService.addHits(List.of(collapsed, single));
+
+        assertEquals(4, result);
+        verify(endpointHitMapper, never()).toEndpointHits(any());
+    }
+
+    @Test
+    void addHits_CountsAboveLimit_ShouldThrowValidation() {
+        ReflectionTestUtils.setField(statsService, "maxHits", 10);
+        var hit = new EndpointHitDto(null, "ewm-main", "/events/1", "10.10.255.0", LocalDateTime.now(), 11L);
+
+        assertThrows(ValidationException.class, () -> statsService.addHits(List.of(hit)));
+        verify(statsRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void getStats_UniqueWithoutUris_ShouldUseCorrectMethod() {
+        readArchiveThrough();
         var end = LocalDateTime.now();
         var start = end.minusDays(1);
         List<ViewStatsDto> statsUnique = List.of(new ViewStatsDto("evm-main", "/events", 2L));
@@ -101,7 +328,7 @@ public class StatsServiceImplTest {
 
     @Test
     void getStats_NotUniqueWithoutUris_ShouldUseCorrectMethod() {
-
+        readArchiveThrough();
         var end = LocalDateTime.now();
         var start = end.minusDays(1);
         List<ViewStatsDto> statsNotUnique = List.of(new ViewStatsDto("evm-main", "/events", 5L));
@@ -119,8 +346,279 @@ public class StatsServiceImplTest {
     }
 
     @Test
-    void getStats_UniqueWithUris_ShouldUseCorrectMethod() {
+    void getStats_NotUniqueWithRollups_ShouldUseRollups() {
+
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("evm-main", "/events", 5L));
+
+        when(hitRollupService.isEnabled())
+                .thenReturn(true);
+        when(hitRollupService.getStats(start, end, null))
+                .thenReturn(stats);
 
+        var result = statsService.getStats(start, end, null, false);
+
+        assertEquals(stats, result);
+        verify(statsRepository, never()).getNotUniqueStats(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getStats_ClosedRange_ShouldUseCache() {
+        var end = LocalDateTime.now().minusDays(1);
+        var start = end.minusDays(1);
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("ewm-main", "/events/1", 4L));
+
+        when(statsResultCache.isEnabled())
+                .thenReturn(true);
+        when(statsResultCache.closedBefore())
+                .thenReturn(LocalDateTime.now().minusMinutes(5));
+        when(statsResultCache.get(eq(StatsCacheKey.of(start, end, List.of("/events/1"), true)), any(Supplier.class)))
+                .thenReturn(stats);
+
+        var result = statsService.getStats(start, end, List.of("/events/1"), true);
+
+        assertEquals(stats, result);
+        verify(hllUniqueService, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getStats_OpenRange_ShouldSumCachedPartAndFreshTail() {
+        var closedBefore = LocalDateTime.of(2025, 12, 1, 12, 25);
+        var boundary = LocalDateTime.of(2025, 12, 1, 12, 0);
+        var start = boundary.minusDays(3);
+        var end = closedBefore.plusMinutes(5);
+
+        when(statsResultCache.isEnabled())
+                .thenReturn(true);
+        when(statsResultCache.closedBefore())
+                .thenReturn(closedBefore);
+        when(statsResultCache.get(eq(StatsCacheKey.of(start, boundary.minusNanos(1), null, false)), any(Supplier.class)))
+                .thenReturn(List.of(new ViewStatsDto("ewm-main", "/events/1", 4L),
+                        new ViewStatsDto("ewm-main", "/events/2", 3L)));
+        when(hitRollupService.isEnabled())
+                .thenReturn(true);
+        when(hitRollupService.getStats(boundary, end, null))
+                .thenReturn(List.of(new ViewStatsDto("ewm-main", "/events/2", 2L)));
+
+        var result = statsService.getStats(start, end, null, false);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/2", 5L),
+                new ViewStatsDto("ewm-main", "/events/1", 4L)), result);
+    }
+
+    @Test
+    void getStats_OpenUniqueRange_ShouldNotUseCache() {
+        var end = LocalDateTime.now();
+        var start = end.minusDays(3);
+
+        when(statsResultCache.isEnabled())
+                .thenReturn(true);
+        when(statsResultCache.closedBefore())
+                .thenReturn(end.minusMinutes(5));
+
+        statsService.getStats(start, end, null, true);
+
+        verify(statsResultCache, never()).get(any(), any());
+    }
+
+    @Test
+    void getTop_NAboveCapacity_ShouldThrowValidation() {
+        when(topStatsService.isEnabled())
+                .thenReturn(true);
+        when(topStatsService.getCapacity())
+                .thenReturn(100);
+
+        assertThrows(ValidationException.class, () -> statsService.getTop(TopWindow.DAY, 101));
+        verify(topStatsService, never()).getTop(any(), anyInt());
+    }
+
+    @Test
+    void getTop_SketchesDisabled_ShouldCountExactly() {
+        when(statsRepository.getNotUniqueStats(any(), any()))
+                .thenReturn(List.of(new ViewStatsDto("ewm-main", "/events/1", 5L),
+                        new ViewStatsDto("ewm-main", "/events/2", 3L),
+                        new ViewStatsDto("ewm-main", "/events/3", 1L)));
+
+        var result = statsService.getTop(TopWindow.HOUR, 2);
+
+        assertEquals(9L, result.getTotal());
+        assertEquals(1L, result.getMaxOtherHits());
+        assertEquals(2, result.getUris().size());
+        assertEquals("/events/1", result.getUris().get(0).getUri());
+        assertEquals(0L, result.getUris().get(0).getError());
+    }
+
+    @Test
+    void streamStats_StartAfterEnd_ShouldThrowValidation() {
+        var start = LocalDateTime.now();
+        var end = start.minusDays(1);
+
+        assertThrows(ValidationException.class,
+                () -> statsService.streamStats(start, end, null, false, viewStats -> { }));
+
+        verify(statsStreamRepository, never()).forEachStats(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void getStats_NotUniqueInHotWindow_ShouldUseMemory() {
+
+        var end = LocalDateTime.now();
+        var start = end.minusHours(1);
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("evm-main", "/events", 5L));
+
+        when(hotStatsService.covers(start, end))
+                .thenReturn(true);
+        when(hotStatsService.getStats(start, end, null))
+                .thenReturn(stats);
+
+        var result = statsService.getStats(start, end, null, false);
+
+        assertEquals(stats, result);
+        verify(hitRollupService, never()).getStats(any(), any(), any());
+        verify(statsRepository, never()).getNotUniqueStats(any(), any());
+    }
+
+    @Test
+    void getStats_UniqueWithSketches_ShouldCountExactly() {
+        readArchiveThrough();
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<ViewStatsDto> statsUnique = List.of(new ViewStatsDto("evm-main", "/events", 2L));
+
+        when(statsRepository.getUniqueStats(start, end))
+                .thenReturn(statsUnique);
+
+        var result = statsService.getStats(start, end, null, true);
+
+        assertEquals(statsUnique, result);
+        verify(hllUniqueService, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getApproximateStats_UniqueWithSketches_ShouldUseHll() {
+
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("evm-main", "/events", 2L));
+
+        when(hllUniqueService.isEnabled())
+                .thenReturn(true);
+        when(hllUniqueService.getStats(start, end, null))
+                .thenReturn(stats);
+
+        var result = statsService.getApproximateStats(start, end, null, true);
+
+        assertEquals(stats, result);
+        verify(statsRepository, never()).getUniqueStats(any(), any());
+    }
+
+    @Test
+    void getApproximateStats_NotUnique_ShouldNotUseHll() {
+        readArchiveThrough();
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("evm-main", "/events", 5L));
+
+        when(statsRepository.getNotUniqueStats(start, end))
+                .thenReturn(stats);
+
+        var result = statsService.getApproximateStats(start, end, null, false);
+
+        assertEquals(stats, result);
+        verify(hllUniqueService, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getExactStats_UniqueWithSketches_ShouldCountRawHits() {
+        readArchiveThrough();
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<ViewStatsDto> statsUnique = List.of(new ViewStatsDto("evm-main", "/events", 2L));
+
+        when(statsRepository.getUniqueStats(start, end))
+                .thenReturn(statsUnique);
+
+        var result = statsService.getExactStats(start, end, null, true);
+
+        assertEquals(statsUnique, result);
+        verify(hllUniqueService, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getExactStats_NotUniqueOverlappingArchive_ShouldCountDatabaseAndSegments() {
+        readArchiveThrough();
+        var end = LocalDateTime.now().minusDays(100);
+        var start = end.minusDays(1);
+
+        when(hitArchive.overlaps(any()))
+                .thenReturn(true);
+        when(hitRollupRepository.countRaw(any(), eq(null)))
+                .thenReturn(Map.of(new StatsKey("ewm-main", "/events/1"), 3L,
+                        new StatsKey("ewm-main", "/events/2"), 5L));
+
+        var result = statsService.getExactStats(start, end, null, false);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/2", 5L),
+                new ViewStatsDto("ewm-main", "/events/1", 3L)), result);
+        verify(statsRepository, never()).getNotUniqueStats(any(), any());
+    }
+
+    @Test
+    void getExactStats_UniqueWideRange_ShouldUniteShardIps() {
+
+        var end = LocalDateTime.now();
+        var start = end.minusDays(2);
+        var first = new TimeSlice(start, end.minusDays(1), false);
+        var second = new TimeSlice(end.minusDays(1), end, true);
+        var key = new StatsKey("ewm-main", "/events/1");
+
+        when(shardedAggregator.isSharded(start, end))
+                .thenReturn(true);
+        when(shardedAggregator.aggregate(eq(start), eq(end), any(), any()))
+                .thenAnswer(invocation -> {
+                    Function<TimeSlice, Object> shard = invocation.getArgument(2);
+                    BinaryOperator<Object> merge = invocation.getArgument(3);
+                    return merge.apply(shard.apply(first), shard.apply(second));
+                });
+        doAnswer(invocation -> {
+            BiConsumer<StatsKey, String> consumer = invocation.getArgument(2);
+            List<TimeSlice> slices = invocation.getArgument(0);
+            List<String> ips = slices.get(0).equals(first) ? List.of("10.0.0.1", "10.0.0.2") : List.of("10.0.0.2", "10.0.0.3");
+            ips.forEach(ip -> consumer.accept(key, ip));
+            return null;
+        }).when(hitRollupRepository).forEachDistinctIp(any(), eq(null), any());
+
+        var result = statsService.getExactStats(start, end, null, true);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 3L)), result);
+        verify(statsRepository, never()).getUniqueStats(any(), any());
+    }
+
+    @Test
+    void getExactStats_UniqueWithBitmaps_ShouldUseBitmaps() {
+
+        var end = LocalDateTime.now();
+        var start = end.minusDays(1);
+        List<String> uris = List.of("/events");
+        List<ViewStatsDto> stats = List.of(new ViewStatsDto("evm-main", "/events", 2L));
+
+        when(ipBitmapService.isEnabled())
+                .thenReturn(true);
+        when(ipBitmapService.getStats(start, end, uris))
+                .thenReturn(stats);
+
+        var result = statsService.getExactStats(start, end, uris, true);
+
+        assertEquals(stats, result);
+        verify(statsRepository, never()).getUniqueStatsForUris(any(), any(), any());
+    }
+
+    @Test
+    void getStats_UniqueWithUris_ShouldUseCorrectMethod() {
+        readArchiveThrough();
         var end = LocalDateTime.now();
         var start = end.minusDays(1);
         List<String> uris = List.of("/events");
@@ -0,0 +1,91 @@
+package ru.practicum.ewm.stats.shard;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedAggregatorTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Test
+    void split_RaggedRange_ShouldAlignToDayStart() {
+        var start = BASE.plusHours(5);
+        var end = BASE.plusDays(2).plusHours(3);
+
+        assertEquals(List.of(
+                        new TimeSlice(start, BASE.plusDays(1), false),
+                        new TimeSlice(BASE.plusDays(1), BASE.plusDays(2), false),
+                        new TimeSlice(BASE.plusDays(2), end, true)),
+                ShardedAggregator.split(start, end, Duration.ofDays(1)));
+        assertEquals(List.of(
+                        new TimeSlice(start, BASE.plusHours(6), false),
+                        new TimeSlice(BASE.plusHours(6), BASE.plusHours(12), true)),
+                ShardedAggregator.split(start, BASE.plusHours(12), Duration.ofHours(6)));
+    }
+
+    @Test
+    void isSharded_ShouldRequireRangeLongerThanShard() {
+        var aggregator = aggregator(true, 4);
+
+        assertFalse(aggregator.isSharded(BASE, BASE.plusDays(1)));
+        assertTrue(aggregator.isSharded(BASE, BASE.plusDays(1).plusSeconds(1)));
+        assertFalse(aggregator(false, 4).isSharded(BASE, BASE.plusDays(10)));
+        assertFalse(aggregator(true, 1).isSharded(BASE, BASE.plusDays(10)));
+    }
+
+    @Test
+    void aggregate_ShouldCountEveryShardOnceAndMergeInTimeOrder() {
+        var aggregator = aggregator(true, 4);
+        Set<TimeSlice> counted = ConcurrentHashMap.newKeySet();
+
+        List<LocalDateTime> merged = aggregator.aggregate(BASE, BASE.plusDays(30), shard -> {
+            assertTrue(counted.add(shard));
+            return new ArrayList<>(List.of(shard.from()));
+        }, (first, second) -> {
+            first.addAll(second);
+            return first;
+        });
+
+        assertEquals(30, counted.size());
+        assertEquals(30, merged.size());
+        List<LocalDateTime> sorted = new ArrayList<>(merged);
+        Collections.sort(sorted);
+        assertEquals(sorted, merged);
+    }
+
+    @Test
+    void aggregate_FailedShard_ShouldThrow() {
+        var aggregator = aggregator(true, 4);
+
+        assertThrows(IllegalStateException.class, () -> aggregator.aggregate(BASE, BASE.plusDays(10), shard -> {
+            if (shard.from().equals(BASE.plusDays(7))) {
+                throw new IllegalStateException("отрезок упал");
+            }
+            return 1L;
+        }, Long::sum));
+    }
+
+    private static ShardedAggregator aggregator(boolean enabled, int parallelism) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new ShardedAggregator(transactionManager, enabled, Duration.ofDays(1), parallelism);
+    }
+}
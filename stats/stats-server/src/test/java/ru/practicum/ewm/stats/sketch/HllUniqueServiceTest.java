@@ -0,0 +1,83 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class HllUniqueServiceTest {
+
+    private static final StatsKey KEY = new StatsKey("ewm-main", "/events/1");
+
+    @Mock
+    private HllSketchRepository hllSketchRepository;
+
+    @Mock
+    private HitRollupRepository hitRollupRepository;
+
+    @InjectMocks
+    private HllUniqueService hllUniqueService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hllUniqueService, "enabled", true);
+        ReflectionTestUtils.setField(hllUniqueService, "precision", 14);
+        ReflectionTestUtils.setField(hllUniqueService, "recoveryWindow", Duration.ofHours(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void afterSingletonsInstantiated_ShouldRebuildPendingFromHitsOfRecoveryWindow() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        doAnswer(invocation -> {
+            TimeSlice slice = ((List<TimeSlice>) invocation.getArgument(0)).getFirst();
+            BiConsumer<StatsKey, String> consumer = invocation.getArgument(2);
+            if (slice.from().equals(hour)) {
+                consumer.accept(KEY, "10.0.0.1");
+                consumer.accept(KEY, "10.0.0.2");
+            }
+            return null;
+        }).when(hitRollupRepository).forEachDistinctIp(any(), isNull(), any());
+
+        hllUniqueService.afterSingletonsInstantiated();
+        hllUniqueService.flush();
+
+        verify(hitRollupRepository, times(3)).forEachDistinctIp(any(), isNull(), any());
+        ArgumentCaptor<Map<BucketKey, HyperLogLog>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(hllSketchRepository).merge(captor.capture());
+        assertEquals(2, captor.getValue().get(new BucketKey(KEY, hour)).estimate());
+    }
+
+    @Test
+    void afterSingletonsInstantiated_Disabled_ShouldNotReadHits() {
+        ReflectionTestUtils.setField(hllUniqueService, "enabled", false);
+
+        hllUniqueService.afterSingletonsInstantiated();
+
+        verify(hitRollupRepository, never()).forEachDistinctIp(any(), any(), any());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HyperLogLogTest {
+
+    private static final int PRECISION = 14;
+
+    @Test
+    void estimate_SmallCardinalityWithDuplicates_ShouldStayWithinError() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("10.0.0." + i);
+            sketch.add("10.0.0." + i);
+        }
+
+        assertWithinError(100, sketch.estimate(), PRECISION);
+    }
+
+    @Test
+    void estimate_LargeCardinality_ShouldStayWithinError() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            sketch.add(ip(i));
+        }
+
+        assertWithinError(count, sketch.estimate(), PRECISION);
+    }
+
+    @Test
+    void merge_OverlappingSketches_ShouldEstimateUnion() {
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 60_000; i++) {
+            first.add(ip(i));
+            second.add(ip(i + 30_000));
+        }
+
+        first.merge(second);
+
+        assertWithinError(90_000, first.estimate(), PRECISION);
+    }
+
+    @Test
+    void union_DifferentPrecision_ShouldFoldToLower() {
+        HyperLogLog precise = new HyperLogLog(PRECISION);
+        HyperLogLog coarse = new HyperLogLog(10);
+        for (int i = 0; i < 50_000; i++) {
+            precise.add(ip(i));
+            coarse.add(ip(i + 50_000));
+        }
+
+        HyperLogLog result = HyperLogLog.union(precise, coarse);
+
+        assertEquals(10, result.getPrecision());
+        assertWithinError(100_000, result.estimate(), 10);
+    }
+
+    @Test
+    void fold_ToHigherPrecision_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).fold(PRECISION));
+    }
+
+    @Test
+    void toBytes_SparseAndDense_ShouldRestoreSameEstimate() {
+        HyperLogLog sparse = new HyperLogLog(PRECISION);
+        HyperLogLog dense = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 50; i++) {
+            sparse.add(ip(i));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            dense.add(ip(i));
+        }
+
+        assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparse.toBytes()).estimate());
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(dense.toBytes()).estimate());
+    }
+
+    private static String ip(int i) {
+        return (i >>> 24 & 0xff) + "." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+    }
+
+    // три стандартные ошибки с запасом, чтобы тест не был вероятностно нестабильным
+    private static void assertWithinError(long expected, long actual, int precision) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        double allowed = 3 * HyperLogLog.relativeError(precision);
+        assertTrue(error <= allowed,
+                "Оценка " + actual + " отличается от " + expected + " на " + error + ", допустимо " + allowed);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.ewm.stats.sketch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.TimeRangeSplit.TimeSlice;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class IpBitmapServiceTest {
+
+    private static final StatsKey KEY = new StatsKey("ewm-main", "/events/1");
+
+    @Mock
+    private IpBitmapRepository ipBitmapRepository;
+
+    @Mock
+    private HitRollupRepository hitRollupRepository;
+
+    private IpBitmapService ipBitmapService;
+
+    @BeforeEach
+    void setUp() {
+        ipBitmapService = new IpBitmapService(ipBitmapRepository, hitRollupRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ipBitmapService, "enabled", true);
+        ReflectionTestUtils.setField(ipBitmapService, "recoveryWindow", Duration.ofDays(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void afterSingletonsInstantiated_ShouldRebuildPendingFromHitsOfRecoveryWindow() {
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        doAnswer(invocation -> {
+            TimeSlice slice = ((List<TimeSlice>) invocation.getArgument(0)).getFirst();
+            BiConsumer<StatsKey, String> consumer = invocation.getArgument(2);
+            if (slice.from().equals(today)) {
+                consumer.accept(KEY, "10.0.0.1");
+                consumer.accept(KEY, "10.0.0.2");
+            }
+            return null;
+        }).when(hitRollupRepository).forEachDistinctIp(any(), isNull(), any());
+
+        ipBitmapService.afterSingletonsInstantiated();
+        ipBitmapService.flush();
+
+        verify(hitRollupRepository, times(2)).forEachDistinctIp(any(), isNull(), any());
+        ArgumentCaptor<Map<BucketKey, IpBitmap>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ipBitmapRepository).merge(captor.capture());
+        assertEquals(2, captor.getValue().get(new BucketKey(KEY, today)).cardinality());
+    }
+
+    @Test
+    void afterSingletonsInstantiated_Disabled_ShouldNotReadHits() {
+        ReflectionTestUtils.setField(ipBitmapService, "enabled", false);
+
+        ipBitmapService.afterSingletonsInstantiated();
+
+        verify(hitRollupRepository, never()).forEachDistinctIp(any(), any(), any());
+    }
+
+    @Test
+    void getStats_DaysWithoutBitmaps_ShouldCountThemFromRawHits() {
+        LocalDateTime day = LocalDateTime.of(2025, 1, 10, 0, 0);
+        List<String> uris = List.of("/events/1");
+        IpBitmap stored = new IpBitmap();
+        stored.add("10.0.0.1");
+        doAnswer(invocation -> {
+            BiConsumer<BucketKey, IpBitmap> consumer = invocation.getArgument(2);
+            consumer.accept(new BucketKey(KEY, day.plusDays(1)), stored);
+            return null;
+        }).when(ipBitmapRepository).forEach(any(), eq(uris), any());
+        // край интервала и сутки без битмапа
+        List<TimeSlice> raw = List.of(new TimeSlice(day.plusDays(3), day.plusDays(3), true),
+                new TimeSlice(day, day.plusDays(1), false), new TimeSlice(day.plusDays(2), day.plusDays(3), false));
+        doAnswer(invocation -> {
+            BiConsumer<StatsKey, String> consumer = invocation.getArgument(2);
+            consumer.accept(KEY, "10.0.0.1");
+            consumer.accept(KEY, "10.0.0.2");
+            return null;
+        }).when(hitRollupRepository).forEachDistinctIp(eq(raw), eq(uris), any());
+
+        List<ViewStatsDto> result = ipBitmapService.getStats(day, day.plusDays(3), uris);
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main", "/events/1", 2L)), result);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IpBitmapTest {
+
+    @Test
+    void add_MixedAddresses_ShouldCountDistinct() {
+        IpBitmap bitmap = new IpBitmap();
+        bitmap.add("10.0.0.1");
+        bitmap.add("10.0.0.1");
+        bitmap.add("255.255.255.255");
+        bitmap.add("::ffff:10.0.0.1");
+        bitmap.add("2001:db8::1");
+        bitmap.add("2001:0db8:0:0:0:0:0:1");
+        bitmap.add("unknown");
+
+        assertEquals(4, bitmap.cardinality());
+    }
+
+    @Test
+    void or_OverlappingBitmaps_ShouldCountUnion() {
+        IpBitmap first = new IpBitmap();
+        IpBitmap second = new IpBitmap();
+        for (int i = 0; i < 1000; i++) {
+            first.add("192.168." + i / 256 + "." + i % 256);
+            second.add("192.168." + (i + 500) / 256 + "." + (i + 500) % 256);
+        }
+
+        first.or(second);
+
+        assertEquals(1500, first.cardinality());
+        assertEquals(1000, second.cardinality());
+    }
+
+    @Test
+    void toBytes_ShouldRestoreSameSet() {
+        IpBitmap bitmap = new IpBitmap();
+        for (int i = 0; i < 70_000; i++) {
+            bitmap.add("10." + (i >>> 16) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff));
+        }
+        bitmap.add("2001:db8::1");
+
+        IpBitmap restored = IpBitmap.fromBytes(bitmap.toBytes());
+        restored.add("10.0.0.0");
+        restored.add("2001:db8:0:0:0:0:0:1");
+
+        assertEquals(70_001, restored.cardinality());
+    }
+}
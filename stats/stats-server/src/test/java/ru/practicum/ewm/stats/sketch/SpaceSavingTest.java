@@ -0,0 +1,85 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpaceSavingTest {
+
+    @Test
+    void add_ZipfStream_ShouldKeepBoundsAndHeavyHitters() {
+        SpaceSaving summary = new SpaceSaving(100);
+        Map<Long, Long> exact = new HashMap<>();
+        fill(summary, exact, new Random(1), 200_000);
+
+        assertBounds(summary, exact);
+        List<SpaceSaving.Counter> top = summary.top(5);
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(i + 1, top.get(i).key());
+        }
+    }
+
+    @Test
+    void merge_Panes_ShouldKeepBounds() {
+        Map<Long, Long> exact = new HashMap<>();
+        List<SpaceSaving> panes = new ArrayList<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 5; i++) {
+            SpaceSaving pane = new SpaceSaving(100);
+            fill(pane, exact, random, 40_000);
+            panes.add(pane);
+        }
+
+        SpaceSaving merged = SpaceSaving.merge(100, panes);
+
+        assertEquals(200_000, merged.getTotal());
+        assertBounds(merged, exact);
+        assertEquals(1, merged.top(1).get(0).key());
+    }
+
+    @Test
+    void add_BelowCapacity_ShouldBeExact() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.add(1, 3);
+        summary.add(2, 1);
+        summary.add(1, 1);
+
+        assertEquals(4, summary.count(1));
+        assertEquals(0, summary.count(3));
+        assertEquals(0, summary.top(1).get(0).error());
+    }
+
+    // ключи 1..10000 с вероятностью ~ 1 / rank
+    private static void fill(SpaceSaving summary, Map<Long, Long> exact, Random random, int hits) {
+        double[] cumulative = new double[10_000];
+        double sum = 0;
+        for (int rank = 1; rank <= cumulative.length; rank++) {
+            sum += 1.0 / rank;
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < hits; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            long key = (index >= 0 ? index : -index - 1) + 1;
+            summary.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static void assertBounds(SpaceSaving summary, Map<Long, Long> exact) {
+        for (SpaceSaving.Counter counter : summary.top(summary.size())) {
+            long actual = exact.getOrDefault(counter.key(), 0L);
+            assertTrue(counter.count() >= actual, "Оценка ниже истинного для " + counter.key());
+            assertTrue(counter.count() - counter.error() <= actual, "Нижняя граница выше истинного для " + counter.key());
+            assertTrue(counter.error() <= summary.getTotal() / summary.getCapacity());
+        }
+        exact.forEach((key, actual) -> assertTrue(summary.count(key) >= actual, "Недооценен " + key));
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.ewm.stats.timeseries;
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.dto.UriSeriesDto;
+import ru.practicum.ewm.stats.model.BucketKey;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.rollup.HitRollupRepository;
+import ru.practicum.ewm.stats.rollup.HitRollupService;
+import ru.practicum.ewm.stats.sketch.HllUniqueService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TimeSeriesServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Mock
+    private HitRollupService hitRollupService;
+
+    @Mock
+    private HllUniqueService hllUniqueService;
+
+    @Mock
+    private HitRollupRepository hitRollupRepository;
+
+    @InjectMocks
+    private TimeSeriesService timeSeriesService;
+
+    @Test
+    void getSeries_NotUniqueHours_ShouldFillEmptyBucketsWithZeros() {
+        ReflectionTestUtils.setField(timeSeriesService, "maxPoints", 100);
+        ReflectionTestUtils.setField(timeSeriesService, "maxTotalPoints", 1000L);
+        var start = BASE.plusMinutes(30);
+        var end = BASE.plusHours(3).plusMinutes(10);
+        var first = new StatsKey("ewm-main", "/events/1");
+        var second = new StatsKey("ewm-main", "/events/2");
+
+        when(hitRollupService.isEnabled())
+                .thenReturn(true);
+        when(hitRollupService.getSeries(start, end, ChronoUnit.HOURS, null))
+                .thenReturn(Map.of(new BucketKey(first, BASE), 2L, new BucketKey(first, BASE.plusHours(3)), 1L,
+                        new BucketKey(second, BASE.plusHours(1)), 7L));
+
+        var result = timeSeriesService.getSeries(start, end, null, SeriesBucket.HOUR, false);
+
+        assertEquals("hour", result.getBucket());
+        assertEquals(BASE, result.getFrom());
+        assertEquals(BASE.plusHours(3), result.getTo());
+        assertEquals(List.of(
+                new UriSeriesDto("ewm-main", "/events/2", 7L, List.of(0L, 7L, 0L, 0L)),
+                new UriSeriesDto("ewm-main", "/events/1", 3L, List.of(2L, 0L, 0L, 1L))), result.getSeries());
+    }
+
+    @Test
+    void getSeries_UniqueMinutes_ShouldCountRawHitsInsteadOfHourlySketches() {
+        ReflectionTestUtils.setField(timeSeriesService, "maxPoints", 100);
+        ReflectionTestUtils.setField(timeSeriesService, "maxTotalPoints", 1000L);
+        var end = BASE.plusMinutes(1);
+
+        when(hllUniqueService.isEnabled())
+                .thenReturn(true);
+        when(hitRollupRepository.countDistinctSeries(eq(ChronoUnit.MINUTES), any(), eq(List.of("/events/1"))))
+                .thenReturn(Map.of(new BucketKey(new StatsKey("ewm-main", "/events/1"), BASE.plusMinutes(1)), 4L));
+
+        var result = timeSeriesService.getSeries(BASE, end, List.of("/events/1"), SeriesBucket.MINUTE, true);
+
+        assertEquals(List.of(0L, 4L), result.getSeries().get(0).getHits());
+        verify(hllUniqueService, never()).getSeries(any(), any(), any(), any());
+    }
+
+    @Test
+    void getSeries_TooManyBuckets_ShouldThrowValidation() {
+        ReflectionTestUtils.setField(timeSeriesService, "maxPoints", 100);
+        ReflectionTestUtils.setField(timeSeriesService, "maxTotalPoints", 1000L);
+
+        assertThrows(ValidationException.class, () ->
+                timeSeriesService.getSeries(BASE, BASE.plusHours(2), null, SeriesBucket.MINUTE, false));
+        verify(hitRollupService, never()).getSeries(any(), any(), any(), any());
+    }
+
+    @Test
+    void getSeries_TooManyUris_ShouldThrowValidationBeforeQuery() {
+        ReflectionTestUtils.setField(timeSeriesService, "maxPoints", 100);
+        ReflectionTestUtils.setField(timeSeriesService, "maxTotalPoints", 8L);
+
+        assertThrows(ValidationException.class, () -> timeSeriesService.getSeries(BASE, BASE.plusHours(3),
+                List.of("/events/1", "/events/2", "/events/3"), SeriesBucket.HOUR, false));
+        verify(hitRollupService, never()).getSeries(any(), any(), any(), any());
+    }
+
+    @Test
+    void getSeries_TooManySeriesWithoutUris_ShouldThrowValidation() {
+        ReflectionTestUtils.setField(timeSeriesService, "maxPoints", 100);
+        ReflectionTestUtils.setField(timeSeriesService, "maxTotalPoints", 8L);
+
+        when(hitRollupService.isEnabled())
+                .thenReturn(true);
+        when(hitRollupService.getSeries(BASE, BASE.plusHours(3), ChronoUnit.HOURS, null))
+                .thenReturn(Map.of(new BucketKey(new StatsKey("ewm-main", "/events/1"), BASE), 1L,
+                        new BucketKey(new StatsKey("ewm-main", "/events/2"), BASE), 1L,
+                        new BucketKey(new StatsKey("ewm-main", "/events/3"), BASE), 1L));
+
+        assertThrows(ValidationException.class, () ->
+                timeSeriesService.getSeries(BASE, BASE.plusHours(3), null, SeriesBucket.HOUR, false));
+    }
+}
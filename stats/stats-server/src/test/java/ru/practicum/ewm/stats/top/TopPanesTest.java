@@ -0,0 +1,52 @@
+package ru.practicum.ewm.stats.top;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.sketch.SpaceSaving;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TopPanesTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 12, 1, 12, 30, 15);
+
+    @Test
+    void summary_ShouldSumPanesInsideWindow() {
+        TopPanes panes = new TopPanes(TopWindow.HOUR, 10);
+        panes.add(1, NOW, 2, NOW);
+        panes.add(1, NOW.minusMinutes(30), 3, NOW);
+        panes.add(1, NOW.minusMinutes(60), 4, NOW);
+        panes.add(1, NOW.minusMinutes(61), 100, NOW);
+
+        SpaceSaving summary = panes.summary(NOW);
+
+        assertEquals(9, summary.count(1));
+        assertEquals(9, summary.getTotal());
+    }
+
+    @Test
+    void summary_AfterPaneRotation_ShouldDropOldPane() {
+        TopPanes panes = new TopPanes(TopWindow.HOUR, 10);
+        panes.add(1, NOW.minusMinutes(60), 4, NOW);
+        panes.add(2, NOW, 1, NOW);
+        assertEquals(4, panes.summary(NOW).count(1));
+
+        LocalDateTime later = NOW.plusMinutes(1);
+
+        assertEquals(0, panes.summary(later).count(1));
+        assertEquals(1, panes.summary(later).count(2));
+    }
+
+    @Test
+    void add_LateHit_ShouldInvalidateClosedPanes() {
+        TopPanes panes = new TopPanes(TopWindow.DAY, 10);
+        panes.add(1, NOW.minusHours(3), 1, NOW);
+        assertEquals(1, panes.summary(NOW).count(1));
+
+        panes.add(1, NOW.minusHours(5), 2, NOW);
+        panes.add(1, NOW.plusHours(5), 1, NOW);
+
+        assertEquals(4, panes.summary(NOW).count(1));
+    }
+}